@@ -3,6 +3,8 @@
  */
 package org.sinnlabs.dbvim.config;
 
+import org.sinnlabs.dbvim.db.ConnectionPool;
+import org.sinnlabs.dbvim.db.DataExecutor;
 import org.zkoss.zk.ui.WebApp;
 import org.zkoss.zk.ui.util.WebAppCleanup;
 
@@ -17,6 +19,8 @@ public class ApplicationCleanup implements WebAppCleanup {
 	@Override
 	public void cleanup(WebApp wapp) throws Exception {
 		System.out.println("Clean up resources.");
+		DataExecutor.shutdown();
+		ConnectionPool.clear();
 		ConfigLoader.getInstance().dispose();
 	}
 
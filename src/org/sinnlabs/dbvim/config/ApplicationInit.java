@@ -3,6 +3,8 @@
  */
 package org.sinnlabs.dbvim.config;
 
+import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.zkoss.lang.Library;
 import org.zkoss.zk.ui.WebApp;
 import org.zkoss.zk.ui.util.WebAppInit;
 
@@ -12,6 +14,11 @@ import org.zkoss.zk.ui.util.WebAppInit;
  *
  */
 public class ApplicationInit implements WebAppInit {
+	
+	/**
+	 * Library property that enables form resolvers build on startup
+	 */
+	public static final String WARM_UP_PROPERTY = "org.sinnlabs.dbvim.form.warmUp";
 
 	/* (non-Javadoc)
 	 * @see org.zkoss.zk.ui.util.WebAppInit#init(org.zkoss.zk.ui.WebApp)
@@ -20,6 +27,15 @@ public class ApplicationInit implements WebAppInit {
 	public void init(WebApp wapp) throws Exception {
 		System.out.println("Initializing dbvim configuration.");
 		ConfigLoader.initialize(wapp);
+		if (Boolean.parseBoolean(Library.getProperty(WARM_UP_PROPERTY))) {
+			System.out.println("Warming up form resolvers.");
+			try {
+				FormFieldResolverFactory.warmUp(ConfigLoader.getInstance().getForms().queryForAll());
+			} catch (Exception e) {
+				System.err.println("Unable to warm up form resolvers: " + e.getMessage());
+				e.printStackTrace();
+			}
+		}
 	}
 
 }
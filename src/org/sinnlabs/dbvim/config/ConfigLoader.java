@@ -217,6 +217,14 @@ public class ConfigLoader {
 		forms = DaoManager.createDao(connectionSource, Form.class);
 		if (!forms.isTableExists()) {
 			TableUtils.createTableIfNotExists(connectionSource, Form.class);
+		} else {
+			addColumnIfNotExists(forms, Form.TABLE_NAME, Form.VERSION_FIELD_NAME, "BIGINT DEFAULT 0");
+			addColumnIfNotExists(forms, Form.TABLE_NAME, Form.ROW_VERSION_COLUMN_FIELD_NAME, 
+					"VARCHAR(255)");
+			if (addColumnIfNotExists(forms, Form.TABLE_NAME, Form.RESULT_COLUMNS_FIELD_NAME, 
+					"LONGVARCHAR")) {
+				migrateResultLists();
+			}
 		}
 		
 		roles = DaoManager.createDao(connectionSource, Role.class);
@@ -255,6 +263,13 @@ public class ConfigLoader {
 		searchMenus = DaoManager.createDao(connectionSource, SearchMenu.class);
 		if (!searchMenus.isTableExists()) {
 			TableUtils.createTableIfNotExists(connectionSource, SearchMenu.class);
+		} else {
+			addColumnIfNotExists(searchMenus, "SearchMenus", "cacheTimeout", 
+					"INTEGER DEFAULT " + SearchMenu.DEFAULT_CACHE_TIMEOUT);
+			addColumnIfNotExists(searchMenus, "SearchMenus", "typeahead", 
+					"BOOLEAN DEFAULT FALSE");
+			addColumnIfNotExists(searchMenus, "SearchMenus", "itemsLimit", 
+					"INTEGER DEFAULT " + SearchMenu.DEFAULT_ITEMS_LIMIT);
 		}
 		
 		staticResources = DaoManager.createDao(connectionSource, StaticResource.class);
@@ -273,6 +288,46 @@ public class ConfigLoader {
 		}
 	}
 
+	/**
+	 * Adds the new column to the existing configuration table
+	 * @param dao Table DAO
+	 * @param table Table name
+	 * @param column Column name
+	 * @param definition Column type definition
+	 * @return true if the column has been added, otherwise false
+	 * @throws SQLException
+	 */
+	protected boolean addColumnIfNotExists(Dao<?, ?> dao, String table, String column, 
+			String definition) throws SQLException {
+		StringBuilder tableName = new StringBuilder();
+		connectionSource.getDatabaseType().appendEscapedEntityName(tableName, table);
+		StringBuilder columnName = new StringBuilder();
+		connectionSource.getDatabaseType().appendEscapedEntityName(columnName, column);
+		try {
+			// check if the column exists
+			dao.queryRaw("SELECT " + columnName + " FROM " + tableName + " WHERE 1 = 0").getResults();
+		} catch (SQLException e) {
+			System.out.println("Adding column " + column + " to the table " + table);
+			dao.executeRaw("ALTER TABLE " + tableName + " ADD COLUMN " + columnName + " " + definition);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Converts java serialized form result lists to the compact encoding
+	 * @throws SQLException
+	 */
+	protected void migrateResultLists() throws SQLException {
+		for (Form f : forms.queryForAll()) {
+			if (f.isLegacyResultList()) {
+				System.out.println("Migrating result list of the form " + f.getName());
+				f.updateResultColumns();
+				forms.update(f);
+			}
+		}
+	}
+
 	public void dispose() {
 		try {
 			connectionSource.close();
@@ -0,0 +1,247 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.db;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
+
+/**
+ * Imports CSV records into the form.
+ * Records are converted with the mapped fields and inserted chunk by chunk,
+ * every chunk is inserted in its own transaction.
+ * If the chunk fails, its rows are inserted one by one to find the wrong ones.
+ * @author peter.liverovsky
+ *
+ */
+public class BulkImport {
+	
+	/**
+	 * Default number of entries inserted in one transaction
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	
+	/**
+	 * Maximum number of the errors kept for the report
+	 */
+	public static final int MAX_ERRORS = 1000;
+	
+	/**
+	 * Receives the import progress
+	 */
+	public interface ProgressListener {
+		
+		/**
+		 * Called after each chunk
+		 * @param rows Number of the read records
+		 * @param imported Number of the imported records
+		 * @param errors Number of the wrong records
+		 */
+		public void onProgress(int rows, int imported, int errors);
+	}
+	
+	/**
+	 * Describes the record that was not imported
+	 */
+	public static class RowError {
+		
+		private int line;
+		
+		private String message;
+		
+		public RowError(int line, String message) {
+			this.line = line;
+			this.message = message;
+		}
+		
+		/**
+		 * Line number of the record in the CSV file
+		 */
+		public int getLine() { return line; }
+		
+		public String getMessage() { return message; }
+	}
+	
+	private Database db;
+	
+	private List<IFieldInfo<?>> columns;
+	
+	private boolean upsert;
+	
+	private int chunkSize;
+	
+	private int rows = 0;
+	
+	private int imported = 0;
+	
+	private int errorCount = 0;
+	
+	private List<RowError> errors = new ArrayList<RowError>();
+	
+	private volatile boolean cancelled = false;
+	
+	/**
+	 * @param db Form database
+	 * @param columns Field for each CSV column, null - the column is skipped
+	 * @param upsert Update the entries that already exist
+	 * @param chunkSize Number of entries inserted in one transaction
+	 */
+	public BulkImport(Database db, List<IFieldInfo<?>> columns, boolean upsert, int chunkSize) {
+		this.db = db;
+		this.columns = columns;
+		this.upsert = upsert;
+		this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+		if (upsert)
+			checkPrimaryKey();
+	}
+	
+	/**
+	 * Imports the records. Chunks committed before the cancellation are not rolled back.
+	 * @param reader CSV reader positioned after the header
+	 * @param listener Progress listener, can be null
+	 * @return Number of the imported records
+	 * @throws IOException
+	 */
+	public int execute(CsvReader reader, ProgressListener listener) throws IOException {
+		List<Entry> chunk = new ArrayList<Entry>(chunkSize);
+		List<Integer> lines = new ArrayList<Integer>(chunkSize);
+		List<String> record;
+		while (!cancelled && (record = reader.readRecord()) != null) {
+			// skip empty lines
+			if (record.size() == 1 && record.get(0).isEmpty())
+				continue;
+			rows++;
+			Entry e = toEntry(record, reader.getLine());
+			if (e == null)
+				continue;
+			chunk.add(e);
+			lines.add(reader.getLine());
+			if (chunk.size() >= chunkSize) {
+				insert(chunk, lines);
+				chunk.clear();
+				lines.clear();
+				if (listener != null)
+					listener.onProgress(rows, imported, errorCount);
+			}
+		}
+		if (!cancelled && !chunk.isEmpty())
+			insert(chunk, lines);
+		if (listener != null)
+			listener.onProgress(rows, imported, errorCount);
+		return imported;
+	}
+	
+	/**
+	 * Stops the import after the current chunk
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	public boolean isCancelled() { return cancelled; }
+	
+	/**
+	 * Returns number of the read records
+	 */
+	public int getRows() { return rows; }
+	
+	/**
+	 * Returns number of the imported records
+	 */
+	public int getImported() { return imported; }
+	
+	/**
+	 * Returns number of the wrong records
+	 */
+	public int getErrorCount() { return errorCount; }
+	
+	/**
+	 * Returns the first {@link #MAX_ERRORS} errors
+	 */
+	public List<RowError> getErrors() { return errors; }
+	
+	/**
+	 * Converts the record to the entry
+	 * @return Entry or null if the record contains wrong values
+	 */
+	private Entry toEntry(List<String> record, int line) {
+		Entry e = new Entry();
+		for (int i=0; i<columns.size(); i++) {
+			IFieldInfo<?> f = columns.get(i);
+			if (f == null)
+				continue;
+			String s = i < record.size() ? record.get(i) : "";
+			Value<?> v;
+			try {
+				v = s.isEmpty() ? new Value<Object>(null, f.getDBField()) : f.fromString(s);
+			} catch (Exception ex) {
+				addError(line, "Column " + (i+1) + " (" + f.getId() + "): " + getMessage(ex));
+				return null;
+			}
+			e.getValues().add(v);
+			if (f.getDBField().isPrimaryKey())
+				e.getID().add(v);
+		}
+		return e;
+	}
+	
+	private void insert(List<Entry> chunk, List<Integer> lines) {
+		try {
+			db.insertEntries(chunk, upsert);
+			imported += chunk.size();
+			return;
+		} catch (DatabaseOperationException ex) {
+			if (chunk.size() == 1) {
+				addError(lines.get(0), getMessage(ex));
+				return;
+			}
+		}
+		// find the wrong rows
+		for (int i=0; i<chunk.size() && !cancelled; i++) {
+			List<Entry> row = new ArrayList<Entry>(1);
+			row.add(chunk.get(i));
+			try {
+				db.insertEntries(row, upsert);
+				imported++;
+			} catch (DatabaseOperationException ex) {
+				addError(lines.get(i), getMessage(ex));
+			}
+		}
+	}
+	
+	private void addError(int line, String message) {
+		errorCount++;
+		if (errors.size() < MAX_ERRORS)
+			errors.add(new RowError(line, message));
+	}
+	
+	private static String getMessage(Throwable t) {
+		// the database error is more informative than the wrapper
+		while (t.getCause() != null)
+			t = t.getCause();
+		return t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName();
+	}
+	
+	/**
+	 * Upsert requires all primary key columns to be mapped
+	 */
+	private void checkPrimaryKey() {
+		// partial key would update all rows sharing it
+		boolean mapped = db.formIds.length > 0;
+		for (String id : db.formIds) {
+			boolean found = false;
+			for (IFieldInfo<?> f : columns) {
+				if (f != null && f.getDBField().getName().equals(id))
+					found = true;
+			}
+			if (!found)
+				mapped = false;
+		}
+		if (!mapped)
+			throw new IllegalArgumentException("Primary key columns should be mapped to update the existing entries.");
+	}
+}
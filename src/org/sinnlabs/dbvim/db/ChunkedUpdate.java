@@ -0,0 +1,119 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.db;
+
+import java.util.List;
+
+import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
+import org.sinnlabs.dbvim.evaluator.AbstractVariableSet;
+import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
+
+/**
+ * Sets the values to all entries matching the qualification.
+ * The primary ids are read chunk by chunk using the keyset pagination
+ * and every chunk is updated in its own transaction, 
+ * so the rows are not locked for the whole update.
+ * @author peter.liverovsky
+ *
+ */
+public class ChunkedUpdate {
+	
+	/**
+	 * Default number of entries updated in one transaction
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	
+	/**
+	 * Receives the update progress
+	 */
+	public interface ProgressListener {
+		
+		/**
+		 * Called after each committed chunk
+		 * @param updated Number of the updated entries
+		 */
+		public void onProgress(int updated);
+	}
+	
+	private Database db;
+	
+	private List<Value<?>> values;
+	
+	private List<Value<?>> condition;
+	
+	private String query;
+	
+	private AbstractVariableSet<Value<?>> context;
+	
+	private int chunkSize;
+	
+	private volatile boolean cancelled = false;
+	
+	/**
+	 * @param db Form database
+	 * @param values New field values
+	 * @param chunkSize Number of entries updated in one transaction
+	 */
+	public ChunkedUpdate(Database db, List<Value<?>> values, int chunkSize) {
+		this.db = db;
+		this.values = values;
+		this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+	}
+	
+	/**
+	 * Sets the qualification values.
+	 * If the qualification is not set, all entries are updated.
+	 */
+	public void setCondition(List<Value<?>> condition) {
+		this.condition = condition;
+		this.query = null;
+	}
+	
+	/**
+	 * Sets the additional search qualification
+	 * @param query Query string
+	 * @param context Query variables, can be null
+	 */
+	public void setQuery(String query, AbstractVariableSet<Value<?>> context) {
+		this.query = query;
+		this.context = context;
+		this.condition = null;
+	}
+	
+	/**
+	 * Runs the update. Chunks committed before the error or the cancellation are not rolled back.
+	 * @param listener Progress listener, can be null
+	 * @return Number of the updated entries
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	public int execute(ProgressListener listener) throws ParseException, DatabaseOperationException {
+		int updated = 0;
+		Entry after = null;
+		while (!cancelled) {
+			List<Entry> keys = db.queryKeys(condition, query, context, after, chunkSize);
+			if (keys.isEmpty())
+				break;
+			
+			db.updateEntries(keys, values);
+			updated += keys.size();
+			if (listener != null)
+				listener.onProgress(updated);
+			
+			if (keys.size() < chunkSize)
+				break;
+			after = keys.get(keys.size()-1);
+		}
+		return updated;
+	}
+	
+	/**
+	 * Stops the update after the current chunk
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	public boolean isCancelled() { return cancelled; }
+}
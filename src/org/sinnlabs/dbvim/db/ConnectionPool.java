@@ -0,0 +1,282 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.sinnlabs.dbvim.model.DBConnection;
+
+/**
+ * Keeps the idle JDBC connections for the form databases.
+ * Returned connections are proxies, {@link Connection#close()} puts
+ * the physical connection back to the pool.
+ * Uncommitted transactions are rolled back and the statements created
+ * through the proxy are closed on the close.
+ * Number of the connections in use is limited for each connection string.
+ * @author peter.liverovsky
+ *
+ */
+public class ConnectionPool {
+	
+	/**
+	 * Maximum number of the idle connections for one connection string
+	 */
+	private static final int MAX_IDLE = 16;
+	
+	/**
+	 * Maximum number of the connections in use for one connection string
+	 */
+	private static final int MAX_ACTIVE = 32;
+	
+	/**
+	 * Time (ms) to wait for the free connection if all are in use
+	 */
+	private static final long ACQUIRE_TIMEOUT = 10000;
+	
+	/**
+	 * Connections idle longer than this (ms) are validated before use
+	 */
+	private static final long VALIDATE_AFTER = 30000;
+	
+	/**
+	 * Validation timeout in seconds
+	 */
+	private static final int VALIDATE_TIMEOUT = 2;
+	
+	/**
+	 * Pools by the connection string
+	 */
+	private static final Map<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+	
+	/**
+	 * Returns the connection to the database
+	 * @param connection Form database connection
+	 * @return Connection, should be closed after use
+	 * @throws SQLException
+	 */
+	public static Connection getConnection(DBConnection connection) throws SQLException {
+		return getConnection(connection.getConnectionString());
+	}
+	
+	/**
+	 * Returns the connection to the database
+	 * @param url JDBC connection string
+	 * @return Connection, should be closed after use
+	 * @throws SQLException
+	 */
+	public static Connection getConnection(String url) throws SQLException {
+		Pool pool = getPool(url);
+		try {
+			if (!pool.active.tryAcquire(ACQUIRE_TIMEOUT, TimeUnit.MILLISECONDS))
+				throw new SQLException("Too many connections to the database are in use.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for the connection.", e);
+		}
+		
+		try {
+			PooledConnection c;
+			while ((c = pool.idle.pollFirst()) != null) {
+				if (System.currentTimeMillis() - c.released < VALIDATE_AFTER || isValid(c.target))
+					return c.lease();
+				closeQuietly(c.target);
+			}
+			return new PooledConnection(pool, DriverManager.getConnection(url)).lease();
+		} catch (SQLException | RuntimeException e) {
+			pool.active.release();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Closes all idle connections
+	 */
+	public static void clear() {
+		for (Pool pool : pools.values()) {
+			PooledConnection c;
+			while ((c = pool.idle.pollFirst()) != null) {
+				closeQuietly(c.target);
+			}
+		}
+	}
+	
+	private static Pool getPool(String url) {
+		Pool pool = pools.get(url);
+		if (pool == null) {
+			synchronized (pools) {
+				pool = pools.get(url);
+				if (pool == null) {
+					pool = new Pool();
+					pools.put(url, pool);
+				}
+			}
+		}
+		return pool;
+	}
+	
+	private static void release(PooledConnection c) {
+		try {
+			reset(c);
+		} finally {
+			c.pool.active.release();
+		}
+	}
+	
+	private static void reset(PooledConnection c) {
+		try {
+			if (c.target.isClosed())
+				return;
+			if (!c.target.getAutoCommit()) {
+				c.target.rollback();
+				c.target.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			System.err.println("WARN: Unable to reset the pooled connection: " + e.getMessage());
+			closeQuietly(c.target);
+			return;
+		}
+		
+		// size() is not constant time, but the queue is small
+		if (c.pool.idle.size() >= MAX_IDLE) {
+			closeQuietly(c.target);
+			return;
+		}
+		c.released = System.currentTimeMillis();
+		c.pool.idle.offerFirst(c);
+	}
+	
+	private static boolean isValid(Connection c) {
+		try {
+			return c.isValid(VALIDATE_TIMEOUT);
+		} catch (SQLException | AbstractMethodError e) {
+			// old drivers do not support the validation
+			return false;
+		}
+	}
+	
+	private static void closeQuietly(Connection c) {
+		try {
+			c.close();
+		} catch (SQLException e) {
+			System.err.println("WARN: Unable to close the connection: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Connections of one connection string
+	 */
+	private static class Pool {
+		
+		/**
+		 * Idle connections, the most recently used first
+		 */
+		private final ConcurrentLinkedDeque<PooledConnection> idle = 
+				new ConcurrentLinkedDeque<PooledConnection>();
+		
+		/**
+		 * Permits for the connections in use
+		 */
+		private final Semaphore active = new Semaphore(MAX_ACTIVE, true);
+	}
+	
+	/**
+	 * Physical connection
+	 */
+	private static class PooledConnection {
+		
+		private final Pool pool;
+		
+		private final Connection target;
+		
+		private volatile long released;
+		
+		public PooledConnection(Pool pool, Connection target) {
+			this.pool = pool;
+			this.target = target;
+		}
+		
+		/**
+		 * Creates the proxy for one use of the connection
+		 */
+		public Connection lease() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), 
+					new Class<?>[] { Connection.class }, new Lease(this));
+		}
+	}
+	
+	/**
+	 * Forwards the calls to the physical connection until the proxy is closed
+	 */
+	private static class Lease implements InvocationHandler {
+		
+		private PooledConnection connection;
+		
+		private boolean closed = false;
+		
+		/**
+		 * Statements created through this lease
+		 */
+		private final List<Statement> statements = new ArrayList<Statement>();
+		
+		public Lease(PooledConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!closed) {
+					closed = true;
+					closeStatements();
+					release(connection);
+				}
+				return null;
+			}
+			if (name.equals("isClosed"))
+				return closed || connection.target.isClosed();
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+			if (closed)
+				throw new SQLException("Connection is closed.");
+			Object result;
+			try {
+				result = method.invoke(connection.target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (result instanceof Statement)
+				statements.add((Statement) result);
+			return result;
+		}
+		
+		private void closeStatements() {
+			for (Statement st : statements) {
+				try {
+					st.close();
+				} catch (SQLException e) {
+					System.err.println("WARN: Unable to close the statement: " + e.getMessage());
+				}
+			}
+			statements.clear();
+		}
+	}
+}
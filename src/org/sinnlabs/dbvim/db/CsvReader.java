@@ -0,0 +1,140 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV records from the stream one by one.
+ * Quoted values can contain separators, quotes and line breaks.
+ * @author peter.liverovsky
+ *
+ */
+public class CsvReader {
+	
+	private BufferedReader in;
+	
+	private char separator;
+	
+	/**
+	 * Next line number
+	 */
+	private int line = 1;
+	
+	/**
+	 * Line number where the last record starts
+	 */
+	private int recordLine = 0;
+	
+	/**
+	 * Next character or -2 if not read yet
+	 */
+	private int next = -2;
+	
+	/**
+	 * @param in CSV data
+	 * @param separator Value separator
+	 */
+	public CsvReader(Reader in, char separator) {
+		this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		this.separator = separator;
+	}
+	
+	/**
+	 * Reads the next record
+	 * @return Record values or null at the end of the stream
+	 * @throws IOException
+	 */
+	public List<String> readRecord() throws IOException {
+		int c = read();
+		// skip the byte order mark
+		if (recordLine == 0 && c == '\uFEFF')
+			c = read();
+		if (c == -1)
+			return null;
+		
+		recordLine = line;
+		List<String> record = new ArrayList<String>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		boolean wasQuoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1)
+					throw new IOException("Unterminated quoted value at line " + recordLine);
+				if (c == '"') {
+					if (peek() == '"') {
+						read();
+						value.append('"');
+					} else {
+						quoted = false;
+					}
+				} else {
+					if (c == '\n')
+						line++;
+					value.append((char) c);
+				}
+			} else if (c == '"' && value.length() == 0 && !wasQuoted) {
+				quoted = true;
+				wasQuoted = true;
+			} else if (c == separator) {
+				record.add(value.toString());
+				value.setLength(0);
+				wasQuoted = false;
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				if (c == '\r' && peek() == '\n')
+					read();
+				if (c != -1)
+					line++;
+				record.add(value.toString());
+				return record;
+			} else {
+				value.append((char) c);
+			}
+			c = read();
+		}
+	}
+	
+	/**
+	 * Returns the line number where the last read record starts
+	 */
+	public int getLine() { return recordLine; }
+	
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	private int read() throws IOException {
+		int c = next != -2 ? next : in.read();
+		next = -2;
+		return c;
+	}
+	
+	private int peek() throws IOException {
+		if (next == -2)
+			next = in.read();
+		return next;
+	}
+	
+	/**
+	 * Detects the separator by the header line, comma and semicolon are supported
+	 * @param header First line of the file
+	 * @return Separator
+	 */
+	public static char detectSeparator(String header) {
+		int commas = 0;
+		int semicolons = 0;
+		for (int i=0; i<header.length(); i++) {
+			if (header.charAt(i) == ',')
+				commas++;
+			else if (header.charAt(i) == ';')
+				semicolons++;
+		}
+		return semicolons > commas ? ';' : ',';
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ */
+package org.sinnlabs.dbvim.db;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application wide executor for the database queries
+ * that can be run outside of the ZK event processing thread.
+ * Results should be applied to the components on the UI thread.
+ * Long running bulk operations use the separate small executor,
+ * so they do not delay the interactive queries.
+ * @author peter.liverovsky
+ *
+ */
+public class DataExecutor {
+
+	/**
+	 * Maximum number of the concurrent queries
+	 */
+	private static final int POOL_SIZE = 8;
+
+	/**
+	 * Maximum number of the waiting queries.
+	 * If the queue is full the query runs in the caller thread.
+	 */
+	private static final int QUEUE_SIZE = 256;
+
+	/**
+	 * Maximum number of the concurrent bulk operations
+	 */
+	private static final int BULK_POOL_SIZE = 2;
+
+	/**
+	 * Maximum number of the waiting bulk operations.
+	 * If the queue is full the operation is rejected.
+	 */
+	private static final int BULK_QUEUE_SIZE = 4;
+
+	private static ThreadPoolExecutor executor;
+
+	private static ThreadPoolExecutor bulkExecutor;
+
+	/**
+	 * Submits the task to the data executor
+	 * @param task Task to be executed
+	 * @return Future for the task result
+	 */
+	public static <T> Future<T> submit(Callable<T> task) {
+		return getExecutor().submit(task);
+	}
+
+	/**
+	 * Submits the long running bulk operation
+	 * @param task Task to be executed
+	 * @return Future for the task result
+	 * @throws RejectedExecutionException if too many bulk operations are running
+	 */
+	public static <T> Future<T> submitBulk(Callable<T> task) {
+		return getBulkExecutor().submit(task);
+	}
+
+	/**
+	 * Stops the executors. Running tasks are interrupted.
+	 */
+	public static synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		if (bulkExecutor != null) {
+			bulkExecutor.shutdownNow();
+			bulkExecutor = null;
+		}
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+					60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+					new DataThreadFactory("dbvim-data-"), new ThreadPoolExecutor.CallerRunsPolicy());
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	private static synchronized ThreadPoolExecutor getBulkExecutor() {
+		if (bulkExecutor == null) {
+			// the operation never runs in the caller (ZK event) thread
+			bulkExecutor = new ThreadPoolExecutor(BULK_POOL_SIZE, BULK_POOL_SIZE,
+					60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(BULK_QUEUE_SIZE),
+					new DataThreadFactory("dbvim-bulk-"), new ThreadPoolExecutor.AbortPolicy());
+			bulkExecutor.allowCoreThreadTimeOut(true);
+		}
+		return bulkExecutor;
+	}
+
+	private static class DataThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		public DataThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, prefix + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
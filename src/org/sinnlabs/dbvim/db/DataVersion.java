@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.db;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sinnlabs.dbvim.model.Form;
+
+/**
+ * Keeps track of the data changes made by the application.
+ * Each table has a version number that is incremented on every write.
+ * @author peter.liverovsky
+ *
+ */
+public class DataVersion {
+	
+	private static final ConcurrentMap<String, AtomicLong> versions = 
+			new ConcurrentHashMap<String, AtomicLong>();
+	
+	/**
+	 * Returns current data version of the basic form table
+	 * @param form Basic form
+	 * @return Data version
+	 */
+	public static long get(Form form) {
+		AtomicLong v = versions.get(getKey(form));
+		if (v == null)
+			return 0;
+		return v.get();
+	}
+	
+	/**
+	 * Marks the basic form table data as changed
+	 * @param form Basic form
+	 */
+	public static void increment(Form form) {
+		String key = getKey(form);
+		AtomicLong v = versions.get(key);
+		if (v == null) {
+			AtomicLong nv = new AtomicLong();
+			v = versions.putIfAbsent(key, nv);
+			if (v == null)
+				v = nv;
+		}
+		v.incrementAndGet();
+	}
+	
+	private static String getKey(Form form) {
+		return form.getDBConnection().getConnectionString() + "|" + form.getQualifiedName();
+	}
+}
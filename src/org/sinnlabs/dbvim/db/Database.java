@@ -3,17 +3,22 @@
  */
 package org.sinnlabs.dbvim.db;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Date;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -24,8 +29,9 @@ import org.sinnlabs.dbvim.evaluator.AbstractVariableSet;
 import org.sinnlabs.dbvim.evaluator.DatabaseConditionBuilder;
 import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
+import org.sinnlabs.dbvim.model.DBConnection;
 import org.sinnlabs.dbvim.model.Form;
-import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 
 /**
  * Class that manages database operations.
@@ -51,6 +57,30 @@ public class Database {
 	
 	protected DatabaseConditionBuilder conditionBuilder;
 	
+	/**
+	 * Row version column or null if the form does not define it
+	 */
+	protected DBField versionField;
+	
+	/**
+	 * Maximum number of the cached UPDATE statements
+	 */
+	private static final int UPDATE_QUERIES_SIZE = 256;
+	
+	/**
+	 * UPDATE statements by the form and the changed columns
+	 */
+	private static final Map<String, String> updateQueries = 
+			new LinkedHashMap<String, String>(UPDATE_QUERIES_SIZE, 0.75f, true) {
+
+		private static final long serialVersionUID = -2946421309441417632L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > UPDATE_QUERIES_SIZE;
+		}
+	};
+	
 	protected Database() {
 		
 	}
@@ -59,11 +89,21 @@ public class Database {
 		this.form = form;
 		DBModel model = new DBModel(form.getDBConnection().getConnectionString(), 
 				form.getDBConnection().getClassName());
-		fields = model.getFields(form.getCatalog(),
-				form.getTableName());
+		try {
+			fields = model.getFields(form.getCatalog(),
+					form.getTableName());
+		} finally {
+			model.close();
+		}
 		formIds = findID(form);
 		this.resolver = resolver;
 		conditionBuilder = new DatabaseConditionBuilder();
+		if (!StringUtils.isBlank(form.getRowVersionColumn())) {
+			versionField = getFieldByName(fields, form.getRowVersionColumn());
+			if (versionField == null)
+				System.err.println("WARN: Row version column " + form.getRowVersionColumn() 
+						+ " does not exist in the table " + form.getQualifiedName());
+		}
 	}
 	
 	/**
@@ -73,10 +113,10 @@ public class Database {
 	 * @return List of entries
 	 * @throws DatabaseOperationException 
 	 */
-	public List<Entry> queryAll(List<IField<?>> fields, int limit) throws DatabaseOperationException {
+	public List<Entry> queryAll(List<IFieldInfo<?>> fields, int limit) throws DatabaseOperationException {
+		Connection db = null;
 		try {
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 
 			String[] results = getResultList(fields);
 			String[] escapedResults = escapeFieldNames(results);
@@ -87,6 +127,8 @@ public class Database {
 
 			PreparedStatement q = db.prepareStatement("SELECT " + sFields
 					+ " FROM " + form.getQualifiedName());
+			if (limit > 0)
+				q.setMaxRows(limit);
 
 			ResultSet res = q.executeQuery();
 			
@@ -95,7 +137,6 @@ public class Database {
 			// release resources
 			res.close();
 			q.close();
-			db.close();
 			
 			return entries;
 		} catch (SQLException e) {
@@ -103,6 +144,8 @@ public class Database {
 					+ e.getMessage());
 			e.printStackTrace();
 			throw new DatabaseOperationException("Error while executing sql query.", e);
+		} finally {
+			close(db);
 		}
 	}
 	
@@ -115,7 +158,7 @@ public class Database {
 	 */
 	private List<Entry> readEntries(ResultSet res, String[] results, int limit) throws SQLException {
 		List<Entry> entries = new ArrayList<Entry>();
-		while (res.next()) {
+		while ((limit == 0 || entries.size() < limit) && res.next()) {
 			Entry entry = new Entry();
 			// read primary key
 			for (int i = 0; i < formIds.length; i++) {
@@ -144,10 +187,10 @@ public class Database {
 	 * @return List of entries
 	 * @throws DatabaseOperationException
 	 */
-	public List<Entry> query(List<IField<?>> fields, List<Value<?>> condition, int limit) throws DatabaseOperationException {
+	public List<Entry> query(List<IFieldInfo<?>> fields, List<Value<?>> condition, int limit) throws DatabaseOperationException {
+		Connection db = null;
 		try {
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 
 			String[] results = getResultList(fields);
 
@@ -170,6 +213,8 @@ public class Database {
 			}
 			
 			PreparedStatement ps = db.prepareStatement(query);
+			if (limit > 0)
+				ps.setMaxRows(limit);
 			// populate parameters
 			setParameters(ps, condition);
 
@@ -179,13 +224,14 @@ public class Database {
 			// release resources
 			res.close();
 			ps.close();
-			db.close();
 			
 			return entries;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DatabaseOperationException(
 					"Error while executing sql query.", e);
+		} finally {
+			close(db);
 		}
 	}
 	
@@ -200,15 +246,15 @@ public class Database {
 	 * @throws ParseException 
 	 * @throws DatabaseOperationException 
 	 */
-	public List<Entry> query(List<IField<?>> fields, String query, 
+	public List<Entry> query(List<IFieldInfo<?>> fields, String query, 
 			int limit, AbstractVariableSet<Value<?>> context) throws ParseException, DatabaseOperationException {
 		
 		List<Value<?>> values = new ArrayList<Value<?>>();
 		String dbCondition = conditionBuilder.buildCondition(query, context, resolver, values);
 		
+		Connection db = null;
 		try {
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 
 			String[] results = getResultList(fields);
 
@@ -224,6 +270,70 @@ public class Database {
 				dbQuery += " WHERE " + dbCondition;
 			}
 			
+			PreparedStatement ps = db.prepareStatement(dbQuery);
+			if (limit > 0)
+				ps.setMaxRows(limit);
+			// populate parameters
+			setParameters(ps, values);
+
+			ResultSet res = ps.executeQuery();
+			
+			List<Entry> entries = readEntries(res, results, limit);
+			
+			//release resources
+			res.close();
+			ps.close();
+			
+			return entries;
+			
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DatabaseOperationException(
+					"Error while executing sql query.", e);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Reads one page of entries matching the additional search query.
+	 * Entries are ordered by the primary key.
+	 * @param fields List of fields to be selected. 
+	 * Can be null, then form result list will be use.
+	 * @param query - Query string
+	 * @param offset Number of rows to skip
+	 * @param limit Maximum number of rows to read
+	 * @param context AbstractVariableSet<Value<?>> that contains special variables for the query
+	 * @return List of entries
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	public List<Entry> query(List<IFieldInfo<?>> fields, String query, int offset, 
+			int limit, AbstractVariableSet<Value<?>> context) throws ParseException, DatabaseOperationException {
+		
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		String dbCondition = conditionBuilder.buildCondition(query, context, resolver, values);
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+
+			String[] results = getResultList(fields);
+
+			String[] escapedResults = escapeFieldNames(results);
+			String[] escapedIds = escapeFieldNames(formIds);
+
+			String sFields = StringUtils.join(ArrayUtils.addAll(escapedIds, escapedResults),
+					", ");
+
+			String dbQuery = "SELECT " + sFields
+					+ " FROM " + form.getQualifiedName();
+			if (!StringUtils.isBlank(dbCondition)) {
+				dbQuery += " WHERE " + dbCondition;
+			}
+			dbQuery += getOrderBy(escapedIds);
+			dbQuery += getPagingClause(form.getDBConnection(), offset, limit);
+			
 			PreparedStatement ps = db.prepareStatement(dbQuery);
 			// populate parameters
 			setParameters(ps, values);
@@ -235,7 +345,6 @@ public class Database {
 			//release resources
 			res.close();
 			ps.close();
-			db.close();
 			
 			return entries;
 			
@@ -243,6 +352,53 @@ public class Database {
 			e.printStackTrace();
 			throw new DatabaseOperationException(
 					"Error while executing sql query.", e);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Counts entries matching the additional search query
+	 * @param query - Query string
+	 * @param context AbstractVariableSet<Value<?>> that contains special variables for the query
+	 * @return Number of entries
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	public int count(String query, AbstractVariableSet<Value<?>> context) 
+			throws ParseException, DatabaseOperationException {
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		String dbCondition = conditionBuilder.buildCondition(query, context, resolver, values);
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			
+			String dbQuery = "SELECT COUNT(*) FROM " + form.getQualifiedName();
+			if (!StringUtils.isBlank(dbCondition)) {
+				dbQuery += " WHERE " + dbCondition;
+			}
+			
+			PreparedStatement ps = db.prepareStatement(dbQuery);
+			// populate parameters
+			setParameters(ps, values);
+			
+			ResultSet res = ps.executeQuery();
+			int count = 0;
+			if (res.next())
+				count = res.getInt(1);
+			
+			//release resources
+			res.close();
+			ps.close();
+			
+			return count;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DatabaseOperationException(
+					"Error while executing sql query.", e);
+		} finally {
+			close(db);
 		}
 	}
 	
@@ -253,9 +409,9 @@ public class Database {
 	 */
 	public void updateAll(List<Value<?>> values) throws DatabaseOperationException {
 		// Connect to the db
+		Connection db = null;
 		try {
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 
 			// build update query
 			String query = "UPDATE " + form.getQualifiedName()
@@ -283,12 +439,14 @@ public class Database {
 			
 			//release resources
 			ps.close();
-			db.close();
+			DataVersion.increment(form);
 			
 		} catch (SQLException e1) {
 			System.err.println("ERROR: Unable to update entry: ");
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Unable to update entries.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
@@ -300,9 +458,9 @@ public class Database {
 	 */
 	public void update(List<Value<?>> condition, List<Value<?>> values) throws DatabaseOperationException {
 		// Connect to the db
+		Connection db = null;
 		try {
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 
 			// build update query
 			String query = "UPDATE " + form.getQualifiedName()
@@ -346,11 +504,13 @@ public class Database {
 			
 			//release resources
 			ps.close();
-			db.close();
+			DataVersion.increment(form);
 		} catch (SQLException e1) {
 			System.err.println("ERROR: Unable to update entry: ");
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Unable to update entry.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
@@ -367,9 +527,9 @@ public class Database {
 		List<Value<?>> condition = new ArrayList<Value<?>>();
 		String dbCondition = conditionBuilder.buildCondition(query, context, resolver, condition);
 		
+		Connection db = null;
 		try {
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 
 			// build update query
 			String dbQuery = "UPDATE " + form.getQualifiedName()
@@ -405,16 +565,422 @@ public class Database {
 			
 			//release resources
 			ps.close();
-			db.close();
+			DataVersion.increment(form);
 
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DatabaseOperationException(
 					"Error while executing sql query.", e);
+		} finally {
+			close(db);
 		}
 
 	}
 
+	/**
+	 * Reads primary ids of the entries matching the qualification.
+	 * Entries are ordered by the primary id and only entries after the given one are read,
+	 * so large tables can be walked chunk by chunk.
+	 * @param condition Qualification values, can be null
+	 * @param query Additional search query, used if the condition is not set. Can be null.
+	 * @param context AbstractVariableSet<Value<?>> that contains special variables for the query
+	 * @param after Last entry of the previous chunk or null to read the first chunk
+	 * @param limit Maximum number of entries to read
+	 * @return List of entries that contain only primary id values
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	public List<Entry> queryKeys(List<Value<?>> condition, String query, 
+			AbstractVariableSet<Value<?>> context, Entry after, int limit) 
+					throws ParseException, DatabaseOperationException {
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		String dbCondition = null;
+		if (condition != null && condition.size() > 0) {
+			dbCondition = "";
+			for(int i=0; i<condition.size(); i++) {
+				Value<?> v = condition.get(i);
+				dbCondition += v.getDBField().getName() + " ";
+				dbCondition += getOperator(v.getDBField()) + " ?";
+				if (i<condition.size()-1) {
+					dbCondition += " AND ";
+				}
+			}
+			values.addAll(condition);
+		} else if (!StringUtils.isBlank(query)) {
+			dbCondition = conditionBuilder.buildCondition(query, context, resolver, values);
+		}
+		
+		String[] escapedIds = escapeFieldNames(formIds);
+		String dbQuery = "SELECT " + StringUtils.join(escapedIds, ", ")
+				+ " FROM " + form.getQualifiedName();
+		String keyset = getKeysetCondition(escapedIds, after, values);
+		if (!StringUtils.isBlank(dbCondition) && keyset != null) {
+			dbQuery += " WHERE (" + dbCondition + ") AND (" + keyset + ")";
+		} else if (!StringUtils.isBlank(dbCondition)) {
+			dbQuery += " WHERE " + dbCondition;
+		} else if (keyset != null) {
+			dbQuery += " WHERE " + keyset;
+		}
+		dbQuery += getOrderBy(escapedIds);
+		dbQuery += getPagingClause(form.getDBConnection(), 0, limit);
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			
+			PreparedStatement ps = db.prepareStatement(dbQuery);
+			// populate parameters
+			setParameters(ps, values);
+			
+			ResultSet res = ps.executeQuery();
+			
+			List<Entry> entries = new ArrayList<Entry>();
+			while (entries.size() < limit && res.next()) {
+				Entry entry = new Entry();
+				for (int i = 0; i < formIds.length; i++) {
+					entry.getID().add(
+							getColumnValue(res, getFieldByName(fields, formIds[i])));
+				}
+				entries.add(entry);
+			}
+			
+			//release resources
+			res.close();
+			ps.close();
+			
+			return entries;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DatabaseOperationException(
+					"Error while executing sql query.", e);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Number of rows fetched from the database at once by {@link #queryEach}
+	 */
+	protected static final int FETCH_SIZE = 500;
+	
+	/**
+	 * Receives the entries read by {@link Database#queryEach}
+	 */
+	public interface EntryHandler {
+		
+		/**
+		 * Called for each entry read from the database
+		 * @param e Entry
+		 * @throws IOException
+		 */
+		public void handle(Entry e) throws IOException;
+	}
+	
+	/**
+	 * Reads all entries matching the qualification one by one.
+	 * Entries are not kept in memory, so the method can be used for large results.
+	 * @param fields List of fields to be selected. 
+	 * Can be null, then form result list will be use.
+	 * @param condition Qualification values, can be null
+	 * @param query Additional search query, used if the condition is not set. Can be null.
+	 * @param context AbstractVariableSet<Value<?>> that contains special variables for the query
+	 * @param handler Entry handler
+	 * @return Number of entries
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 * @throws IOException Thrown by the handler
+	 */
+	public int queryEach(List<IFieldInfo<?>> fields, List<Value<?>> condition, String query, 
+			AbstractVariableSet<Value<?>> context, EntryHandler handler) 
+					throws ParseException, DatabaseOperationException, IOException {
+		return queryEach(fields, condition, query, context, null, 0, 0, handler);
+	}
+	
+	/**
+	 * Reads one page of entries matching the qualification one by one.
+	 * Entries are ordered by the sort fields and then by the primary key.
+	 * @param fields List of fields to be selected. 
+	 * Can be null, then form result list will be use.
+	 * @param condition Qualification values, can be null
+	 * @param query Additional search query, used if the condition is not set. Can be null.
+	 * @param context AbstractVariableSet<Value<?>> that contains special variables for the query
+	 * @param sort Sort order, can be null
+	 * @param offset Number of rows to skip
+	 * @param limit Maximum number of rows to read, 0 - means no limit
+	 * @param handler Entry handler
+	 * @return Number of entries
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 * @throws IOException Thrown by the handler
+	 */
+	public int queryEach(List<IFieldInfo<?>> fields, List<Value<?>> condition, String query, 
+			AbstractVariableSet<Value<?>> context, List<SortField> sort, int offset, int limit, 
+			EntryHandler handler) throws ParseException, DatabaseOperationException, IOException {
+		return queryColumns(getResultList(fields), condition, query, context, 
+				sort, offset, limit, handler);
+	}
+	
+	/**
+	 * Indicates that the form table has the row version column
+	 */
+	public boolean hasRowVersion() {
+		return versionField != null;
+	}
+	
+	/**
+	 * Reads the row version of the entries matching the qualification.
+	 * Entries contain the primary id and the only value - the row version.
+	 * Parameters are the same as for {@link #queryEach(List, List, String, AbstractVariableSet, List, int, int, EntryHandler)}
+	 * @return Number of entries
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 * @throws IOException Thrown by the handler
+	 */
+	public int queryVersions(List<Value<?>> condition, String query, 
+			AbstractVariableSet<Value<?>> context, List<SortField> sort, int offset, int limit, 
+			EntryHandler handler) throws ParseException, DatabaseOperationException, IOException {
+		if (versionField == null)
+			throw new DatabaseOperationException("Form does not have the row version column.", null);
+		return queryColumns(new String[] { versionField.getName() }, condition, query, context, 
+				sort, offset, limit, handler);
+	}
+	
+	/**
+	 * Reads the row version of the entry
+	 * @param e Entry with the primary id
+	 * @return Row version value or null if the entry does not exist
+	 * @throws DatabaseOperationException
+	 */
+	public Value<?> readVersion(Entry e) throws DatabaseOperationException {
+		if (versionField == null)
+			throw new DatabaseOperationException("Form does not have the row version column.", null);
+		
+		StringBuilder query = new StringBuilder("SELECT \"");
+		query.append(versionField.getName()).append("\" FROM ")
+			.append(form.getQualifiedName()).append(" WHERE ");
+		for(int i=0; i<e.getID().size(); i++) {
+			if (i > 0)
+				query.append(" AND ");
+			query.append('"').append(e.getID().get(i).getDBField().getName()).append("\" = ?");
+		}
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			PreparedStatement ps = db.prepareStatement(query.toString());
+			setParameters(ps, e);
+			
+			ResultSet res = ps.executeQuery();
+			Value<?> version = null;
+			if (res.next())
+				version = getColumnValue(res, versionField);
+			
+			//release resources
+			res.close();
+			ps.close();
+			return version;
+		} catch (SQLException e1) {
+			e1.printStackTrace();
+			throw new DatabaseOperationException("Error while executing sql query.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	private int queryColumns(String[] results, List<Value<?>> condition, String query, 
+			AbstractVariableSet<Value<?>> context, List<SortField> sort, int offset, int limit, 
+			EntryHandler handler) throws ParseException, DatabaseOperationException, IOException {
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		String dbCondition = null;
+		if (condition != null && condition.size() > 0) {
+			dbCondition = "";
+			for(int i=0; i<condition.size(); i++) {
+				Value<?> v = condition.get(i);
+				dbCondition += v.getDBField().getName() + " ";
+				dbCondition += getOperator(v.getDBField()) + " ?";
+				if (i<condition.size()-1) {
+					dbCondition += " AND ";
+				}
+			}
+			values.addAll(condition);
+		} else if (!StringUtils.isBlank(query)) {
+			dbCondition = conditionBuilder.buildCondition(query, context, resolver, values);
+		}
+		
+		String[] escapedResults = escapeFieldNames(results);
+		String[] escapedIds = escapeFieldNames(formIds);
+		
+		String dbQuery = "SELECT " + StringUtils.join(ArrayUtils.addAll(escapedIds, escapedResults), ", ")
+				+ " FROM " + form.getQualifiedName();
+		if (!StringUtils.isBlank(dbCondition)) {
+			dbQuery += " WHERE " + dbCondition;
+		}
+		dbQuery += getOrderBy(getSortColumns(sort), escapedIds);
+		if (limit > 0 || offset > 0)
+			dbQuery += getPagingClause(form.getDBConnection(), offset, 
+					limit > 0 ? limit : Integer.MAX_VALUE);
+		
+		// resolve the columns once
+		DBField[] idFields = new DBField[formIds.length];
+		for (int i=0; i<formIds.length; i++) {
+			idFields[i] = getFieldByName(this.fields, formIds[i]);
+		}
+		DBField[] resultFields = new DBField[results.length];
+		for (int i=0; i<results.length; i++) {
+			resultFields[i] = getFieldByName(this.fields, results[i]);
+		}
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			// some drivers use the cursor only inside of the transaction
+			db.setAutoCommit(false);
+			
+			PreparedStatement ps = db.prepareStatement(dbQuery, 
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(FETCH_SIZE);
+			// populate parameters
+			setParameters(ps, values);
+			
+			ResultSet res = ps.executeQuery();
+			int count = 0;
+			while (res.next()) {
+				Entry entry = new Entry();
+				for (DBField f : idFields) {
+					entry.getID().add(getColumnValue(res, f));
+				}
+				for (DBField f : resultFields) {
+					entry.getValues().add(getColumnValue(res, f));
+				}
+				handler.handle(entry);
+				count++;
+			}
+			
+			//release resources
+			res.close();
+			ps.close();
+			db.commit();
+			
+			return count;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			rollback(db);
+			throw new DatabaseOperationException(
+					"Error while executing sql query.", e);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Sets the values to the entries in one transaction
+	 * @param entries Entries with the primary id values, see {@link #queryKeys}
+	 * @param values New field values
+	 * @throws DatabaseOperationException
+	 */
+	public void updateEntries(List<Entry> entries, List<Value<?>> values) throws DatabaseOperationException {
+		if (entries.isEmpty() || values.isEmpty())
+			return;
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			db.setAutoCommit(false);
+			
+			PreparedStatement ps = db.prepareStatement(
+					getUpdateQuery(values, entries.get(0).getID()));
+			for (Entry e : entries) {
+				// set values to update
+				for(int i=0; i<values.size(); i++) {
+					setParameter(ps, i+1, values.get(i));
+				}
+				// set qualification
+				for(int i=0; i<e.getID().size(); i++) {
+					setParameter(ps, values.size()+i+1, e.getID().get(i));
+				}
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			db.commit();
+			
+			//release resources
+			ps.close();
+			DataVersion.increment(form);
+		} catch (SQLException e1) {
+			System.err.println("ERROR: Unable to update entries: ");
+			e1.printStackTrace();
+			rollback(db);
+			throw new DatabaseOperationException("Unable to update entries.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Builds the keyset pagination condition:
+	 * (id1 > ?) OR (id1 = ? AND id2 > ?) ...
+	 * Null values are treated as the lowest ones.
+	 * @param columns Ordered primary id columns
+	 * @param after Last read entry or null
+	 * @param values [Out] condition values
+	 * @return Condition or null if the entry is not specified
+	 */
+	protected static String getKeysetCondition(String[] columns, Entry after, List<Value<?>> values) {
+		if (after == null || columns.length == 0)
+			return null;
+		
+		StringBuilder res = new StringBuilder();
+		for (int i=0; i<columns.length; i++) {
+			if (i > 0)
+				res.append(" OR ");
+			res.append('(');
+			for (int j=0; j<i; j++) {
+				Value<?> v = after.getID().get(j);
+				if (v.getValue() == null) {
+					res.append(columns[j]).append(" IS NULL AND ");
+				} else {
+					res.append(columns[j]).append(" = ? AND ");
+					values.add(v);
+				}
+			}
+			Value<?> v = after.getID().get(i);
+			if (v.getValue() == null) {
+				res.append(columns[i]).append(" IS NOT NULL");
+			} else {
+				res.append(columns[i]).append(" > ?");
+				values.add(v);
+			}
+			res.append(')');
+		}
+		return res.toString();
+	}
+	
+	/**
+	 * Rollbacks the transaction, errors are ignored
+	 */
+	protected static void rollback(Connection db) {
+		if (db == null)
+			return;
+		try {
+			db.rollback();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Closes the connection, errors are ignored
+	 */
+	protected static void close(Connection db) {
+		if (db == null)
+			return;
+		try {
+			db.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Returns operator string
 	 * @param field
@@ -443,6 +1009,68 @@ public class Database {
 		return "LIKE";
 	}
 
+	/**
+	 * Returns version of the form data.
+	 * The version changes on every write made by the application.
+	 * @return Data version
+	 */
+	public long getDataVersion() {
+		return DataVersion.get(form);
+	}
+	
+	/**
+	 * Returns ORDER BY clause for the paged queries
+	 * @param columns Columns to order by. If empty, the first column is used.
+	 * @return ORDER BY clause
+	 */
+	protected static String getOrderBy(String[] columns) {
+		if (columns == null || columns.length == 0)
+			return " ORDER BY 1";
+		return " ORDER BY " + StringUtils.join(columns, ", ");
+	}
+	
+	/**
+	 * Returns ORDER BY clause for the sorted queries
+	 * @param sort Sort columns with the direction, can be null
+	 * @param columns Primary id columns, keep the order stable for paging
+	 * @return ORDER BY clause
+	 */
+	protected static String getOrderBy(String[] sort, String[] columns) {
+		if (sort == null || sort.length == 0)
+			return getOrderBy(columns);
+		return " ORDER BY " + StringUtils.join(ArrayUtils.addAll(sort, columns), ", ");
+	}
+	
+	private String[] getSortColumns(List<SortField> sort) {
+		if (sort == null)
+			return null;
+		String[] res = new String[sort.size()];
+		for (int i=0; i<res.length; i++) {
+			res[i] = "\"" + sort.get(i).getField().getDBField().getName() + "\"" 
+					+ (sort.get(i).isDescending() ? " DESC" : " ASC");
+		}
+		return res;
+	}
+	
+	/**
+	 * Returns row limiting clause for the connection.
+	 * Should be placed after the ORDER BY clause.
+	 * @param connection Database connection
+	 * @param offset Number of rows to skip
+	 * @param limit Maximum number of rows
+	 * @return Row limiting clause
+	 */
+	protected static String getPagingClause(DBConnection connection, int offset, int limit) {
+		String url = connection.getConnectionString().toLowerCase();
+		// SQL:2008 syntax
+		if (url.startsWith("jdbc:sqlserver:") || url.startsWith("jdbc:jtds:sqlserver:") 
+				|| url.startsWith("jdbc:oracle:") || url.startsWith("jdbc:derby:")
+				|| url.startsWith("jdbc:db2:")) {
+			return " OFFSET " + offset + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
+		}
+		return " LIMIT " + limit + " OFFSET " + offset;
+	}
+
 	/**
 	 * Reads all entry values
 	 * @param e - Entry contains valid IDs values
@@ -451,10 +1079,10 @@ public class Database {
 	 * @throws DatabaseOperationException 
 	 */
 	public Entry readEntry(Entry e) throws DatabaseOperationException {
+		Connection db = null;
 		try {
 			// connect to the db
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 
 			// prepare sql query
 			String query = "SELECT * FROM " + form.getQualifiedName();
@@ -475,22 +1103,27 @@ public class Database {
 			setParameters(ps, e);
 			
 			ResultSet set = ps.executeQuery();
-			// if no found
-			if (!set.next()) 
-				return null;
-			
-			// build entry object
-			Entry result = new Entry();
-			for(DBField cf : fields) {
-				Value<?> v = getColumnValue(set, cf);
-				if (cf.isPrimaryKey())
-					result.getID().add(v);
-				result.getValues().add(v);
+			Entry result = null;
+			// build entry object if found
+			if (set.next()) {
+				result = new Entry();
+				for(DBField cf : fields) {
+					Value<?> v = getColumnValue(set, cf);
+					if (cf.isPrimaryKey())
+						result.getID().add(v);
+					result.getValues().add(v);
+				}
 			}
+			
+			//release resources
+			set.close();
+			ps.close();
 			return result;
 		} catch (SQLException e1) {
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Error while executing sql query.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
@@ -503,14 +1136,17 @@ public class Database {
 	public void updateEntry(Entry e, List<Value<?>> values) throws DatabaseOperationException {
 		// find updated values
 		List<Value<?>> newValues = new ArrayList<Value<?>>();
+		HashMap<String, Value<?>> oldValues = 
+				new HashMap<String, Value<?>>(e.getValues().size() * 2);
+		for(Value<?> ov : e.getValues()) {
+			oldValues.put(ov.getDBField().getName(), ov);
+		}
 		for(Value<?> nv : values) {
-			for(Value<?> ov : e.getValues()) {
-				// if new value is different
-				if (nv.getDBField().getName().equals(ov.getDBField().getName())
-						&& (ov.getValue() == null || !nv.getValue().equals(ov.getValue())) ) {
-					// add new value to the list
-					newValues.add(nv);
-				}
+			Value<?> ov = oldValues.get(nv.getDBField().getName());
+			// if new value is different
+			if (ov != null && !Objects.equals(nv.getValue(), ov.getValue())) {
+				// add new value to the list
+				newValues.add(nv);
 			}
 		}
 		
@@ -519,31 +1155,11 @@ public class Database {
 			return;
 		
 		// Connect to the db
+		Connection db = null;
 		try {
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 		
-			// build update query
-			String query = "UPDATE " + form.getQualifiedName()
-					+ " SET ";
-			// add values to the query
-			for (int i=0; i<newValues.size(); i++) {
-				query += "\"" + newValues.get(i).getDBField().getName() + "\" = ?";
-				if (i<newValues.size()-1)
-					query += ", ";
-				else
-					query += " ";
-			}
-			
-			// build query qualification
-			query += " WHERE ";
-			for(int i=0; i<e.getID().size(); i++) {
-				query += e.getID().get(i).getDBField().getName();
-				query += " = ?";
-				if (i<e.getID().size()-1) {
-					query += " AND ";
-				}
-			}
+			String query = getUpdateQuery(newValues, e.getID());
 			
 			// Prepare query
 			PreparedStatement ps = db.prepareStatement(query);
@@ -563,12 +1179,65 @@ public class Database {
 			
 			ps.close();
 			
-			db.close();
+			DataVersion.increment(form);
 		} catch (SQLException e1) {
 			System.err.println("ERROR: Unable to update entry: ");
 			e1.printStackTrace();	
 			throw new DatabaseOperationException("Unable to update entry.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Returns the UPDATE statement for the set of the changed columns.
+	 * Statements are cached, forms usually update the same columns.
+	 * @param values Changed values
+	 * @param id Entry primary id
+	 * @return Sql query
+	 */
+	protected String getUpdateQuery(List<Value<?>> values, List<Value<?>> id) {
+		StringBuilder key = new StringBuilder(form.getQualifiedName());
+		for (Value<?> v : values) {
+			key.append('|').append(v.getDBField().getName());
+		}
+		key.append('#');
+		for (Value<?> v : id) {
+			key.append('|').append(v.getDBField().getName());
+		}
+		
+		String k = key.toString();
+		synchronized (updateQueries) {
+			String query = updateQueries.get(k);
+			if (query != null)
+				return query;
+		}
+		
+		// build update query
+		StringBuilder query = new StringBuilder("UPDATE ")
+			.append(form.getQualifiedName()).append(" SET ");
+		// add values to the query
+		for (int i=0; i<values.size(); i++) {
+			query.append("\"").append(values.get(i).getDBField().getName()).append("\" = ?");
+			if (i<values.size()-1)
+				query.append(", ");
+			else
+				query.append(" ");
+		}
+		
+		// build query qualification
+		query.append(" WHERE ");
+		for(int i=0; i<id.size(); i++) {
+			query.append(id.get(i).getDBField().getName()).append(" = ?");
+			if (i<id.size()-1) {
+				query.append(" AND ");
+			}
+		}
+		
+		synchronized (updateQueries) {
+			updateQueries.put(k, query.toString());
 		}
+		return query.toString();
 	}
 	
 	/**
@@ -593,10 +1262,10 @@ public class Database {
 		}
 		query += ")";
 		
+		Connection db = null;
 		try {
 			// connect to the db
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 			
 			// prepare statement
 			PreparedStatement ps = db.prepareStatement(query);
@@ -610,13 +1279,325 @@ public class Database {
 			
 			//release resources
 			ps.close();
-			db.close();
+			DataVersion.increment(form);
 		} catch (SQLException e1) {
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Unable to create entry.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
+	/**
+	 * Inserts the entries in one transaction using the JDBC batch.
+	 * All entries should have the same columns in the same order.
+	 * In the upsert mode the entries that have the primary id are updated first
+	 * and the entries not found by the id are inserted.
+	 * @param entries Entries to be inserted
+	 * @param upsert Update the existing entries
+	 * @throws DatabaseOperationException
+	 */
+	public void insertEntries(List<Entry> entries, boolean upsert) throws DatabaseOperationException {
+		if (entries.isEmpty())
+			return;
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			db.setAutoCommit(false);
+			
+			List<Entry> inserts = entries;
+			if (upsert) {
+				inserts = new ArrayList<Entry>();
+				List<Entry> updates = new ArrayList<Entry>();
+				for (Entry e : entries) {
+					if (hasID(e))
+						updates.add(e);
+					else
+						inserts.add(e);
+				}
+				updateExisting(db, updates, inserts);
+			}
+			
+			if (!inserts.isEmpty()) {
+				PreparedStatement ps = db.prepareStatement(
+						getInsertQuery(inserts.get(0).getValues()));
+				for (Entry e : inserts) {
+					for(int i=0; i<e.getValues().size(); i++) {
+						setParameter(ps, i+1, e.getValues().get(i));
+					}
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				ps.close();
+			}
+			db.commit();
+			DataVersion.increment(form);
+		} catch (SQLException e1) {
+			System.err.println("ERROR: Unable to insert entries: ");
+			e1.printStackTrace();
+			rollback(db);
+			throw new DatabaseOperationException("Unable to insert entries.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Updates the entries by the primary id
+	 * @param db Connection
+	 * @param updates Entries to be updated
+	 * @param inserts [Out] Entries that are not found
+	 * @throws SQLException
+	 */
+	private void updateExisting(Connection db, List<Entry> updates, List<Entry> inserts) throws SQLException {
+		if (updates.isEmpty())
+			return;
+		
+		// all values except the primary id
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		for (Value<?> v : updates.get(0).getValues()) {
+			if (!v.getDBField().isPrimaryKey())
+				values.add(v);
+		}
+		if (values.isEmpty()) {
+			// nothing to update, existing entries are left unchanged
+			findMissing(db, updates, inserts);
+			return;
+		}
+		
+		PreparedStatement ps = db.prepareStatement(
+				getUpdateQuery(values, updates.get(0).getID()));
+		for (Entry e : updates) {
+			int index = 1;
+			for (Value<?> v : e.getValues()) {
+				if (!v.getDBField().isPrimaryKey())
+					setParameter(ps, index++, v);
+			}
+			for (Value<?> v : e.getID()) {
+				setParameter(ps, index++, v);
+			}
+			ps.addBatch();
+		}
+		int[] counts = ps.executeBatch();
+		ps.close();
+		// some drivers do not return the batch update counts
+		List<Entry> unknown = new ArrayList<Entry>();
+		for (int i=0; i<counts.length; i++) {
+			if (counts[i] == 0)
+				inserts.add(updates.get(i));
+			else if (counts[i] == Statement.SUCCESS_NO_INFO)
+				unknown.add(updates.get(i));
+		}
+		if (!unknown.isEmpty())
+			findMissing(db, unknown, inserts);
+	}
+	
+	/**
+	 * Finds the entries that do not exist in the table
+	 * @param db Connection
+	 * @param entries Entries with the primary id
+	 * @param missing [Out] Entries that are not found
+	 * @throws SQLException
+	 */
+	private void findMissing(Connection db, List<Entry> entries, List<Entry> missing) throws SQLException {
+		StringBuilder query = new StringBuilder("SELECT 1 FROM ");
+		query.append(form.getQualifiedName()).append(" WHERE ");
+		List<Value<?>> id = entries.get(0).getID();
+		for (int i=0; i<id.size(); i++) {
+			if (i > 0)
+				query.append(" AND ");
+			query.append('"').append(id.get(i).getDBField().getName()).append("\" = ?");
+		}
+		
+		PreparedStatement ps = db.prepareStatement(query.toString());
+		ps.setMaxRows(1);
+		for (Entry e : entries) {
+			setParameters(ps, e);
+			ResultSet res = ps.executeQuery();
+			if (!res.next())
+				missing.add(e);
+			res.close();
+		}
+		ps.close();
+	}
+	
+	/**
+	 * Returns the INSERT statement for the columns
+	 * @param values Inserted values
+	 * @return Sql query
+	 */
+	protected String getInsertQuery(List<Value<?>> values) {
+		StringBuilder query = new StringBuilder("INSERT INTO ");
+		query.append(form.getQualifiedName()).append(" (");
+		for (int i=0; i<values.size(); i++) {
+			if (i > 0)
+				query.append(", ");
+			query.append('"').append(values.get(i).getDBField().getName()).append('"');
+		}
+		query.append(") VALUES (");
+		for (int i=0; i<values.size(); i++) {
+			query.append(i > 0 ? ", ?" : "?");
+		}
+		query.append(')');
+		return query.toString();
+	}
+	
+	/**
+	 * Returns the DELETE statement for the primary id
+	 * @param id Entry primary id
+	 * @return Sql query
+	 */
+	protected String getDeleteQuery(List<Value<?>> id) {
+		StringBuilder query = new StringBuilder("DELETE FROM ");
+		query.append(form.getQualifiedName()).append(" WHERE ");
+		for (int i=0; i<id.size(); i++) {
+			if (i > 0)
+				query.append(" AND ");
+			query.append('"').append(id.get(i).getDBField().getName()).append("\" = ?");
+		}
+		return query.toString();
+	}
+	
+	/**
+	 * Applies the operations in one transaction.
+	 * Sequential operations with the same statement are sent as one JDBC batch.
+	 * Updates set the values as is, without comparing with the stored ones.
+	 * @param operations Operations in the order of execution
+	 * @return Number of the affected rows for each operation,
+	 * can be {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver does not report it
+	 * @throws DatabaseOperationException
+	 */
+	public int[] execute(List<EntryOperation> operations) throws DatabaseOperationException {
+		int[] counts = new int[operations.size()];
+		if (operations.isEmpty())
+			return counts;
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			db.setAutoCommit(false);
+			
+			PreparedStatement ps = null;
+			String current = null;
+			int start = 0;
+			for (int i=0; i<operations.size(); i++) {
+				EntryOperation op = operations.get(i);
+				String query;
+				switch (op.getType()) {
+				case INSERT:
+					query = getInsertQuery(op.getValues());
+					break;
+				case UPDATE:
+					query = getUpdateQuery(op.getValues(), op.getID());
+					break;
+				default:
+					query = getDeleteQuery(op.getID());
+				}
+				if (!query.equals(current)) {
+					if (ps != null) {
+						executeBatch(ps, counts, start);
+						ps.close();
+					}
+					ps = db.prepareStatement(query);
+					current = query;
+					start = i;
+				}
+				int index = 1;
+				if (op.getType() != EntryOperation.Type.DELETE) {
+					for (Value<?> v : op.getValues()) {
+						setParameter(ps, index++, v);
+					}
+				}
+				if (op.getType() != EntryOperation.Type.INSERT) {
+					for (Value<?> v : op.getID()) {
+						setParameter(ps, index++, v);
+					}
+				}
+				ps.addBatch();
+			}
+			executeBatch(ps, counts, start);
+			ps.close();
+			db.commit();
+			DataVersion.increment(form);
+			return counts;
+		} catch (SQLException e1) {
+			System.err.println("ERROR: Unable to apply the batch: ");
+			e1.printStackTrace();
+			rollback(db);
+			throw new DatabaseOperationException("Unable to apply the batch: " + e1.getMessage(), e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	private static void executeBatch(PreparedStatement ps, int[] counts, int start) throws SQLException {
+		int[] res = ps.executeBatch();
+		System.arraycopy(res, 0, counts, start, res.length);
+	}
+	
+	/**
+	 * Creates the primary id values
+	 * @param values Values in the order of the primary id columns,
+	 * strings are converted to the column type
+	 * @return Primary id
+	 * @throws DatabaseOperationException If the value can not be converted
+	 */
+	public List<Value<?>> createID(List<?> values) throws DatabaseOperationException {
+		if (values.size() != formIds.length)
+			throw new DatabaseOperationException("Entry id should contain " 
+					+ formIds.length + " values.", null);
+		List<Value<?>> id = new ArrayList<Value<?>>(formIds.length);
+		for (int i=0; i<formIds.length; i++) {
+			id.add(toValue(getFieldByName(fields, formIds[i]), values.get(i)));
+		}
+		return id;
+	}
+	
+	private static Value<?> toValue(DBField field, Object value) throws DatabaseOperationException {
+		if (value == null)
+			return new Value<Object>(null, field);
+		String s = String.valueOf(value);
+		try {
+			switch (field.getDBType()) {
+			case java.sql.Types.TINYINT:
+			case java.sql.Types.SMALLINT:
+			case java.sql.Types.INTEGER:
+				return new Value<Integer>(Integer.valueOf(s), field);
+			case java.sql.Types.BIGINT:
+				return new Value<Long>(Long.valueOf(s), field);
+			case java.sql.Types.DECIMAL:
+			case java.sql.Types.NUMERIC:
+				return new Value<BigDecimal>(new BigDecimal(s), field);
+			case java.sql.Types.REAL:
+			case java.sql.Types.FLOAT:
+			case java.sql.Types.DOUBLE:
+				return new Value<Double>(Double.valueOf(s), field);
+			case java.sql.Types.DATE:
+				return new Value<Date>(Date.valueOf(s), field);
+			case java.sql.Types.TIME:
+				return new Value<Time>(Time.valueOf(s), field);
+			case java.sql.Types.TIMESTAMP:
+				return new Value<Timestamp>(Timestamp.valueOf(s), field);
+			default:
+				return new Value<String>(s, field);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new DatabaseOperationException("Wrong value of the column " 
+					+ field.getName() + ": " + s, e);
+		}
+	}
+	
+	private static boolean hasID(Entry e) {
+		if (e.getID().isEmpty())
+			return false;
+		for (Value<?> v : e.getID()) {
+			if (v.getValue() == null)
+				return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Delete entry
 	 * @param e - Entry with correct ID
@@ -634,11 +1615,10 @@ public class Database {
 				query += " AND ";
 		}
 
+		Connection db = null;
 		try {
 			// connect to the db
-			Connection db;
-			db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 			
 			PreparedStatement ps = db.prepareStatement(query);
 			// set qualification values
@@ -647,12 +1627,14 @@ public class Database {
 			ps.executeUpdate();
 			
 			ps.close();
-			db.close();
+			DataVersion.increment(form);
 			
 		} catch (SQLException e1) {
 			System.err.println("ERROR: Unable to delete entry: " + e1.getMessage());
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Unable to delete entry: " + e1.getMessage(), e1);
+		} finally {
+			close(db);
 		}
 	}
 
@@ -668,8 +1650,13 @@ public class Database {
 			DBModel model = new DBModel(form.getDBConnection()
 					.getConnectionString(), form.getDBConnection().getClassName());
 
-			List<DBField> fields = model.getFields(form.getCatalog(),
-					form.getTableName());
+			List<DBField> fields;
+			try {
+				fields = model.getFields(form.getCatalog(),
+						form.getTableName());
+			} finally {
+				model.close();
+			}
 
 			for (DBField field : fields) {
 				if (field.isPrimaryKey())
@@ -696,7 +1683,7 @@ public class Database {
 		return null;
 	}
 
-	private String[] getResultList(List<IField<?>> fields) {
+	private String[] getResultList(List<IFieldInfo<?>> fields) {
 		if (fields == null) {
 			String[] res = new String[form.getResultList().size()];
 			for (int i=0; i<res.length; i++) {
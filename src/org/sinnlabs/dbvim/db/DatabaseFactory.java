@@ -4,6 +4,7 @@
 package org.sinnlabs.dbvim.db;
 
 import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
@@ -15,6 +16,13 @@ import org.sinnlabs.dbvim.model.Form;
  */
 public class DatabaseFactory {
 	
+	/**
+	 * Shared database instances by the form name.
+	 * Instances are removed with the form resolvers, see {@link org.sinnlabs.dbvim.form.FormFieldResolverFactory}.
+	 */
+	private static final ConcurrentHashMap<String, Database> instances = 
+			new ConcurrentHashMap<String, Database>();
+	
 	public static Database createInstance(Form f, FormFieldResolver r) 
 			throws ClassNotFoundException, DatabaseOperationException, SQLException {
 		if (f.isJoin()) {
@@ -22,4 +30,40 @@ public class DatabaseFactory {
 		}
 		return new Database(f, r);
 	}
+	
+	/**
+	 * Returns the shared database instance for the form.
+	 * The instance does not change after the creation, so it can be used
+	 * by the concurrent requests. It is created again if the form resolver was refreshed.
+	 * @param f Form
+	 * @param r Current form resolver
+	 * @return Database instance
+	 * @throws ClassNotFoundException
+	 * @throws DatabaseOperationException
+	 * @throws SQLException
+	 */
+	public static Database getInstance(Form f, FormFieldResolver r) 
+			throws ClassNotFoundException, DatabaseOperationException, SQLException {
+		Database db = instances.get(f.getName());
+		if (db == null || db.resolver != r) {
+			db = createInstance(f, r);
+			instances.put(f.getName(), db);
+		}
+		return db;
+	}
+	
+	/**
+	 * Removes the shared database instance of the form
+	 * @param name Form name
+	 */
+	public static void remove(String name) {
+		instances.remove(name);
+	}
+	
+	/**
+	 * Removes all shared database instances
+	 */
+	public static void flush() {
+		instances.clear();
+	}
 }
@@ -3,15 +3,19 @@
  */
 package org.sinnlabs.dbvim.db;
 
+import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Objects;
 
+import org.apache.commons.lang3.StringUtils;
 import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
 import org.sinnlabs.dbvim.db.model.DBField;
 import org.sinnlabs.dbvim.evaluator.AbstractVariableSet;
@@ -20,7 +24,7 @@ import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
 import org.sinnlabs.dbvim.model.Form;
 import org.sinnlabs.dbvim.model.ResultColumn;
-import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 
 /**
  * Class that manages database operations for the join form.
@@ -79,7 +83,7 @@ public class DatabaseJoin extends Database {
 	}
 	
 	@Override
-	public List<Entry> queryAll(List<IField<?>> fields, int limit) throws DatabaseOperationException {
+	public List<Entry> queryAll(List<IFieldInfo<?>> fields, int limit) throws DatabaseOperationException {
 		// List of result fields.
 		// Add result list columns to select expression
 		List<DBField> resultFields = getPayloadFields(fields);
@@ -102,13 +106,15 @@ public class DatabaseJoin extends Database {
 			throw new DatabaseOperationException("Unable to build join query. " + e.getMessage(), e);
 		}
 
+		Connection db = null;
 		try {
 			// connect to the db
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 			
 			// prepare statement
 			PreparedStatement ps = db.prepareStatement(query);
+			if (limit > 0)
+				ps.setMaxRows(limit);
 			
 			// set query parameters
 			setParameters(ps, values);
@@ -120,17 +126,18 @@ public class DatabaseJoin extends Database {
 			res.close();
 			
 			ps.close();
-			db.close();
 			
 			return result;
 		} catch (SQLException e1) {
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Unable to query entry.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
 	@Override
-	public List<Entry> query(List<IField<?>> fields, List<Value<?>> condition, int limit) 
+	public List<Entry> query(List<IFieldInfo<?>> fields, List<Value<?>> condition, int limit) 
 			throws DatabaseOperationException {
 		// Add result list columns to select expression
 		List<DBField> resultFields = getPayloadFields(fields);
@@ -155,53 +162,17 @@ public class DatabaseJoin extends Database {
 		}
 		
 		// build where condition
-		query.query += " WHERE ";
-
-		// Walk through all condition values
-		for(int i=0; i<condition.size(); i++) {
-			// if condition value sets the left field
-			if (isDBFieldsContains(resolver.getLeftResolver().getDBFields(), 
-					condition.get(i).getDBField())) {
-				// build where qualification like: formAlias.{DBField Name|FieldAlias}
-				query.query += query.leftFormAlias + ".";
-				
-				// check if the field alias exists
-				String alias = leftAliases.get(condition.get(i).getDBField());
-				if (alias != null)
-					query.query += alias;
-				else
-					query.query += condition.get(i).getDBField().getName();
-				
-				query.query += " " + getOperator(condition.get(i).getDBField()) + " ?";
-			
-			// if condition value sets the right field
-			} else {
-				// same as for the left form
-				query.query += query.rightFormAlias + ".";
-				String alias = rightAliases.get(condition.get(i).getDBField());
-				if (alias != null)
-					query.query += alias;
-				else
-					query.query += condition.get(i).getDBField().getName(); 
-				
-				query.query += " " + getOperator(condition.get(i).getDBField()) + " ?";
-			}
-			// add value to the end of the condition values list
-			values.add(condition.get(i));
-			
-			// add AND to the query if the condition value is not last 
-			if ( i< condition.size()-1) {
-				query.query += " AND ";
-			}
-		} // end build where
+		query.query += " WHERE " + buildCondition(query, condition, leftAliases, rightAliases, values);
 		
+		Connection db = null;
 		try {
 			// connect to the db
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 			
 			// prepare statement
 			PreparedStatement ps = db.prepareStatement(query.query);
+			if (limit > 0)
+				ps.setMaxRows(limit);
 			
 			// set query parameters
 			setParameters(ps, values);
@@ -212,17 +183,18 @@ public class DatabaseJoin extends Database {
 			res.close();
 			
 			ps.close();
-			db.close();
 			
 			return result;
 		} catch (SQLException e1) {
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Unable to query entry.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
 	@Override
-	public List<Entry> query(List<IField<?>> fields, String query, 
+	public List<Entry> query(List<IFieldInfo<?>> fields, String query, 
 			int limit, AbstractVariableSet<Value<?>> context) throws ParseException, DatabaseOperationException {
 		// Add result list columns to select expression
 		List<DBField> resultFields = getPayloadFields(fields);
@@ -256,10 +228,74 @@ public class DatabaseJoin extends Database {
 		// Add where qualification to the end of the join query
 		joinQuery.query += dbCondition;
 		
+		Connection db = null;
+		try {
+			// connect to the db
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			
+			// prepare statement
+			PreparedStatement ps = db.prepareStatement(joinQuery.query);
+			if (limit > 0)
+				ps.setMaxRows(limit);
+			
+			// set query parameters
+			setParameters(ps, values);
+			
+			// execute query
+			ResultSet res = ps.executeQuery();
+			
+			List<Entry> result = readEntries(res, resultFields, aliases, limit);
+			res.close();
+			
+			ps.close();
+			
+			return result;
+		} catch (SQLException e1) {
+			e1.printStackTrace();
+			throw new DatabaseOperationException("Unable to query entry.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	@Override
+	public List<Entry> query(List<IFieldInfo<?>> fields, String query, int offset, 
+			int limit, AbstractVariableSet<Value<?>> context) throws ParseException, DatabaseOperationException {
+		// Add result list columns to select expression
+		List<DBField> resultFields = getPayloadFields(fields);
+		
+		// List of sorted values for join condition
+		// This values filled by the DatabaseConditionBuilder
+		List<Value<?>> values = new ArrayList<Value<?>>();
+
+		// result field aliases
+		HashMap<DBField, String> aliases = new HashMap<DBField, String>();
+		// left join sub query field aliases (select field alias, ...)
+		HashMap<DBField, String> leftAliases = new HashMap<DBField, String>();
+		// right join sub query field aliases
+		HashMap<DBField, String> rightAliases = new HashMap<DBField, String>();
+
+		JoinQuery joinQuery;
+		try {
+			joinQuery = buildJoinQuery(resultFields, aliases, values, leftAliases, rightAliases);
+		} catch (ParseException e) {
+			throw new DatabaseOperationException("Unable to build join query. " + e.getMessage(), e);
+		}
+		
+		String dbCondition = conditionBuilder.buildCondition(query, context, resolver, values, 
+				joinQuery.leftFormAlias, joinQuery.rightFormAlias, 
+				leftAliases, rightAliases, false);
+		if (!StringUtils.isBlank(dbCondition))
+			joinQuery.query += " WHERE " + dbCondition;
+		
+		// order by primary id aliases
+		joinQuery.query += getOrderBy(getIdAliases(aliases));
+		joinQuery.query += getPagingClause(form.getDBConnection(), offset, limit);
+		
+		Connection db = null;
 		try {
 			// connect to the db
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 			
 			// prepare statement
 			PreparedStatement ps = db.prepareStatement(joinQuery.query);
@@ -274,21 +310,91 @@ public class DatabaseJoin extends Database {
 			res.close();
 			
 			ps.close();
-			db.close();
 			
 			return result;
 		} catch (SQLException e1) {
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Unable to query entry.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	@Override
+	public int count(String query, AbstractVariableSet<Value<?>> context) 
+			throws ParseException, DatabaseOperationException {
+		// List of sorted values for join condition
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		
+		HashMap<DBField, String> aliases = new HashMap<DBField, String>();
+		HashMap<DBField, String> leftAliases = new HashMap<DBField, String>();
+		HashMap<DBField, String> rightAliases = new HashMap<DBField, String>();
+		
+		// select only primary id's
+		JoinQuery joinQuery;
+		try {
+			joinQuery = buildJoinQuery(new ArrayList<DBField>(), aliases, values, 
+					leftAliases, rightAliases);
+		} catch (ParseException e) {
+			throw new DatabaseOperationException("Unable to build join query. " + e.getMessage(), e);
+		}
+		
+		String dbCondition = conditionBuilder.buildCondition(query, context, resolver, values, 
+				joinQuery.leftFormAlias, joinQuery.rightFormAlias, 
+				leftAliases, rightAliases, false);
+		if (!StringUtils.isBlank(dbCondition))
+			joinQuery.query += " WHERE " + dbCondition;
+		
+		String dbQuery = "SELECT COUNT(*) FROM (" + joinQuery.query + ") c";
+		
+		Connection db = null;
+		try {
+			// connect to the db
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			
+			PreparedStatement ps = db.prepareStatement(dbQuery);
+			setParameters(ps, values);
+			
+			ResultSet res = ps.executeQuery();
+			int count = 0;
+			if (res.next())
+				count = res.getInt(1);
+			
+			res.close();
+			ps.close();
+			
+			return count;
+		} catch (SQLException e1) {
+			e1.printStackTrace();
+			throw new DatabaseOperationException("Unable to query entry.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
+	/**
+	 * Returns select aliases of the primary id's
+	 * @param aliases Select expression aliases
+	 * @return Array of the aliases
+	 */
+	private String[] getIdAliases(HashMap<DBField, String> aliases) {
+		String[] res = new String[leftId.size() + rightId.size()];
+		int i = 0;
+		for (DBField f : leftId) {
+			res[i++] = aliases.get(f);
+		}
+		for (DBField f : rightId) {
+			res[i++] = aliases.get(f);
+		}
+		return res;
+	}
+	
 	/**
 	 * Build pay load DBField list
 	 * @param fields payload fields
 	 * @return List of DBField
 	 */
-	private List<DBField> getPayloadFields(List<IField<?>> fields) {
+	private List<DBField> getPayloadFields(List<IFieldInfo<?>> fields) {
 		List<DBField> res = new ArrayList<DBField>();
 		// if payload fields not sepcified
 		if (fields == null) {
@@ -297,7 +403,7 @@ public class DatabaseJoin extends Database {
 				res.add(resolver.getFields().get(r.fieldName).getDBField());
 			}
 		} else {
-			for (IField<?> f : fields) {
+			for (IFieldInfo<?> f : fields) {
 				res.add(f.getDBField());
 			}
 		}
@@ -357,7 +463,7 @@ public class DatabaseJoin extends Database {
 		// Then add all fields from the condition.
 		// for example select t1.ID from f1 t1 inner join (select ID f2 from f2 t2) on t2.Name = t1.Name
 		// In this case we need to add the condition field t2.Name to the sub query select statement
-		for (IField<?> f : conditionBuilder.getConditionFields(form.getJoinClause(), 
+		for (IFieldInfo<?> f : conditionBuilder.getConditionFields(form.getJoinClause(), 
 				resolver, true)) {
 			selectFields.add(f.getDBField());
 		}
@@ -547,6 +653,397 @@ public class DatabaseJoin extends Database {
 		return false;
 	}
 	
+	/**
+	 * Builds the where condition from the condition values
+	 * @param query Join query
+	 * @param condition Condition values
+	 * @param leftAliases Left sub query aliases
+	 * @param rightAliases Right sub query aliases
+	 * @param values [Out] values list for prepared statement
+	 * @return Condition string
+	 */
+	private String buildCondition(JoinQuery query, List<Value<?>> condition, 
+			HashMap<DBField, String> leftAliases, HashMap<DBField, String> rightAliases, 
+			List<Value<?>> values) {
+		String res = "";
+
+		// Walk through all condition values
+		for(int i=0; i<condition.size(); i++) {
+			// if condition value sets the left field
+			if (isDBFieldsContains(resolver.getLeftResolver().getDBFields(), 
+					condition.get(i).getDBField())) {
+				// build where qualification like: formAlias.{DBField Name|FieldAlias}
+				res += query.leftFormAlias + ".";
+				
+				// check if the field alias exists
+				String alias = leftAliases.get(condition.get(i).getDBField());
+				if (alias != null)
+					res += alias;
+				else
+					res += condition.get(i).getDBField().getName();
+				
+				res += " " + getOperator(condition.get(i).getDBField()) + " ?";
+			
+			// if condition value sets the right field
+			} else {
+				// same as for the left form
+				res += query.rightFormAlias + ".";
+				String alias = rightAliases.get(condition.get(i).getDBField());
+				if (alias != null)
+					res += alias;
+				else
+					res += condition.get(i).getDBField().getName(); 
+				
+				res += " " + getOperator(condition.get(i).getDBField()) + " ?";
+			}
+			// add value to the end of the condition values list
+			values.add(condition.get(i));
+			
+			// add AND to the query if the condition value is not last 
+			if ( i< condition.size()-1) {
+				res += " AND ";
+			}
+		}
+		return res;
+	}
+	
+	@Override
+	public List<Entry> queryKeys(List<Value<?>> condition, String query, 
+			AbstractVariableSet<Value<?>> context, Entry after, int limit) 
+					throws ParseException, DatabaseOperationException {
+		// List of sorted values for join condition
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		
+		HashMap<DBField, String> aliases = new HashMap<DBField, String>();
+		HashMap<DBField, String> leftAliases = new HashMap<DBField, String>();
+		HashMap<DBField, String> rightAliases = new HashMap<DBField, String>();
+		
+		// select only primary id's
+		JoinQuery joinQuery;
+		try {
+			joinQuery = buildJoinQuery(new ArrayList<DBField>(), aliases, values, 
+					leftAliases, rightAliases);
+		} catch (ParseException e) {
+			throw new DatabaseOperationException("Unable to build join query. " + e.getMessage(), e);
+		}
+		
+		if (condition != null && condition.size() > 0) {
+			joinQuery.query += " WHERE " 
+					+ buildCondition(joinQuery, condition, leftAliases, rightAliases, values);
+		} else if (!StringUtils.isBlank(query)) {
+			String dbCondition = conditionBuilder.buildCondition(query, context, resolver, values, 
+					joinQuery.leftFormAlias, joinQuery.rightFormAlias, 
+					leftAliases, rightAliases, false);
+			if (!StringUtils.isBlank(dbCondition))
+				joinQuery.query += " WHERE " + dbCondition;
+		}
+		
+		// walk through the join result ordered by the primary id aliases
+		String[] ids = getIdAliases(aliases);
+		String dbQuery = "SELECT * FROM (" + joinQuery.query + ") k";
+		String keyset = getKeysetCondition(ids, after, values);
+		if (keyset != null)
+			dbQuery += " WHERE " + keyset;
+		dbQuery += getNullsFirstOrderBy(ids);
+		dbQuery += getPagingClause(form.getDBConnection(), 0, limit);
+		
+		Connection db = null;
+		try {
+			// connect to the db
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			
+			PreparedStatement ps = db.prepareStatement(dbQuery);
+			setParameters(ps, values);
+			
+			ResultSet res = ps.executeQuery();
+			
+			List<Entry> result = readEntries(res, new ArrayList<DBField>(), aliases, limit);
+			
+			res.close();
+			ps.close();
+			
+			return result;
+		} catch (SQLException e1) {
+			e1.printStackTrace();
+			throw new DatabaseOperationException("Unable to query entry.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	@Override
+	public int queryEach(List<IFieldInfo<?>> fields, List<Value<?>> condition, String query, 
+			AbstractVariableSet<Value<?>> context, List<SortField> sort, int offset, int limit, 
+			EntryHandler handler) throws ParseException, DatabaseOperationException, IOException {
+		// Add result list columns to select expression
+		List<DBField> resultFields = getPayloadFields(fields);
+		
+		// List of sorted values for join condition
+		List<Value<?>> values = new ArrayList<Value<?>>();
+		
+		HashMap<DBField, String> aliases = new HashMap<DBField, String>();
+		HashMap<DBField, String> leftAliases = new HashMap<DBField, String>();
+		HashMap<DBField, String> rightAliases = new HashMap<DBField, String>();
+		
+		JoinQuery joinQuery;
+		try {
+			joinQuery = buildJoinQuery(resultFields, aliases, values, leftAliases, rightAliases);
+		} catch (ParseException e) {
+			throw new DatabaseOperationException("Unable to build join query. " + e.getMessage(), e);
+		}
+		
+		if (condition != null && condition.size() > 0) {
+			joinQuery.query += " WHERE " 
+					+ buildCondition(joinQuery, condition, leftAliases, rightAliases, values);
+		} else if (!StringUtils.isBlank(query)) {
+			String dbCondition = conditionBuilder.buildCondition(query, context, resolver, values, 
+					joinQuery.leftFormAlias, joinQuery.rightFormAlias, 
+					leftAliases, rightAliases, false);
+			if (!StringUtils.isBlank(dbCondition))
+				joinQuery.query += " WHERE " + dbCondition;
+		}
+		joinQuery.query += getOrderBy(getSortAliases(sort, aliases), getIdAliases(aliases));
+		if (limit > 0 || offset > 0)
+			joinQuery.query += getPagingClause(form.getDBConnection(), offset, 
+					limit > 0 ? limit : Integer.MAX_VALUE);
+		
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(form.getDBConnection());
+			// some drivers use the cursor only inside of the transaction
+			db.setAutoCommit(false);
+			
+			PreparedStatement ps = db.prepareStatement(joinQuery.query, 
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(FETCH_SIZE);
+			setParameters(ps, values);
+			
+			ResultSet res = ps.executeQuery();
+			int count = 0;
+			// read the entries one by one
+			List<Entry> entries = readEntries(res, resultFields, aliases, 1);
+			while (!entries.isEmpty()) {
+				handler.handle(entries.get(0));
+				count++;
+				entries = readEntries(res, resultFields, aliases, 1);
+			}
+			
+			res.close();
+			ps.close();
+			db.commit();
+			
+			return count;
+		} catch (SQLException e1) {
+			e1.printStackTrace();
+			rollback(db);
+			throw new DatabaseOperationException("Unable to query entry.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Returns the sort columns of the join query.
+	 * Only the selected fields can be used for the sorting.
+	 * @param sort Sort order, can be null
+	 * @param aliases Aliases of the selected fields
+	 * @return Sort columns with the direction
+	 * @throws DatabaseOperationException
+	 */
+	private static String[] getSortAliases(List<SortField> sort, HashMap<DBField, String> aliases) 
+			throws DatabaseOperationException {
+		if (sort == null)
+			return null;
+		String[] res = new String[sort.size()];
+		for (int i=0; i<res.length; i++) {
+			String alias = aliases.get(sort.get(i).getField().getDBField());
+			if (alias == null)
+				throw new DatabaseOperationException("Sort field is not selected: " 
+						+ sort.get(i).getField().getId(), null);
+			res[i] = alias + (sort.get(i).isDescending() ? " DESC" : " ASC");
+		}
+		return res;
+	}
+	
+	/**
+	 * Returns ORDER BY clause that sorts null values first on every database,
+	 * the right form id's are null for the outer joins
+	 * @param columns Columns to order by
+	 * @return ORDER BY clause
+	 */
+	private static String getNullsFirstOrderBy(String[] columns) {
+		if (columns.length == 0)
+			return " ORDER BY 1";
+		String res = " ORDER BY ";
+		for (int i=0; i<columns.length; i++) {
+			res += "CASE WHEN " + columns[i] + " IS NULL THEN 0 ELSE 1 END, " + columns[i];
+			if (i<columns.length-1)
+				res += ", ";
+		}
+		return res;
+	}
+	
+	@Override
+	public void updateEntries(List<Entry> entries, List<Value<?>> values) 
+			throws DatabaseOperationException {
+		List<FormFieldResolver> bases = new ArrayList<FormFieldResolver>();
+		findBaseForms(resolver, bases);
+		
+		// base forms of the same database are updated in one transaction
+		LinkedHashMap<String, List<FormFieldResolver>> groups = 
+				new LinkedHashMap<String, List<FormFieldResolver>>();
+		for (FormFieldResolver r : bases) {
+			String url = r.getForm().getDBConnection().getConnectionString();
+			List<FormFieldResolver> group = groups.get(url);
+			if (group == null) {
+				group = new ArrayList<FormFieldResolver>();
+				groups.put(url, group);
+			}
+			group.add(r);
+		}
+		
+		List<String> committed = new ArrayList<String>();
+		for (List<FormFieldResolver> group : groups.values()) {
+			try {
+				updateRecords(entries, values, group);
+			} catch (DatabaseOperationException e) {
+				if (committed.isEmpty())
+					throw e;
+				// tables of the other databases can not be rolled back
+				throw new DatabaseOperationException("Unable to update entries. Changes of " 
+						+ StringUtils.join(committed, ", ") + " are committed.", e);
+			}
+			for (FormFieldResolver r : group) {
+				committed.add(r.getForm().getQualifiedName());
+			}
+		}
+	}
+	
+	/**
+	 * Finds the base (not join) forms of the join form
+	 * @param r Form resolver
+	 * @param bases [Out] Resolvers of the base forms
+	 */
+	private static void findBaseForms(FormFieldResolver r, List<FormFieldResolver> bases) {
+		if (r.getForm().isJoin()) {
+			/** RECURSION **/
+			findBaseForms(r.getLeftResolver(), bases);
+			findBaseForms(r.getRightResolver(), bases);
+		} else {
+			bases.add(r);
+		}
+	}
+	
+	/**
+	 * Updates the entries of the base forms sharing the database in one transaction
+	 * @param entries Join entries with the primary id values
+	 * @param values New field values
+	 * @param group Resolvers of the base forms with the same database connection
+	 * @throws DatabaseOperationException
+	 */
+	private void updateRecords(List<Entry> entries, List<Value<?>> values, 
+			List<FormFieldResolver> group) throws DatabaseOperationException {
+		Connection db = null;
+		try {
+			db = ConnectionPool.getConnection(group.get(0).getForm().getDBConnection());
+			db.setAutoCommit(false);
+			
+			List<Form> changed = new ArrayList<Form>();
+			for (FormFieldResolver r : group) {
+				if (updateRecords(db, entries, values, r))
+					changed.add(r.getForm());
+			}
+			db.commit();
+			
+			for (Form f : changed) {
+				DataVersion.increment(f);
+			}
+		} catch (SQLException e1) {
+			System.err.println("ERROR: Unable to update entries: ");
+			e1.printStackTrace();
+			rollback(db);
+			throw new DatabaseOperationException("Unable to update entries.", e1);
+		} finally {
+			close(db);
+		}
+	}
+	
+	/**
+	 * Updates the entries of the base form, the changes are not committed
+	 * @param db Connection
+	 * @param entries Join entries with the primary id values
+	 * @param values New field values
+	 * @param r Base form resolver
+	 * @return true if the form table has been updated
+	 * @throws SQLException
+	 */
+	private boolean updateRecords(Connection db, List<Entry> entries, List<Value<?>> values, 
+			FormFieldResolver r) throws SQLException {
+		// Get the form values
+		List<Value<?>> formValues = new ArrayList<Value<?>>();
+		for(Value<?> v : values) {
+			if (isDBFieldsContains(r.getDBFields(), v.getDBField())) {
+				formValues.add(v);
+			}
+		}
+		// If no form values found
+		if (formValues.isEmpty() || entries.isEmpty())
+			return false;
+		
+		// Find positions of the form primary id in the join entry id
+		List<Integer> idPos = new ArrayList<Integer>();
+		List<Value<?>> first = entries.get(0).getID();
+		for(int i=0; i<first.size(); i++) {
+			if (isDBFieldsContains(r.getDBFields(), first.get(i).getDBField())) {
+				idPos.add(i);
+			}
+		}
+		
+		// build update query
+		String query = "UPDATE " + r.getForm().getQualifiedName()
+				+ " SET ";
+		for (int i=0; i<formValues.size(); i++) {
+			query += "\"" + formValues.get(i).getDBField().getName() + "\" = ?";
+			if (i<formValues.size()-1)
+				query += ", ";
+			else
+				query += " ";
+		}
+		query += " WHERE ";
+		for(int i=0; i<idPos.size(); i++) {
+			query += "\"" + first.get(idPos.get(i)).getDBField().getName() + "\" = ?";
+			if (i<idPos.size()-1) {
+				query += " AND ";
+			}
+		}
+		
+		PreparedStatement ps = db.prepareStatement(query);
+		// the same form record can be joined to many records
+		HashSet<List<Object>> updated = new HashSet<List<Object>>();
+		for (Entry e : entries) {
+			List<Object> key = new ArrayList<Object>(idPos.size());
+			for (int p : idPos) {
+				key.add(e.getID().get(p).getValue());
+			}
+			// outer join entry without the form record
+			if (key.contains(null) || !updated.add(key))
+				continue;
+			
+			for(int i=0; i<formValues.size(); i++) {
+				setParameter(ps, i+1, formValues.get(i));
+			}
+			for(int i=0; i<idPos.size(); i++) {
+				setParameter(ps, formValues.size()+i+1, e.getID().get(idPos.get(i)));
+			}
+			ps.addBatch();
+		}
+		if (!updated.isEmpty())
+			ps.executeBatch();
+		
+		ps.close();
+		return true;
+	}
+	
 	private class SubQuery {
 		String query;
 		String alias;
@@ -563,7 +1060,7 @@ public class DatabaseJoin extends Database {
 	public Entry readEntry(Entry e) throws DatabaseOperationException {
 		List<DBField> resultFields = new ArrayList<DBField>();
 		// Add result list columns to select expression
-		for(IField<?> f : resolver.getFields().values()) {
+		for(IFieldInfo<?> f : resolver.getFields().values()) {
 			resultFields.add(f.getDBField());
 		}
 		// List of values for join condition
@@ -618,10 +1115,10 @@ public class DatabaseJoin extends Database {
 			}
 		}
 		
+		Connection db = null;
 		try {
 			// connect to the db
-			Connection db = DriverManager.getConnection(form.getDBConnection()
-					.getConnectionString());
+			db = ConnectionPool.getConnection(form.getDBConnection());
 			
 			// prepare statement
 			PreparedStatement ps = db.prepareStatement(query);
@@ -635,7 +1132,6 @@ public class DatabaseJoin extends Database {
 			
 			set.close();
 			ps.close();
-			db.close();
 			
 			if (entries.size() > 0)
 				return entries.get(0);
@@ -645,6 +1141,8 @@ public class DatabaseJoin extends Database {
 		} catch (SQLException e1) {
 			e1.printStackTrace();
 			throw new DatabaseOperationException("Error while executing sql query.", e1);
+		} finally {
+			close(db);
 		}
 	}
 	
@@ -688,14 +1186,17 @@ public class DatabaseJoin extends Database {
 			
 			// find updated values
 			List<Value<?>> newValues = new ArrayList<Value<?>>();
+			HashMap<String, Value<?>> oldValues = 
+					new HashMap<String, Value<?>>(e.getValues().size() * 2);
+			for(Value<?> ov : e.getValues()) {
+				oldValues.put(ov.getDBField().getFullName(), ov);
+			}
 			for(Value<?> nv : formValues) {
-				for(Value<?> ov : e.getValues()) {
-					// if new value is different
-					if (nv.getDBField().getFullName().equals(ov.getDBField().getFullName())
-							&& (ov.getValue() == null || !nv.getValue().equals(ov.getValue())) ) {
-						// add new value to the list
-						newValues.add(nv);
-					}
+				Value<?> ov = oldValues.get(nv.getDBField().getFullName());
+				// if new value is different
+				if (ov != null && !Objects.equals(nv.getValue(), ov.getValue())) {
+					// add new value to the list
+					newValues.add(nv);
 				}
 			}
 			
@@ -712,9 +1213,9 @@ public class DatabaseJoin extends Database {
 			}
 			
 			// Connect to the db
+			Connection db = null;
 			try {
-				Connection db = DriverManager.getConnection(r.getForm().getDBConnection()
-						.getConnectionString());
+				db = ConnectionPool.getConnection(r.getForm().getDBConnection());
 			
 				// build update query
 				String query = "UPDATE " + r.getForm().getQualifiedName()
@@ -747,8 +1248,8 @@ public class DatabaseJoin extends Database {
 					setParameter(ps, i+1, newValues.get(i));
 				}
 				// set qualification
-				for(int i=0; i<e.getID().size(); i++) {
-					setParameter(ps, newValues.size()+i+1, e.getID().get(i));
+				for(int i=0; i<id.size(); i++) {
+					setParameter(ps, newValues.size()+i+1, id.get(i));
 				}
 				
 				// Update entry:
@@ -756,21 +1257,45 @@ public class DatabaseJoin extends Database {
 				
 				//release resources
 				ps.close();
-				db.close();
+				DataVersion.increment(r.getForm());
 			} catch (SQLException e1) {
 				System.err.println("ERROR: Unable to update entry: ");
 				e1.printStackTrace();
 				throw new DatabaseOperationException("Unable to update entry.", e1);
+			} finally {
+				close(db);
 			}
 		}
 	}
 	
+	@Override
+	public long getDataVersion() {
+		return getDataVersion(resolver);
+	}
+	
+	private long getDataVersion(FormFieldResolver r) {
+		if (r.getForm().isJoin())
+			return getDataVersion(r.getLeftResolver()) + getDataVersion(r.getRightResolver());
+		return DataVersion.get(r.getForm());
+	}
+	
 	@Override
 	public void insertEntry(Entry e) throws DatabaseOperationException {
 		// it is not possible to add a new entry into a join form
 		throw new DatabaseOperationException("Operation not supported.", null);
 	}
 	
+	@Override
+	public void insertEntries(List<Entry> entries, boolean upsert) throws DatabaseOperationException {
+		// it is not possible to add new entries into a join form
+		throw new DatabaseOperationException("Operation not supported.", null);
+	}
+	
+	@Override
+	public int[] execute(List<EntryOperation> operations) throws DatabaseOperationException {
+		throw new DatabaseOperationException("Operation not supported.", null);
+	}
+	
 	/**
 	 * Reads entries from ResultSet
 	 * @param results - ResultSet contains row data
@@ -784,9 +1309,7 @@ public class DatabaseJoin extends Database {
 			HashMap<DBField, String> aliases, int limit) throws SQLException {
 		
 		List<Entry> entries = new ArrayList<Entry>();
-		int count = 0;
-		while (results.next()) {
-			count++;
+		while ((limit == 0 || entries.size() < limit) && results.next()) {
 			Entry entry = new Entry();
 			// read primary key
 			for (DBField f : leftId) {
@@ -803,9 +1326,6 @@ public class DatabaseJoin extends Database {
 						getColumnValue(results, f, aliases.get(f)));
 			}
 			entries.add(entry);
-			
-			if (limit != 0 && count > limit)
-				break;
 		}
 		return entries;
 	}
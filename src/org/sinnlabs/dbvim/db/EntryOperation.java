@@ -0,0 +1,40 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Insert, update or delete of one entry applied by {@link Database#execute(List)}
+ * @author peter.liverovsky
+ *
+ */
+public class EntryOperation {
+	
+	public enum Type { INSERT, UPDATE, DELETE }
+	
+	private Type type;
+	
+	private List<Value<?>> id;
+	
+	private List<Value<?>> values;
+	
+	/**
+	 * @param type Operation type
+	 * @param id Entry primary id, not used by the insert
+	 * @param values Field values, not used by the delete
+	 */
+	public EntryOperation(Type type, List<Value<?>> id, List<Value<?>> values) {
+		this.type = type;
+		this.id = id != null ? id : new ArrayList<Value<?>>();
+		this.values = values != null ? values : new ArrayList<Value<?>>();
+	}
+	
+	public Type getType() { return type; }
+	
+	public List<Value<?>> getID() { return id; }
+	
+	public List<Value<?>> getValues() { return values; }
+}
@@ -0,0 +1,31 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.db;
+
+import org.sinnlabs.dbvim.ui.IFieldInfo;
+
+/**
+ * Describes the query sort order by one field
+ * @author peter.liverovsky
+ *
+ */
+public class SortField {
+	
+	private IFieldInfo<?> field;
+	
+	private boolean descending;
+	
+	/**
+	 * @param field Field to sort by
+	 * @param descending Descending sort order
+	 */
+	public SortField(IFieldInfo<?> field, boolean descending) {
+		this.field = field;
+		this.descending = descending;
+	}
+	
+	public IFieldInfo<?> getField() { return field; }
+	
+	public boolean isDescending() { return descending; }
+}
@@ -25,6 +25,19 @@ public class DBModel {
 		jdbc = DriverManager.getConnection(connectionString);
 	}
 	
+	/**
+	 * Closes the model connection
+	 */
+	public void close() {
+		try {
+			if (jdbc != null)
+				jdbc.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		jdbc = null;
+	}
+	
 	public List<DBTable> getTables() throws SQLException {
 		ArrayList<DBTable> list = new ArrayList<DBTable>();
 		
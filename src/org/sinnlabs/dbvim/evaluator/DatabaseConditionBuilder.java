@@ -16,6 +16,7 @@ import org.sinnlabs.dbvim.db.model.DBField;
 import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
 import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 
 /**
  *  An evaluator that is able to evaluate boolean expressions on field values.
@@ -177,13 +178,13 @@ public class DatabaseConditionBuilder {
 	 * @param expression Condition expression
 	 * @param resolver FormFieldResolver for the form
 	 * @param isJoinClause indicates that condition is a join qualification
-	 * @return List of IField
+	 * @return List of IFieldInfo
 	 * @throws ParseException
 	 */
-	public List<IField<?>> getConditionFields(String expression, FormFieldResolver resolver,
+	public List<IFieldInfo<?>> getConditionFields(String expression, FormFieldResolver resolver,
 			boolean isJoinClause) throws ParseException {
 		
-		List<IField<?>> fields = new ArrayList<IField<?>>();
+		List<IFieldInfo<?>> fields = new ArrayList<IFieldInfo<?>>();
 		
 		final Iterator<String> tokens = tokenize(expression);
 		Token previous = null;
@@ -198,6 +199,28 @@ public class DatabaseConditionBuilder {
 		return fields;
 	}
 	
+	/**
+	 * Returns names of all variables ($name$) that contains in the condition
+	 * @param expression Condition expression
+	 * @return List of variable names
+	 * @throws ParseException
+	 */
+	public List<String> getVariableNames(String expression) throws ParseException {
+		List<String> names = new ArrayList<String>();
+		if (expression == null)
+			return names;
+		
+		final Iterator<String> tokens = tokenize(expression);
+		while (tokens.hasNext()) {
+			String token = tokens.next();
+			if (token.length() > 1 && token.startsWith("$") && token.endsWith("$") 
+					&& !NULL.getName().equals(token) && !names.contains(token)) {
+				names.add(token);
+			}
+		}
+		return names;
+	}
+	
 	public String buildCondition(String expression, AbstractVariableSet<Value<?>> environment, 
 			FormFieldResolver resolver, List<Value<?>> sorted) throws ParseException {
 		return buildCondition(expression, environment, 
@@ -411,7 +434,7 @@ public class DatabaseConditionBuilder {
 		return null;
 	}
 	
-	protected Value<?> convert(String s, IField<?> field) {
+	protected Value<?> convert(String s, IFieldInfo<?> field) {
 		return field.fromString(s);
 	}
 	
@@ -443,21 +466,21 @@ public class DatabaseConditionBuilder {
 			} else if (token.startsWith("'") && token.endsWith("'")) {
 				// it can be basic form field or left join form field
 				String fname = token.substring(1, token.length()-1);
-				Collection<IField<?>> fields = null;
+				Collection<IFieldInfo<?>> fields = null;
 				// if it is join condition, we need resolve fields separately for each form
 				if (isJoinClause)
 					fields = resolver.getLeftResolver().getFields().values();
 				else
 					fields = resolver.getFields().values();
 				
-				for (IField<?> f : fields) {
+				for (IFieldInfo<?> f : fields) {
 					if (f.getId().equals(fname))
 						return Token.buildFieldToken(f);
 				}
 				throw new IllegalArgumentException("Field not found: " + fname);
 			} else if (token.startsWith("`") && token.endsWith("`")) {
 				String fname = token.substring(1, token.length()-1);
-				for (IField<?> f : resolver.getRightResolver().getFields().values()) {
+				for (IFieldInfo<?> f : resolver.getRightResolver().getFields().values()) {
 					if (f.getId().equals(fname))
 						return Token.buildJoinFieldToken(f);
 				}
@@ -519,4 +542,28 @@ public class DatabaseConditionBuilder {
 		}
 		return variables;
 	}
+	
+	/**
+	 * Builds variables from the fields used by the expression.
+	 * The values are copied, so the variables can be read outside of the UI thread.
+	 * @param fields List of fields
+	 * @param names Variable names of the expression, see {@link #getVariableNames(String)}
+	 * @return
+	 */
+	public static AbstractVariableSet<Value<?>> buildVariablesFromFields(List<IField<?>> fields, 
+			List<String> names) {
+		StaticVariableSet<Value<?>> variables = new StaticVariableSet<Value<?>>();
+		for(IField<?> f : fields) {
+			String name = "$" + f.getId() + "$";
+			if (!names.contains(name))
+				continue;
+			Value<?> v = f.getDBValue();
+			Object val = v.getValue();
+			// dates are mutable, do not share them with the component
+			if (val instanceof java.util.Date)
+				val = ((java.util.Date) val).clone();
+			variables.set(name, new Value<Object>(val, v.getDBField()));
+		}
+		return variables;
+	}
 }
@@ -1,6 +1,6 @@
 package org.sinnlabs.dbvim.evaluator;
 
-import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 
 /** A token.
  * <br>When evaluating an expression, it is first split into tokens.
@@ -43,11 +43,11 @@ public class Token {
 		return new Token(Kind.CLOSE_BRACKET, pair);
 	}
 	
-	static Token buildFieldToken(IField<?> field) {
+	static Token buildFieldToken(IFieldInfo<?> field) {
 		return new Token(Kind.FIELD, field);
 	}
 	
-	static Token buildJoinFieldToken(IField<?> field) {
+	static Token buildJoinFieldToken(IFieldInfo<?> field) {
 		return new Token(Kind.JOIN_FIELD, field);
 	}
 
@@ -74,8 +74,8 @@ public class Token {
 		return (Function) this.content;
 	}
 	
-	IField<?> getField() {
-		return (IField<?>) this.content;
+	IFieldInfo<?> getField() {
+		return (IFieldInfo<?>) this.content;
 	}
 
 	Kind getKind() {
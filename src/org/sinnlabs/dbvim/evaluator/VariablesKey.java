@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.evaluator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.sinnlabs.dbvim.db.Value;
+
+/**
+ * Immutable snapshot of the variable values used by the condition.
+ * Can be used as a cache key for the query results.
+ * @author peter.liverovsky
+ *
+ */
+public final class VariablesKey {
+	
+	private final String[] names;
+	
+	private final Object[] values;
+	
+	private final int hash;
+	
+	/**
+	 * Creates the key
+	 * @param names Variable names used by the condition. 
+	 * See {@link DatabaseConditionBuilder#getVariableNames(String)}
+	 * @param variables Variable values
+	 */
+	public VariablesKey(List<String> names, AbstractVariableSet<Value<?>> variables) {
+		this.names = names.toArray(new String[names.size()]);
+		values = new Object[this.names.length];
+		for (int i=0; i<this.names.length; i++) {
+			Value<?> v = variables == null ? null : variables.get(this.names[i]);
+			if (v != null)
+				values[i] = v.getValue();
+		}
+		hash = 31 * Arrays.hashCode(this.names) + Arrays.hashCode(values);
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof VariablesKey))
+			return false;
+		VariablesKey other = (VariablesKey) obj;
+		return hash == other.hash && Arrays.equals(names, other.names) 
+				&& Arrays.equals(values, other.values);
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.form;
+
+import org.sinnlabs.dbvim.ui.db.FieldType;
+
+/**
+ * Immutable description of the form field read from the form view
+ * @author peter.liverovsky
+ *
+ */
+public class FieldDescriptor {
+	
+	private final String id;
+	
+	private final String mapping;
+	
+	private final String form;
+	
+	private final String type;
+	
+	private final String menu;
+	
+	private final String label;
+	
+	private final boolean displayOnly;
+	
+	/**
+	 * @param id Field id
+	 * @param mapping DB field mapping
+	 * @param form Join form name or null for the basic form
+	 * @param type Field component class name
+	 * @param menu Attached menu name or null
+	 * @param label Field label or null if it is not set in the view
+	 * @param displayOnly Display only flag
+	 */
+	public FieldDescriptor(String id, String mapping, String form, String type, 
+			String menu, String label, boolean displayOnly) {
+		this.id = id;
+		this.mapping = mapping;
+		this.form = form;
+		this.type = type;
+		this.menu = menu;
+		this.label = label;
+		this.displayOnly = displayOnly;
+	}
+	
+	public String getId() { return id; }
+	
+	public String getMapping() { return mapping; }
+	
+	public String getForm() { return form; }
+	
+	/**
+	 * Returns field component class name
+	 */
+	public String getType() { return type; }
+	
+	public String getMenu() { return menu; }
+	
+	/**
+	 * Returns field type
+	 */
+	public FieldType<?> getFieldType() {
+		return FieldType.forField(type);
+	}
+	
+	/**
+	 * Returns field label, the component default if the label is not set
+	 */
+	public String getLabel() {
+		return label != null ? label : getFieldType().getDefaultLabel();
+	}
+	
+	public boolean isDisplayOnly() { return displayOnly; }
+}
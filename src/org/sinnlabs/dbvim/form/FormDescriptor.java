@@ -0,0 +1,117 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.form;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.sinnlabs.dbvim.ui.IField;
+import org.zkoss.idom.Document;
+import org.zkoss.idom.Element;
+import org.zkoss.idom.Item;
+import org.zkoss.idom.input.SAXBuilder;
+import org.zkoss.lang.Classes;
+import org.zkoss.zk.ui.metainfo.ComponentDefinition;
+import org.zkoss.zk.ui.metainfo.LanguageDefinition;
+
+/**
+ * Form fields compiled from the form view (ZUML).
+ * The view is parsed as XML, the field components are not created,
+ * so the descriptor can be built outside of the ZK execution.
+ * @author peter.liverovsky
+ *
+ */
+public class FormDescriptor {
+	
+	private static final String LANGUAGE = "xul/html";
+	
+	/**
+	 * Component classes by the tag name. 
+	 * Null class is stored as Object.class
+	 */
+	private static final ConcurrentHashMap<String, Class<?>> classes = 
+			new ConcurrentHashMap<String, Class<?>>();
+	
+	private final List<FieldDescriptor> fields;
+	
+	private FormDescriptor(List<FieldDescriptor> fields) {
+		this.fields = Collections.unmodifiableList(fields);
+	}
+	
+	/**
+	 * Returns form fields in the view order
+	 * @return List of FieldDescriptor
+	 */
+	public List<FieldDescriptor> getFields() {
+		return fields;
+	}
+	
+	/**
+	 * Compiles the form view
+	 * @param zuml Form view
+	 * @return FormDescriptor
+	 * @throws Exception
+	 */
+	public static FormDescriptor compile(String zuml) throws Exception {
+		List<FieldDescriptor> fields = new ArrayList<FieldDescriptor>();
+		if (StringUtils.isNotBlank(zuml)) {
+			Document doc = new SAXBuilder(false, false, true).build(new StringReader(zuml));
+			readElement(doc.getRootElement(), fields);
+		}
+		return new FormDescriptor(fields);
+	}
+	
+	/**
+	 * Recursively find all IFields elements
+	 * @param e root element
+	 * @param fields found fields
+	 * @throws ClassNotFoundException 
+	 */
+	private static void readElement(Element e, List<FieldDescriptor> fields) 
+			throws ClassNotFoundException {
+		if (e == null)
+			return;
+		
+		Class<?> cls = getComponentClass(e.getName());
+		if (IField.class.isAssignableFrom(cls)) {
+			String id = e.getAttribute("id");
+			fields.add(new FieldDescriptor(id != null ? id : "", 
+					e.getAttribute("mapping"), 
+					e.getAttribute("form"), 
+					cls.getName(), 
+					e.getAttribute("menu"), 
+					e.getAttribute("label"), 
+					Boolean.parseBoolean(e.getAttribute("displayOnly"))));
+		}
+		
+		for (Item i : e.getChildren()) {
+			/** RECURSION **/
+			if (i instanceof Element)
+				readElement((Element) i, fields);
+		}
+	}
+	
+	private static Class<?> getComponentClass(String tag) throws ClassNotFoundException {
+		Class<?> cls = classes.get(tag);
+		if (cls != null)
+			return cls;
+		
+		cls = Object.class;
+		LanguageDefinition lang = LanguageDefinition.lookup(LANGUAGE);
+		if (lang.hasComponentDefinition(tag)) {
+			ComponentDefinition def = lang.getComponentDefinition(tag);
+			Object impl = def.getImplementationClass();
+			if (impl instanceof Class)
+				cls = (Class<?>) impl;
+			else if (impl instanceof String)
+				cls = Classes.forNameByThread((String) impl);
+		}
+		classes.putIfAbsent(tag, cls);
+		return cls;
+	}
+}
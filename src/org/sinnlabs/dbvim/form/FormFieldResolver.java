@@ -11,10 +11,7 @@ import java.util.List;
 import org.sinnlabs.dbvim.db.model.DBField;
 import org.sinnlabs.dbvim.db.model.DBModel;
 import org.sinnlabs.dbvim.model.Form;
-import org.sinnlabs.dbvim.ui.IField;
-import org.zkoss.zk.ui.Component;
-import org.zkoss.zk.ui.Executions;
-import org.zkoss.zul.Idspace;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 
 /**
  * Used to resolve field mapping to DBField
@@ -25,11 +22,9 @@ public class FormFieldResolver {
 	
 	private Form form;
 	
-	private Idspace root;
+	private FormDescriptor descriptor;
 	
-	private HashMap<String, IField<?>> fields;
-	
-	private DBModel dbModel;
+	private HashMap<String, IFieldInfo<?>> fields;
 	
 	private FormFieldResolver leftResolver;
 	
@@ -41,11 +36,7 @@ public class FormFieldResolver {
 	/*package*/ FormFieldResolver(Form form) throws Exception {
 		this.form = form;
 		
-		dbModel = new DBModel(form.getDBConnection().getConnectionString(), 
-				form.getDBConnection().getClassName());
-		
-		root = new Idspace();
-		fields = new HashMap<String, IField<?>>();
+		fields = new HashMap<String, IFieldInfo<?>>();
 		
 		if (form.isJoin()) {
 			leftResolver = FormFieldResolverFactory.getResolver(form.getLeftForm());
@@ -53,11 +44,14 @@ public class FormFieldResolver {
 		}
 		dbFields = findAllDBFields();
 		
-		HashMap<String, Object> args = new HashMap<String, Object>();
-		args.put("resolver", this);
-		
-		Executions.createComponentsDirectly(form.getView(), null, root, args);
-		readChildren(root);
+		// the view is compiled without creating the components
+		descriptor = FormDescriptor.compile(form.getView());
+		for (FieldDescriptor d : descriptor.getFields()) {
+			DBField f = null;
+			if (!d.isDisplayOnly())
+				f = getFieldByMapping(d.getForm(), d.getMapping());
+			fields.put(d.getId(), new ResolvedField(d, f));
+		}
 	}
 	
 	public FormFieldResolver getLeftResolver() {
@@ -72,11 +66,18 @@ public class FormFieldResolver {
 		return form;
 	}
 	
+	/**
+	 * Returns compiled form view
+	 */
+	public FormDescriptor getDescriptor() {
+		return descriptor;
+	}
+	
 	/**
 	 * Returns fields
-	 * @return HashMap Key - field id, value - IField object
+	 * @return HashMap Key - field id, value - IFieldInfo object
 	 */
-	public HashMap<String, IField<?>> getFields() {
+	public HashMap<String, IFieldInfo<?>> getFields() {
 		return fields;
 	}
 	
@@ -92,42 +93,16 @@ public class FormFieldResolver {
 	/**
 	 * Find field on form by DBField
 	 * @param f DBField to find
-	 * @return IField or null
+	 * @return IFieldInfo or null
 	 */
-	public IField<?> findByDBField(DBField f) {
-		for(IField<?> field : fields.values()) {
+	public IFieldInfo<?> findByDBField(DBField f) {
+		for(IFieldInfo<?> field : fields.values()) {
 			if (field.getDBField().getFullName().equals(f.getFullName()))
 				return field;
 		}
 		return null;
 	}
 	
-	/**
-	 * Recursively find all IFields components
-	 * @param c root Component
-	 * @throws Exception 
-	 */
-	private void readChildren(Component c) throws Exception {
-		List<Component> children = c.getChildren();
-		if (children == null)
-			return;
-		
-		HashMap<String, Object> args = new HashMap<String, Object>();
-		args.put("resolver", this);
-		
-		for(Component t : children) {
-			if (t instanceof IField<?>) {
-				IField<?> field = (IField<?>)t;
-				// onCreate event is not raised, because components are not attached to any page
-				// We must call it manually
-				field.onCreate(args);
-				fields.put(field.getId(), field);
-			}
-			/** RECURSION **/
-			readChildren(t);
-		}
-	}
-	
 	/**
 	 * Return DBField by mapping.
 	 * @param formName Form name or null when form is a basic form
@@ -154,14 +129,21 @@ public class FormFieldResolver {
 		throw new IllegalArgumentException("DBField can not be found: " + formName + " " + map);
 	}
 	
-	private List<DBField> findAllDBFields() throws SQLException {
+	private List<DBField> findAllDBFields() throws SQLException, ClassNotFoundException {
 		if (form.isJoin()) {
 			List<DBField> fields = new ArrayList<DBField>();
 			fields.addAll(leftResolver.getDBFields());
 			fields.addAll(rightResolver.getDBFields());
 			return fields;
 		} else {
-			return dbModel.getFields(form.getCatalog(), form.getTableName());
+			// the metadata connection is not kept by the resolver
+			DBModel dbModel = new DBModel(form.getDBConnection().getConnectionString(), 
+					form.getDBConnection().getClassName());
+			try {
+				return dbModel.getFields(form.getCatalog(), form.getTableName());
+			} finally {
+				dbModel.close();
+			}
 		}
 	}
 }
@@ -3,20 +3,76 @@
  */
 package org.sinnlabs.dbvim.form;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang3.StringUtils;
+
+import org.sinnlabs.dbvim.db.DatabaseFactory;
 import org.sinnlabs.dbvim.model.Form;
+import org.zkoss.lang.Library;
 
 /**
+ * Application wide cache of the form field resolvers.
+ * Each resolver is built once by the first caller, other callers 
+ * for the same form wait for the result, callers for other forms are not blocked.
+ * The cache is bounded, least recently used resolvers are evicted.
+ * The resolver is built again if the form version is newer than the cached one.
  * @author peter.liverovsky
  *
  */
 public class FormFieldResolverFactory {
 	
-	private final static ConcurrentHashMap<String, FormFieldResolver> cache;
+	/**
+	 * Library property for the maximum number of the cached resolvers
+	 */
+	public static final String CACHE_SIZE_PROPERTY = "org.sinnlabs.dbvim.form.cacheSize";
+	
+	/**
+	 * Default maximum number of the cached resolvers
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 200;
+	
+	/**
+	 * Maximum number of the threads used to warm up the cache
+	 */
+	private static final int WARM_UP_THREADS = 4;
+	
+	private final static ConcurrentHashMap<String, CacheEntry> cache;
+	
+	/**
+	 * Resolvers being refreshed. The old resolver is served until the new one is built.
+	 */
+	private final static ConcurrentHashMap<String, Future<FormFieldResolver>> refreshing;
+
+	private static final AtomicLong hits = new AtomicLong();
+	
+	private static final AtomicLong misses = new AtomicLong();
+	
+	private static final AtomicLong evictions = new AtomicLong();
+	
+	private static final AtomicLong loads = new AtomicLong();
+	
+	/**
+	 * Total load time in nanoseconds
+	 */
+	private static final AtomicLong loadTime = new AtomicLong();
+	
+	private static volatile int maxSize = -1;
 
 	static {
-		cache = new ConcurrentHashMap<String, FormFieldResolver>();
+		cache = new ConcurrentHashMap<String, CacheEntry>();
+		refreshing = new ConcurrentHashMap<String, Future<FormFieldResolver>>();
 	}
 	
 	/**
@@ -26,21 +82,79 @@ public class FormFieldResolverFactory {
 	 * @throws Exception
 	 */
 	public static FormFieldResolver getResolver(Form f) throws Exception {
-		if (!cache.containsKey(f.getName())) {
-			synchronized(cache) {
-				// second check with lock
-				if (!cache.containsKey(f.getName())) {
-					FormFieldResolver r = new FormFieldResolver(f);
-					cache.put(f.getName(), r);
-					return r;
-				}
-				return cache.get(f.getName());
+		CacheEntry entry;
+		for (;;) {
+			entry = cache.get(f.getName());
+			// the form saved on another node is reloaded by the registry with the newer version,
+			// callers holding the older form get the newer resolver
+			if (entry != null && entry.version >= f.getVersion()) {
+				hits.incrementAndGet();
+				break;
 			}
-		} else {
-			return cache.get(f.getName());
+			FutureTask<FormFieldResolver> task = newTask(f);
+			CacheEntry created = new CacheEntry(task, f.getVersion());
+			boolean added = entry == null ? cache.putIfAbsent(f.getName(), created) == null
+					: cache.replace(f.getName(), entry, created);
+			if (added) {
+				// this thread builds the resolver
+				misses.incrementAndGet();
+				entry = created;
+				task.run();
+				evict();
+				break;
+			}
+			// the entry has been changed by another thread, check it again
+		}
+		entry.lastAccess = System.nanoTime();
+		try {
+			return entry.future.get();
+		} catch (ExecutionException e) {
+			// remove failed build, so the next caller can try again
+			cache.remove(f.getName(), entry);
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
 		}
 	}
 	
+	/**
+	 * Builds resolvers for the forms in parallel.
+	 * The method does not wait for the resolvers.
+	 * @param forms Forms to be resolved
+	 */
+	public static void warmUp(final List<Form> forms) {
+		if (forms == null || forms.isEmpty())
+			return;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(WARM_UP_THREADS, forms.size()), new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "dbvim-warmup");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		for (final Form f : forms) {
+			executor.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					try {
+						getResolver(f);
+					} catch (Exception e) {
+						System.err.println("Unable to resolve form " + f.getName() + ": " + e.getMessage());
+						e.printStackTrace();
+					}
+					return null;
+				}
+			});
+		}
+		// threads stop after the submitted forms are resolved
+		executor.shutdown();
+	}
+	
 	/**
 	 * Returns cached forms count
 	 * @return
@@ -49,31 +163,193 @@ public class FormFieldResolverFactory {
 		return cache.size();
 	}
 	
+	/**
+	 * Returns maximum number of the cached forms
+	 */
+	public static int getMaxCacheSize() {
+		int size = maxSize;
+		if (size < 0) {
+			size = DEFAULT_CACHE_SIZE;
+			String prop = Library.getProperty(CACHE_SIZE_PROPERTY);
+			if (StringUtils.isNotBlank(prop)) {
+				try {
+					size = Integer.parseInt(prop.trim());
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid " + CACHE_SIZE_PROPERTY + " value: " + prop);
+				}
+			}
+			maxSize = size;
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns number of the cache hits
+	 */
+	public static long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Returns number of the cache misses
+	 */
+	public static long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * Returns number of the evicted resolvers
+	 */
+	public static long getEvictions() {
+		return evictions.get();
+	}
+	
+	/**
+	 * Returns average resolver load time in milliseconds
+	 */
+	public static long getAverageLoadTime() {
+		long n = loads.get();
+		if (n == 0)
+			return 0;
+		return TimeUnit.NANOSECONDS.toMillis(loadTime.get() / n);
+	}
+	
 	/**
 	 * Flush forms cache
 	 */
 	public static void flushCache() {
-		synchronized(cache) {
-			cache.clear();
+		cache.clear();
+		DatabaseFactory.flush();
+	}
+	
+	/**
+	 * Removes the resolver and the shared database instance of the form
+	 * @param name Form name
+	 */
+	public static void remove(String name) {
+		cache.remove(name);
+		DatabaseFactory.remove(name);
+	}
+	
+	/**
+	 * Removes least recently used resolvers while the cache exceeds the maximum size
+	 */
+	private static void evict() {
+		int max = getMaxCacheSize();
+		if (max <= 0)
+			return;
+		while (cache.size() > max) {
+			Map.Entry<String, CacheEntry> eldest = null;
+			for (Map.Entry<String, CacheEntry> e : cache.entrySet()) {
+				// do not evict the resolvers being built
+				if (!e.getValue().future.isDone())
+					continue;
+				if (eldest == null || e.getValue().lastAccess < eldest.getValue().lastAccess)
+					eldest = e;
+			}
+			if (eldest == null)
+				return;
+			if (cache.remove(eldest.getKey(), eldest.getValue())) {
+				DatabaseFactory.remove(eldest.getKey());
+				evictions.incrementAndGet();
+			}
 		}
 	}
 	
 	/**
-	 * Refresh cached form field resolver
+	 * Refresh cached form field resolver.
+	 * The cached resolver is used by other threads until the new one is built.
 	 * @param f form to be refreshed
 	 * @return true if entry exists in cache, otherwise false
 	 * @throws Exception
 	 */
 	public static boolean refreshItem(Form f) throws Exception {
-		if (cache.containsKey(f.getName())) {
-			synchronized (cache) {
-				if (cache.containsKey(f.getName())) {
-					FormFieldResolver r = new FormFieldResolver(f);
-					cache.replace(f.getName(), r);
-					return true;
-				}
+		if (!cache.containsKey(f.getName()))
+			return false;
+		
+		Future<FormFieldResolver> future = refreshing.get(f.getName());
+		FutureTask<FormFieldResolver> task = null;
+		if (future == null) {
+			task = newTask(f);
+			future = refreshing.putIfAbsent(f.getName(), task);
+			if (future == null)
+				future = task;
+			else
+				task = null;
+		}
+		if (task != null) {
+			try {
+				task.run();
+				FormFieldResolver r = getResult(refreshing, f.getName(), task);
+				FutureTask<FormFieldResolver> done = newTask(r);
+				done.run();
+				// the entry can be flushed while refreshing
+				if (cache.replace(f.getName(), new CacheEntry(done, f.getVersion())) == null)
+					return false;
+			} finally {
+				refreshing.remove(f.getName(), task);
 			}
+		} else {
+			getResult(refreshing, f.getName(), future);
+		}
+		return true;
+	}
+	
+	private static FutureTask<FormFieldResolver> newTask(final Form f) {
+		return new FutureTask<FormFieldResolver>(new Callable<FormFieldResolver>() {
+
+			@Override
+			public FormFieldResolver call() throws Exception {
+				long start = System.nanoTime();
+				FormFieldResolver r = new FormFieldResolver(f);
+				loads.incrementAndGet();
+				loadTime.addAndGet(System.nanoTime() - start);
+				return r;
+			}
+		});
+	}
+	
+	private static FutureTask<FormFieldResolver> newTask(final FormFieldResolver r) {
+		return new FutureTask<FormFieldResolver>(new Callable<FormFieldResolver>() {
+
+			@Override
+			public FormFieldResolver call() {
+				return r;
+			}
+		});
+	}
+	
+	/**
+	 * Waits for the resolver. Failed builds are removed from the map
+	 * so the next caller can try again.
+	 */
+	private static FormFieldResolver getResult(ConcurrentHashMap<String, Future<FormFieldResolver>> map,
+			String name, Future<FormFieldResolver> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			map.remove(name, future);
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+	
+	private static final class CacheEntry {
+		
+		final Future<FormFieldResolver> future;
+		
+		/**
+		 * Version of the form the resolver is built for
+		 */
+		final long version;
+		
+		volatile long lastAccess;
+		
+		CacheEntry(Future<FormFieldResolver> future, long version) {
+			this.future = future;
+			this.version = version;
+			lastAccess = System.nanoTime();
 		}
-		return false;
 	}
 }
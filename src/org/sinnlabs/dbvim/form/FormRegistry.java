@@ -0,0 +1,154 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.form;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sinnlabs.dbvim.config.ConfigLoader;
+import org.sinnlabs.dbvim.model.Form;
+
+import com.j256.ormlite.dao.Dao;
+
+/**
+ * Application wide registry of the form definitions.
+ * Forms are loaded from the configuration database once and served from memory.
+ * Forms saved on other nodes are detected by the throttled version check.
+ * @author peter.liverovsky
+ *
+ */
+public class FormRegistry {
+	
+	/**
+	 * Minimum interval between the configuration database version checks
+	 */
+	private static final long CHECK_INTERVAL = 5000;
+	
+	private static final ConcurrentHashMap<String, Form> forms = 
+			new ConcurrentHashMap<String, Form>();
+	
+	/**
+	 * Registry version. Incremented on each invalidation.
+	 */
+	private static final AtomicLong version = new AtomicLong();
+	
+	/**
+	 * Last seen forms count and maximum form version
+	 */
+	private static volatile String[] stored;
+	
+	private static volatile long lastCheck;
+	
+	/**
+	 * Returns the form by name
+	 * @param name Form name
+	 * @return Form or null if form does not exist
+	 * @throws SQLException
+	 */
+	public static Form getForm(String name) throws SQLException {
+		checkVersion();
+		Form f = forms.get(name);
+		if (f == null) {
+			long v = version.get();
+			f = ConfigLoader.getInstance().getForms().queryForId(name);
+			if (f == null)
+				return null;
+			Form prev = forms.putIfAbsent(name, f);
+			if (prev != null)
+				return prev;
+			// form has been changed while loading
+			if (version.get() != v)
+				forms.remove(name, f);
+		}
+		return f;
+	}
+	
+	/**
+	 * Saves the form and invalidates the registry entry
+	 * @param f Form to be saved
+	 * @throws SQLException
+	 */
+	public static void save(Form f) throws SQLException {
+		// the result list can be changed in place
+		f.updateResultColumns();
+		f.setVersion(Math.max(f.getVersion() + 1, System.currentTimeMillis()));
+		ConfigLoader.getInstance().getForms().createOrUpdate(f);
+		invalidate(f.getName());
+	}
+	
+	/**
+	 * Deletes the form and invalidates the registry entry
+	 * @param f Form to be deleted
+	 * @throws SQLException
+	 */
+	public static void delete(Form f) throws SQLException {
+		ConfigLoader.getInstance().getForms().delete(f);
+		invalidate(f.getName());
+		FormFieldResolverFactory.remove(f.getName());
+	}
+	
+	/**
+	 * Removes the form from the registry.
+	 * Join forms can reference the form, so all forms are reloaded.
+	 * @param name Form name
+	 */
+	public static void invalidate(String name) {
+		version.incrementAndGet();
+		forms.clear();
+	}
+	
+	/**
+	 * Returns registry version. The version is changed
+	 * each time the registry is invalidated.
+	 */
+	public static long getVersion() {
+		return version.get();
+	}
+	
+	/**
+	 * Returns number of the loaded forms
+	 */
+	public static int getSize() {
+		return forms.size();
+	}
+	
+	/**
+	 * Checks if forms have been changed by another node.
+	 * The check is one aggregate query and runs at most once per check interval.
+	 * @return true if the forms have been changed, otherwise false
+	 */
+	public static boolean checkVersion() {
+		long now = System.currentTimeMillis();
+		if (now - lastCheck < CHECK_INTERVAL)
+			return false;
+		lastCheck = now;
+		
+		String[] current;
+		try {
+			current = queryVersion();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		}
+		String[] last = stored;
+		stored = current;
+		if (last != null && !Arrays.equals(last, current)) {
+			invalidate(null);
+			return true;
+		}
+		return false;
+	}
+	
+	private static String[] queryVersion() throws SQLException {
+		Dao<Form, String> dao = ConfigLoader.getInstance().getForms();
+		StringBuilder table = new StringBuilder();
+		StringBuilder column = new StringBuilder();
+		dao.getConnectionSource().getDatabaseType().appendEscapedEntityName(table, Form.TABLE_NAME);
+		dao.getConnectionSource().getDatabaseType().appendEscapedEntityName(column, 
+				Form.VERSION_FIELD_NAME);
+		return dao.queryRaw("SELECT COUNT(*), MAX(" + column + ") FROM " + table).getFirstResult();
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.form;
+
+import org.sinnlabs.dbvim.db.Value;
+import org.sinnlabs.dbvim.db.model.DBField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
+import org.sinnlabs.dbvim.ui.db.FieldType;
+
+/**
+ * Immutable form field used by the data layer.
+ * Converts values by the field component type,
+ * but does not hold any value or UI state.
+ * @author peter.liverovsky
+ *
+ */
+public class ResolvedField implements IFieldInfo<Object> {
+	
+	private final FieldDescriptor descriptor;
+	
+	private final DBField dbField;
+	
+	private final FieldType<Object> type;
+	
+	@SuppressWarnings("unchecked")
+	public ResolvedField(FieldDescriptor descriptor, DBField dbField) {
+		this.descriptor = descriptor;
+		this.dbField = dbField;
+		// values of the field are returned as objects
+		this.type = (FieldType<Object>) descriptor.getFieldType();
+	}
+	
+	/**
+	 * Returns field descriptor
+	 */
+	public FieldDescriptor getDescriptor() {
+		return descriptor;
+	}
+
+	@Override
+	public DBField getDBField() {
+		return dbField;
+	}
+
+	@Override
+	public String getMapping() {
+		return descriptor.getMapping();
+	}
+
+	@Override
+	public String getForm() {
+		return descriptor.getForm();
+	}
+
+	@Override
+	public String getId() {
+		return descriptor.getId();
+	}
+
+	@Override
+	public String getLabel() {
+		return descriptor.getLabel();
+	}
+
+	@Override
+	public boolean isDisplayOnly() {
+		return descriptor.isDisplayOnly();
+	}
+
+	@Override
+	public Value<Object> fromString(String string) {
+		return type.fromString(string, dbField);
+	}
+
+	@Override
+	public Value<Object> fromObject(Object val) {
+		return type.fromObject(val, dbField);
+	}
+}
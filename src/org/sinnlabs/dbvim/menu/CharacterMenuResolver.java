@@ -4,82 +4,97 @@
 package org.sinnlabs.dbvim.menu;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.sinnlabs.dbvim.model.CharacterMenu;
 import org.sinnlabs.dbvim.model.CharacterMenuItem;
 
 /**
+ * Character menu resolver.
+ * Menu items are sorted and indexed once when the resolver is created,
+ * the resolver is immutable and shared by the {@link MenuRegistry}.
  * @author peter.liverovsky
  *
  */
 public class CharacterMenuResolver implements MenuResolver {
 	
-	private CharacterMenu menu;
+	private static final Comparator<CharacterMenuItem> ORDER_COMPARATOR = 
+			new Comparator<CharacterMenuItem>() {
+
+		@Override
+		public int compare(CharacterMenuItem o1, CharacterMenuItem o2) {
+			return o1.getOrder() < o2.getOrder() ? -1 : (o1.getOrder() == o2.getOrder() ? 0 : 1);
+		}
+	};
 	
-	public CharacterMenuResolver(CharacterMenu menu) {
-		this.menu = menu;
-	}
+	private final MenuItems items;
 	
-	/* (non-Javadoc)
-	 * @see org.sinnlabs.dbvim.menu.MenuResolver#getItems()
-	 */
-	@Override
-	public List<MenuItem> getItems() throws Exception {
-		List<MenuItem> items = new ArrayList<MenuItem>();
+	public CharacterMenuResolver(CharacterMenu menu) {
 		List<CharacterMenuItem> sorted = new ArrayList<CharacterMenuItem>();
+		if (menu.getItems() != null)
+			sorted.addAll(menu.getItems());
 		
 		/** Sort menu items by order **/
-		for(CharacterMenuItem i : menu.getItems()) {
-			boolean added = false;
-			for(int k=0; k<sorted.size(); k++) {
-				if (i.getOrder() < sorted.get(k).getOrder()) {
-					sorted.add(k, i);
-					added = true;
-				}
-			}
-			if (!added)
-				sorted.add(i);
-		}
+		Collections.sort(sorted, ORDER_COMPARATOR);
 		
 		/** Convert CharacterMenu to MenuItem list **/
+		List<MenuItem> list = new ArrayList<MenuItem>(sorted.size());
 		for(CharacterMenuItem i : sorted) {
 			MenuItem item = new MenuItem();
 			item.setLabel(i.getLabel());
 			item.setValue(i.getValue());
-			items.add(item);
+			list.add(item);
 		}
-		return items;
+		items = new MenuItems(list, 0, 0);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.sinnlabs.dbvim.menu.MenuResolver#getItems()
+	 */
+	@Override
+	public List<MenuItem> getItems() {
+		return items.getItems();
 	}
 
 	/* (non-Javadoc)
-	 * @see org.sinnlabs.dbvim.menu.MenuResolver#byLabel(java.lang.Object)
+	 * @see org.sinnlabs.dbvim.menu.MenuResolver#getItems(java.lang.String)
 	 */
 	@Override
-	public MenuItem byLabel(Object label) throws Exception {
-		List<MenuItem> menuItems = this.getItems();
-		
-		for (MenuItem i : menuItems) {
-			if (i.getLabel().equals(label)) {
-				return i;
-			}
+	public List<MenuItem> getItems(String prefix) {
+		if (prefix == null)
+			return items.getItems();
+		List<MenuItem> list = new ArrayList<MenuItem>();
+		for (MenuItem i : items.getItems()) {
+			if (i.getLabel() != null && i.getLabel().toString().startsWith(prefix))
+				list.add(i);
 		}
-		return null;
+		return list;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.sinnlabs.dbvim.menu.MenuResolver#isTypeahead()
+	 */
+	@Override
+	public boolean isTypeahead() {
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sinnlabs.dbvim.menu.MenuResolver#byLabel(java.lang.Object)
+	 */
+	@Override
+	public MenuItem byLabel(Object label) {
+		return items.byLabel(label);
 	}
 
 	/* (non-Javadoc)
 	 * @see org.sinnlabs.dbvim.menu.MenuResolver#byValue(java.lang.Object)
 	 */
 	@Override
-	public MenuItem byValue(Object value) throws Exception {
-		List<MenuItem> menuItems = this.getItems();
-		
-		for (MenuItem i : menuItems) {
-			if (i.getValue().equals(value)) {
-				return i;
-			}
-		}
-		return null;
+	public MenuItem byValue(Object value) {
+		return items.byValue(value);
 	}
 
 }
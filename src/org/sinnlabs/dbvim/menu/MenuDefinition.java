@@ -0,0 +1,30 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.menu;
+
+import org.sinnlabs.dbvim.zk.model.IFormComposer;
+
+/**
+ * Compiled menu definition shared by all users.
+ * The definition is bound to the form composer to get the menu resolver.
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ interface MenuDefinition {
+
+	/**
+	 * Returns menu resolver for the form composer
+	 * @param composer Current form composer
+	 * @return MenuResolver instance
+	 * @throws Exception
+	 */
+	public MenuResolver bind(IFormComposer composer) throws Exception;
+	
+	/**
+	 * Indicates that the definition is outdated and should be compiled again
+	 * @return true if the definition is outdated, otherwise false
+	 * @throws Exception
+	 */
+	public boolean isStale() throws Exception;
+}
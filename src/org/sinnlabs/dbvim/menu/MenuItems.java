@@ -0,0 +1,64 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.menu;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable list of menu items indexed by label and value
+ * @author peter.liverovsky
+ *
+ */
+public class MenuItems {
+	
+	private final List<MenuItem> items;
+	
+	private final Map<Object, MenuItem> labels;
+	
+	private final Map<Object, MenuItem> values;
+	
+	private final long created;
+	
+	private final long generation;
+	
+	private final long dataVersion;
+	
+	/**
+	 * Creates the list
+	 * @param items Menu items
+	 * @param generation Cache generation the list was loaded in
+	 * @param dataVersion Version of the menu form data
+	 */
+	public MenuItems(List<MenuItem> items, long generation, long dataVersion) {
+		this.items = Collections.unmodifiableList(new ArrayList<MenuItem>(items));
+		labels = new HashMap<Object, MenuItem>(items.size() * 2);
+		values = new HashMap<Object, MenuItem>(items.size() * 2);
+		for (MenuItem i : items) {
+			// the first item wins, the same way as the linear search did
+			if (!labels.containsKey(i.getLabel()))
+				labels.put(i.getLabel(), i);
+			if (!values.containsKey(i.getValue()))
+				values.put(i.getValue(), i);
+		}
+		created = System.currentTimeMillis();
+		this.generation = generation;
+		this.dataVersion = dataVersion;
+	}
+	
+	public List<MenuItem> getItems() { return items; }
+	
+	public MenuItem byLabel(Object label) { return labels.get(label); }
+	
+	public MenuItem byValue(Object value) { return values.get(value); }
+	
+	public long getCreated() { return created; }
+	
+	public long getGeneration() { return generation; }
+	
+	public long getDataVersion() { return dataVersion; }
+}
@@ -0,0 +1,211 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.menu;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sinnlabs.dbvim.evaluator.VariablesKey;
+import org.sinnlabs.dbvim.model.SearchMenu;
+import org.zkoss.zk.ui.Session;
+import org.zkoss.zk.ui.Sessions;
+
+/**
+ * Shared cache for the search menu items.
+ * Items are cached by the menu name and the resolved qualification variables.
+ * Application scoped items are shared by all users, session scoped items are
+ * kept in the user session. Each cache is bounded by {@link #MAX_ENTRIES},
+ * the oldest lists are removed first.
+ * @author peter.liverovsky
+ *
+ */
+public class MenuItemsCache {
+	
+	/**
+	 * Session attribute for the session scoped items
+	 */
+	private static final String SESSION_ATTRIBUTE = "org.sinnlabs.dbvim.menu.MenuItemsCache";
+	
+	/**
+	 * Maximum number of the item lists in one cache.
+	 * Menus with the record variables in the qualification cache a list for each record.
+	 */
+	public static final int MAX_ENTRIES = 1000;
+	
+	private static final ConcurrentMap<Key, MenuItems> application = 
+			new ConcurrentHashMap<Key, MenuItems>();
+	
+	/**
+	 * Cache generation. Incremented on each invalidation, 
+	 * items loaded in older generations are not used.
+	 */
+	private static final AtomicLong generation = new AtomicLong();
+	
+	/**
+	 * Returns the cached items
+	 * @param menu Search menu
+	 * @param variables Resolved qualification variables
+	 * @return Cached items or null if the items are not cached
+	 */
+	public static MenuItems get(SearchMenu menu, VariablesKey variables) {
+		ConcurrentMap<Key, MenuItems> cache = getCache(menu);
+		if (cache == null)
+			return null;
+		Key key = new Key(menu.getName(), variables);
+		MenuItems items = cache.get(key);
+		if (items == null)
+			return null;
+		if (items.getGeneration() != generation.get() || isExpired(menu, items)) {
+			cache.remove(key, items);
+			return null;
+		}
+		return items;
+	}
+	
+	/**
+	 * Puts the items to the cache
+	 * @param menu Search menu
+	 * @param variables Resolved qualification variables
+	 * @param items Menu items
+	 */
+	public static void put(SearchMenu menu, VariablesKey variables, MenuItems items) {
+		ConcurrentMap<Key, MenuItems> cache = getCache(menu);
+		if (cache == null)
+			return;
+		cache.put(new Key(menu.getName(), variables), items);
+		if (cache.size() > MAX_ENTRIES)
+			trim(cache);
+	}
+	
+	/**
+	 * Returns current cache generation
+	 * @return generation number
+	 */
+	public static long getGeneration() {
+		return generation.get();
+	}
+	
+	/**
+	 * Removes all cached items of the menu
+	 * @param menuName Menu name
+	 */
+	public static void invalidate(String menuName) {
+		// session scoped items of other users are dropped by the generation check
+		generation.incrementAndGet();
+		Iterator<Key> it = application.keySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().menu.equals(menuName))
+				it.remove();
+		}
+	}
+	
+	/**
+	 * Removes all cached items
+	 */
+	public static void flush() {
+		generation.incrementAndGet();
+		application.clear();
+	}
+	
+	/**
+	 * Returns number of the application scoped item lists
+	 * @return Cache size
+	 */
+	public static int getSize() {
+		return application.size();
+	}
+	
+	/**
+	 * Removes the lists of the older generations, then the oldest lists
+	 * until the cache is reduced to 3/4 of the maximum size
+	 */
+	private static void trim(ConcurrentMap<Key, MenuItems> cache) {
+		long current = generation.get();
+		List<Map.Entry<Key, MenuItems>> entries = new ArrayList<Map.Entry<Key, MenuItems>>();
+		for (Map.Entry<Key, MenuItems> e : cache.entrySet()) {
+			if (e.getValue().getGeneration() != current)
+				cache.remove(e.getKey(), e.getValue());
+			else
+				entries.add(e);
+		}
+		int excess = entries.size() - MAX_ENTRIES * 3 / 4;
+		if (excess <= 0)
+			return;
+		Collections.sort(entries, new Comparator<Map.Entry<Key, MenuItems>>() {
+
+			@Override
+			public int compare(Map.Entry<Key, MenuItems> o1, Map.Entry<Key, MenuItems> o2) {
+				long c1 = o1.getValue().getCreated();
+				long c2 = o2.getValue().getCreated();
+				return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+			}
+		});
+		for (int i=0; i<excess; i++) {
+			cache.remove(entries.get(i).getKey(), entries.get(i).getValue());
+		}
+	}
+	
+	private static boolean isExpired(SearchMenu menu, MenuItems items) {
+		if (menu.getRefreshPolicy() == SearchMenu.REFRESH_APPLICATION) {
+			int timeout = menu.getCacheTimeout() > 0 ? menu.getCacheTimeout() 
+					: SearchMenu.DEFAULT_CACHE_TIMEOUT;
+			return System.currentTimeMillis() - items.getCreated() > timeout * 1000L;
+		}
+		return false;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static ConcurrentMap<Key, MenuItems> getCache(SearchMenu menu) {
+		switch (menu.getRefreshPolicy()) {
+		case SearchMenu.REFRESH_APPLICATION:
+		case SearchMenu.REFRESH_MANUAL:
+			return application;
+		case SearchMenu.REFRESH_SESSION:
+			Session session = Sessions.getCurrent();
+			if (session == null)
+				return null;
+			synchronized (session) {
+				Object cache = session.getAttribute(SESSION_ATTRIBUTE);
+				if (cache == null) {
+					cache = new ConcurrentHashMap<Key, MenuItems>();
+					session.setAttribute(SESSION_ATTRIBUTE, cache);
+				}
+				return (ConcurrentMap<Key, MenuItems>) cache;
+			}
+		default:
+			// refresh on open, the items are not cached
+			return null;
+		}
+	}
+	
+	private static final class Key {
+		final String menu;
+		final VariablesKey variables;
+		
+		Key(String menu, VariablesKey variables) {
+			this.menu = menu;
+			this.variables = variables;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * menu.hashCode() + variables.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return menu.equals(other.menu) && variables.equals(other.variables);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.menu;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sinnlabs.dbvim.config.ConfigLoader;
+import org.sinnlabs.dbvim.model.CharacterMenu;
+import org.sinnlabs.dbvim.model.SearchMenu;
+import org.sinnlabs.dbvim.zk.model.IFormComposer;
+
+/**
+ * Application wide registry of the compiled menu definitions.
+ * Menus are loaded once by the name and shared by all sessions,
+ * only the menu resolver is created for the each form composer.
+ * @author peter.liverovsky
+ *
+ */
+public class MenuRegistry {
+	
+	private static final ConcurrentMap<String, MenuDefinition> menus = 
+			new ConcurrentHashMap<String, MenuDefinition>();
+	
+	/**
+	 * Registry version. Incremented on each invalidation,
+	 * definitions loaded in older versions are not registered.
+	 */
+	private static final AtomicLong version = new AtomicLong();
+	
+	/**
+	 * Returns Menu resolver instance
+	 * @param menuName Menu name to be resolved
+	 * @param composer Current form composer
+	 * @return MenuResolver instance or null if menu not found
+	 * @throws Exception
+	 */
+	public static MenuResolver getMenuResolver(String menuName, IFormComposer composer) throws Exception {
+		MenuDefinition def = menus.get(menuName);
+		if (def == null || def.isStale()) {
+			long v = version.get();
+			MenuDefinition loaded = load(menuName);
+			if (loaded == null)
+				return null;
+			if (def == null) {
+				def = menus.putIfAbsent(menuName, loaded);
+				if (def == null)
+					def = loaded;
+			} else {
+				menus.replace(menuName, def, loaded);
+				def = loaded;
+			}
+			// menu has been changed while loading
+			if (version.get() != v)
+				menus.remove(menuName, loaded);
+		}
+		return def.bind(composer);
+	}
+	
+	/**
+	 * Removes the menu definition from the registry.
+	 * Should be called after the menu is saved.
+	 * @param menuName Menu name
+	 */
+	public static void invalidate(String menuName) {
+		version.incrementAndGet();
+		menus.remove(menuName);
+	}
+	
+	/**
+	 * Removes all menu definitions
+	 */
+	public static void flush() {
+		version.incrementAndGet();
+		menus.clear();
+	}
+	
+	/**
+	 * Returns number of the registered menus
+	 * @return Registry size
+	 */
+	public static int getSize() {
+		return menus.size();
+	}
+	
+	private static MenuDefinition load(String menuName) throws Exception {
+		// check search menus
+		SearchMenu sm = ConfigLoader.getInstance().getSearchMenus().queryForId(menuName);
+		if (sm != null) {
+			return new SearchMenuDefinition(sm);
+		}
+		CharacterMenu cm = ConfigLoader.getInstance().getCharacterMenu().queryForId(menuName);
+		if (cm != null) {
+			final CharacterMenuResolver resolver = new CharacterMenuResolver(cm);
+			return new MenuDefinition() {
+
+				@Override
+				public MenuResolver bind(IFormComposer composer) {
+					// character menus do not depend on the form
+					return resolver;
+				}
+
+				@Override
+				public boolean isStale() {
+					return false;
+				}
+			};
+		}
+		return null;
+	}
+}
@@ -19,6 +19,21 @@ public interface MenuResolver {
 	 */
 	public List<MenuItem> getItems() throws Exception;
 	
+	/**
+	 * Returns menu items which labels start with the prefix.
+	 * Number of the items can be limited by the resolver.
+	 * @param prefix Label prefix
+	 * @return
+	 * @throws Exception
+	 */
+	public List<MenuItem> getItems(String prefix) throws Exception;
+	
+	/**
+	 * Indicates that the menu items should be requested by the typed prefix
+	 * @return true if the menu is a typeahead menu, otherwise false
+	 */
+	public boolean isTypeahead();
+	
 	/**
 	 * Gets MenuItem by label
 	 * @param label Label to be searched
@@ -6,8 +6,6 @@ package org.sinnlabs.dbvim.menu;
 import java.sql.SQLException;
 
 import org.sinnlabs.dbvim.config.ConfigLoader;
-import org.sinnlabs.dbvim.model.CharacterMenu;
-import org.sinnlabs.dbvim.model.SearchMenu;
 import org.sinnlabs.dbvim.zk.model.IFormComposer;
 
 /**
@@ -18,23 +16,15 @@ import org.sinnlabs.dbvim.zk.model.IFormComposer;
 public class MenuResolverFactory {
 
 	/**
-	 * Returns Menu resolver instance
+	 * Returns Menu resolver instance.
+	 * Menu definitions are taken from the {@link MenuRegistry}.
 	 * @param menuName Menu name to be resolved
 	 * @param composer Current form composer
 	 * @return MenuResolver instance or null if menu not found
 	 * @throws Exception
 	 */
 	public static MenuResolver getMenuResolver(String menuName, IFormComposer composer) throws Exception {
-		// check search menus
-		SearchMenu sm = ConfigLoader.getInstance().getSearchMenus().queryForId(menuName);
-		if (sm != null) {
-			return new SearchMenuResolver(sm, composer);
-		}
-		CharacterMenu cm = ConfigLoader.getInstance().getCharacterMenu().queryForId(menuName);
-		if (cm != null) {
-			return new CharacterMenuResolver(cm);
-		}
-		return null;
+		return MenuRegistry.getMenuResolver(menuName, composer);
 	}
 	
 	/**
@@ -0,0 +1,58 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.menu;
+
+import java.util.List;
+
+import org.sinnlabs.dbvim.db.Database;
+import org.sinnlabs.dbvim.db.DatabaseFactory;
+import org.sinnlabs.dbvim.evaluator.DatabaseConditionBuilder;
+import org.sinnlabs.dbvim.form.FormFieldResolver;
+import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.model.SearchMenu;
+import org.sinnlabs.dbvim.zk.model.IFormComposer;
+
+/**
+ * Compiled search menu. Holds the menu form resolver, 
+ * the database and the qualification variables.
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ class SearchMenuDefinition implements MenuDefinition {
+	
+	private final SearchMenu menu;
+	
+	private final FormFieldResolver resolver;
+	
+	private final Database db;
+	
+	private final List<String> variableNames;
+	
+	public SearchMenuDefinition(SearchMenu menu) throws Exception {
+		this.menu = menu;
+		resolver = FormFieldResolverFactory.getResolver(menu.getForm());
+		db = DatabaseFactory.createInstance(menu.getForm(), resolver);
+		String qualification = menu.getQualification() != null ? menu.getQualification() : "";
+		variableNames = new DatabaseConditionBuilder().getVariableNames(qualification);
+	}
+	
+	public SearchMenu getMenu() { return menu; }
+	
+	public FormFieldResolver getResolver() { return resolver; }
+	
+	public Database getDatabase() { return db; }
+	
+	public List<String> getVariableNames() { return variableNames; }
+
+	@Override
+	public MenuResolver bind(IFormComposer composer) {
+		return new SearchMenuResolver(this, composer);
+	}
+
+	@Override
+	public boolean isStale() throws Exception {
+		// the menu form has been refreshed
+		return FormFieldResolverFactory.getResolver(menu.getForm()) != resolver;
+	}
+}
@@ -6,18 +6,19 @@ package org.sinnlabs.dbvim.menu;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang3.StringUtils;
 import org.sinnlabs.dbvim.db.Database;
-import org.sinnlabs.dbvim.db.DatabaseFactory;
 import org.sinnlabs.dbvim.db.Entry;
 import org.sinnlabs.dbvim.db.Value;
 import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
+import org.sinnlabs.dbvim.db.model.DBField;
 import org.sinnlabs.dbvim.evaluator.AbstractVariableSet;
 import org.sinnlabs.dbvim.evaluator.DatabaseConditionBuilder;
+import org.sinnlabs.dbvim.evaluator.VariablesKey;
 import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
-import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
 import org.sinnlabs.dbvim.model.SearchMenu;
-import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 import org.sinnlabs.dbvim.zk.model.IFormComposer;
 
 /**
@@ -26,6 +27,11 @@ import org.sinnlabs.dbvim.zk.model.IFormComposer;
  */
 public class SearchMenuResolver implements MenuResolver {
 	
+	/**
+	 * Variable for the typeahead label prefix and label or value lookups
+	 */
+	private static final String MATCH_VARIABLE = "$__match__$";
+	
 	private FormFieldResolver resolver;
 	
 	private SearchMenu menu;
@@ -33,43 +39,39 @@ public class SearchMenuResolver implements MenuResolver {
 	private Database db;
 	
 	private IFormComposer composer;
+	
+	/**
+	 * Variables used by the menu qualification
+	 */
+	private List<String> variableNames;
 
 	public SearchMenuResolver(SearchMenu menu, IFormComposer composer) throws Exception {
-		this.menu = menu;
-		resolver = FormFieldResolverFactory.getResolver(menu.getForm());
-		db = DatabaseFactory.createInstance(menu.getForm(), resolver);
+		this(new SearchMenuDefinition(menu), composer);
+	}
+	
+	/**
+	 * Binds the shared menu definition to the form composer
+	 * @param definition Compiled search menu
+	 * @param composer Current form composer
+	 */
+	/*package*/ SearchMenuResolver(SearchMenuDefinition definition, IFormComposer composer) {
+		menu = definition.getMenu();
+		resolver = definition.getResolver();
+		db = definition.getDatabase();
+		variableNames = definition.getVariableNames();
 		this.composer = composer;
 	}
 	
 	/**
-	 * Returns menu items
+	 * Returns menu items.
+	 * The items are loaded according to the menu refresh policy.
 	 * @return
 	 * @throws ParseException
 	 * @throws DatabaseOperationException
 	 */
 	public List<MenuItem> getItems() 
 			throws ParseException, DatabaseOperationException {
-		
-		List<MenuItem> items = new ArrayList<MenuItem>();
-		if (db != null && composer != null) {
-			AbstractVariableSet<Value<?>> vars = 
-					DatabaseConditionBuilder.buildVariablesFromFields(composer.getFields());
-			
-			List<IField<?>> fields = new ArrayList<IField<?>>(2);
-			fields.add(resolver.getFields().get(menu.getLabelField()));
-			fields.add(resolver.getFields().get(menu.getValueField()));
-			
-			String query = "";
-			if (menu.getQualification() != null)
-				query = menu.getQualification();
-			
-			List<Entry> entries = db.query(fields, query, 0, vars);
-			for (Entry e : entries) {
-				items.add(new MenuItem(e.getValues().get(0).getValue(), 
-						e.getValues().get(1).getValue()));
-			}
-		}
-		return items;
+		return getMenuItems(menu.getRefreshPolicy() == SearchMenu.REFRESH_ONOPEN).getItems();
 	}
 	
 	/**
@@ -80,14 +82,9 @@ public class SearchMenuResolver implements MenuResolver {
 	 * @throws DatabaseOperationException
 	 */
 	public MenuItem byLabel(Object label) throws ParseException, DatabaseOperationException {
-		List<MenuItem> menuItems = this.getItems();
-		
-		for (MenuItem i : menuItems) {
-			if (i.getLabel().equals(label)) {
-				return i;
-			}
-		}
-		return null;
+		if (menu.isTypeahead())
+			return lookup(menu.getLabelField(), label);
+		return getMenuItems(false).byLabel(label);
 	}
 	
 	/**
@@ -98,13 +95,162 @@ public class SearchMenuResolver implements MenuResolver {
 	 * @throws DatabaseOperationException
 	 */
 	public MenuItem byValue(Object value) throws ParseException, DatabaseOperationException {
-		List<MenuItem> menuItems = this.getItems();
+		if (menu.isTypeahead())
+			return lookup(menu.getValueField(), value);
+		return getMenuItems(false).byValue(value);
+	}
+	
+	@Override
+	public boolean isTypeahead() {
+		return menu.isTypeahead();
+	}
+	
+	/**
+	 * Returns menu items which labels start with the prefix.
+	 * The items are filtered by the database and limited by the menu items limit.
+	 * @param prefix Label prefix
+	 * @return List of menu items
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	@Override
+	public List<MenuItem> getItems(String prefix) throws ParseException, DatabaseOperationException {
+		if (!menu.isTypeahead())
+			return getItems();
+		if (db == null || composer == null)
+			return new ArrayList<MenuItem>();
+		
+		AbstractVariableSet<Value<?>> vars = 
+				DatabaseConditionBuilder.buildVariablesFromFields(composer.getFields());
+		String query = getQualification();
+		
+		IFieldInfo<?> label = resolver.getFields().get(menu.getLabelField());
+		if (StringUtils.isNotEmpty(prefix) && isCharacter(label.getDBField())) {
+			query = StringUtils.isBlank(query) ? "" : "(" + query + ") AND ";
+			query += "'" + label.getId() + "' LIKE " + MATCH_VARIABLE;
+			vars = new MatchVariableSet(vars, new Value<String>(prefix + "%", label.getDBField()));
+		}
+		
+		int limit = menu.getItemsLimit() > 0 ? menu.getItemsLimit() : SearchMenu.DEFAULT_ITEMS_LIMIT;
+		return toItems(db.query(getFields(), query, 0, limit, vars));
+	}
+	
+	/**
+	 * Finds the first menu item by the field value
+	 * @param fieldId Label or value field id
+	 * @param value Value to be searched
+	 * @return MenuItem or null if not found
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	private MenuItem lookup(String fieldId, Object value) throws ParseException, DatabaseOperationException {
+		if (db == null || composer == null || value == null)
+			return null;
+		
+		IFieldInfo<?> field = resolver.getFields().get(fieldId);
+		AbstractVariableSet<Value<?>> vars = new MatchVariableSet(
+				DatabaseConditionBuilder.buildVariablesFromFields(composer.getFields()),
+				field.fromObject(value));
+		String query = getQualification();
+		query = StringUtils.isBlank(query) ? "" : "(" + query + ") AND ";
+		query += "'" + field.getId() + "' = " + MATCH_VARIABLE;
 		
-		for (MenuItem i : menuItems) {
-			if (i.getValue().equals(value)) {
-				return i;
-			}
+		List<MenuItem> items = toItems(db.query(getFields(), query, 0, 1, vars));
+		if (items.isEmpty())
+			return null;
+		return items.get(0);
+	}
+	
+	/**
+	 * Returns menu items for the current qualification variables
+	 * @param reload true to reload the items from the database
+	 * @return Menu items
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	private MenuItems getMenuItems(boolean reload) throws ParseException, DatabaseOperationException {
+		if (db == null || composer == null)
+			return new MenuItems(new ArrayList<MenuItem>(), 0, 0);
+		
+		AbstractVariableSet<Value<?>> vars = 
+				DatabaseConditionBuilder.buildVariablesFromFields(composer.getFields());
+		VariablesKey key = new VariablesKey(variableNames, vars);
+		long version = db.getDataVersion();
+		
+		if (!reload) {
+			MenuItems items = MenuItemsCache.get(menu, key);
+			if (items != null && (menu.getRefreshPolicy() == SearchMenu.REFRESH_MANUAL 
+					|| items.getDataVersion() == version))
+				return items;
+		}
+		
+		long generation = MenuItemsCache.getGeneration();
+		
+		List<MenuItem> list = toItems(db.query(getFields(), getQualification(), 0, vars));
+		
+		MenuItems items = new MenuItems(list, generation, version);
+		// refresh on open items are not cached, other applications can change the data
+		MenuItemsCache.put(menu, key, items);
+		return items;
+	}
+	
+	/**
+	 * Returns label and value fields
+	 */
+	private List<IFieldInfo<?>> getFields() {
+		List<IFieldInfo<?>> fields = new ArrayList<IFieldInfo<?>>(2);
+		fields.add(resolver.getFields().get(menu.getLabelField()));
+		fields.add(resolver.getFields().get(menu.getValueField()));
+		return fields;
+	}
+	
+	private static List<MenuItem> toItems(List<Entry> entries) {
+		List<MenuItem> items = new ArrayList<MenuItem>(entries.size());
+		for (Entry e : entries) {
+			items.add(new MenuItem(e.getValues().get(0).getValue(), 
+					e.getValues().get(1).getValue()));
+		}
+		return items;
+	}
+	
+	private static boolean isCharacter(DBField field) {
+		switch (field.getDBType()) {
+		case java.sql.Types.CHAR:
+		case java.sql.Types.VARCHAR:
+		case java.sql.Types.LONGVARCHAR:
+		case java.sql.Types.NCHAR:
+		case java.sql.Types.NVARCHAR:
+		case java.sql.Types.LONGNVARCHAR:
+			return true;
+		}
+		return false;
+	}
+	
+	private String getQualification() {
+		if (menu.getQualification() != null)
+			return menu.getQualification();
+		return "";
+	}
+	
+	/**
+	 * Variable set with the additional match variable
+	 */
+	private static class MatchVariableSet implements AbstractVariableSet<Value<?>> {
+		
+		private final AbstractVariableSet<Value<?>> variables;
+		
+		private final Value<?> match;
+		
+		MatchVariableSet(AbstractVariableSet<Value<?>> variables, Value<?> match) {
+			this.variables = variables;
+			this.match = match;
+		}
+
+		@Override
+		public Value<?> get(String variableName) {
+			if (MATCH_VARIABLE.equals(variableName))
+				return match;
+			return variables.get(variableName);
 		}
-		return null;
 	}
 }
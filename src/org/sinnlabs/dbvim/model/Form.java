@@ -9,6 +9,7 @@ import java.util.List;
 
 import org.sinnlabs.dbvim.config.ConfigLoader;
 import org.sinnlabs.dbvim.db.model.DBModel;
+import org.sinnlabs.dbvim.form.FormRegistry;
 
 import com.j256.ormlite.field.DataType;
 import com.j256.ormlite.field.DatabaseField;
@@ -20,11 +21,16 @@ import com.mysql.jdbc.StringUtils;
  * @author peter.liverovsky
  *
  */
-@DatabaseTable(tableName = "dbForms")
+@DatabaseTable(tableName = Form.TABLE_NAME)
 public class Form implements IForm {
 	
+	public static final String TABLE_NAME = "dbForms";
 	public static final String NAME_FIELD_NAME = "name";
 	public static final String CONNECTION_FIELD_NAME = "connection_id";
+	public static final String VERSION_FIELD_NAME = "version";
+	public static final String RESULT_COLUMNS_FIELD_NAME = "resultColumns";
+	public static final String LEGACY_RESULT_LIST_FIELD_NAME = "resultList";
+	public static final String ROW_VERSION_COLUMN_FIELD_NAME = "rowVersionColumn";
 	
 	protected DBModel dbModel = null;
 	
@@ -40,8 +46,24 @@ public class Form implements IForm {
 	@DatabaseField
 	protected String catalogName;
 	
-	@DatabaseField(width = 1024*1024, dataType = DataType.SERIALIZABLE)
-	protected ArrayList<ResultColumn> resultList;
+	/**
+	 * Result list stored with the java serialization. 
+	 * Used only to migrate old forms to the {@link #resultColumns}.
+	 */
+	@DatabaseField(columnName = LEGACY_RESULT_LIST_FIELD_NAME, width = 1024*1024, 
+			dataType = DataType.SERIALIZABLE)
+	protected ArrayList<ResultColumn> legacyResultList;
+	
+	/**
+	 * Encoded result list, see {@link ResultColumnCodec}
+	 */
+	@DatabaseField(columnName = RESULT_COLUMNS_FIELD_NAME, dataType = DataType.LONG_STRING)
+	protected String resultColumns;
+	
+	/**
+	 * Decoded result list
+	 */
+	private ArrayList<ResultColumn> resultList;
 	
 	@DatabaseField(dataType = DataType.LONG_STRING)
 	protected String view;
@@ -64,6 +86,24 @@ public class Form implements IForm {
 	@DatabaseField
 	protected String joinCondition;
 	
+	/**
+	 * Form definition version, changed on each save
+	 */
+	@DatabaseField(columnName = VERSION_FIELD_NAME)
+	protected long version;
+	
+	/**
+	 * Table column changed on each row update, used to detect the changed entries.
+	 * Can be null.
+	 */
+	@DatabaseField(columnName = ROW_VERSION_COLUMN_FIELD_NAME)
+	protected String rowVersionColumn;
+	
+	/**
+	 * Join forms resolved by the form registry
+	 */
+	private volatile JoinForms joinForms;
+	
 	
 	/* Getters and Setters */
 	public String getName() { return name; }
@@ -76,8 +116,19 @@ public class Form implements IForm {
 	public void setCatalog(String catalog) { catalogName = catalog; }
 	public String getView() { return view; }
 	public void setView(String view) { this.view = view; }
-	public List<ResultColumn> getResultList() { return resultList; }
-	public void setResultList(ArrayList<ResultColumn> sResultList) { resultList = sResultList; }
+	public List<ResultColumn> getResultList() { 
+		if (resultList == null) {
+			if (resultColumns != null)
+				resultList = ResultColumnCodec.decode(resultColumns);
+			else
+				resultList = legacyResultList;
+		}
+		return resultList; 
+	}
+	public void setResultList(ArrayList<ResultColumn> sResultList) { 
+		resultList = sResultList;
+		updateResultColumns();
+	}
 	public String getTitle() { return title; }
 	public void setTitle(String title) { this.title = title; }
 	public boolean isJoin() { return isJoin; }
@@ -85,21 +136,67 @@ public class Form implements IForm {
 	public boolean isOuterJoin() { return isOuterJoin; }
 	public void setOuterJoin(boolean outer) { isOuterJoin = outer; }
 	public Form getLeftForm() throws SQLException { 
-		refresh(leftForm);
-		return leftForm;
+		return getJoinForms().left;
+	}
+	public void setLeftForm(Form form) { 
+		leftForm = form;
+		joinForms = null;
 	}
-	public void setLeftForm(Form form) { leftForm = form; }
 	public Form getRightForm() throws SQLException { 
-		refresh(rightForm);
-		return rightForm;
+		return getJoinForms().right;
+	}
+	public void setRigthForm(Form form) { 
+		rightForm = form;
+		joinForms = null;
 	}
-	public void setRigthForm(Form form) { rightForm = form; }
 	public String getJoinClause() { return joinCondition; }
 	public void setJoinClause(String clause) { joinCondition = clause; }
+	public long getVersion() { return version; }
+	public void setVersion(long version) { this.version = version; }
+	public String getRowVersionColumn() { return rowVersionColumn; }
+	public void setRowVersionColumn(String column) { rowVersionColumn = column; }
+	
+	/**
+	 * Encodes the result list to be stored.
+	 * Should be called before the form is saved if the result list has been changed in place.
+	 */
+	public void updateResultColumns() {
+		ArrayList<ResultColumn> list = (ArrayList<ResultColumn>) getResultList();
+		resultColumns = ResultColumnCodec.encode(list);
+		legacyResultList = null;
+	}
 	
-	private void refresh(Form f) throws SQLException {
+	/**
+	 * Indicates that the result list is stored with the java serialization
+	 */
+	public boolean isLegacyResultList() {
+		return resultColumns == null && legacyResultList != null;
+	}
+	
+	/**
+	 * Returns join forms resolved by the form registry.
+	 * Forms are resolved again only if the registry has been changed.
+	 */
+	private JoinForms getJoinForms() throws SQLException {
+		long v = FormRegistry.getVersion();
+		JoinForms j = joinForms;
+		if (j == null || j.version != v) {
+			j = new JoinForms(resolve(leftForm), resolve(rightForm), v);
+			joinForms = j;
+		}
+		return j;
+	}
+	
+	private static Form resolve(Form f) throws SQLException {
+		if (f == null)
+			return null;
+		Form res = FormRegistry.getForm(f.getName());
+		if (res != null)
+			return res;
+		// the form is not saved yet
 		ConfigLoader.getInstance().getForms().refresh(f);
 		ConfigLoader.getInstance().getDBConnections().refresh(f.connection);
+		return f;
 	}
 	
 	public String getQualifiedName() {
@@ -113,5 +210,20 @@ public class Form implements IForm {
 	@Override
 	public String toString() {
 		return dbTableName + "(" + catalogName + ")";
-	}	
+	}
+	
+	/**
+	 * Immutable snapshot of the resolved join forms
+	 */
+	private static final class JoinForms {
+		final Form left;
+		final Form right;
+		final long version;
+		
+		JoinForms(Form left, Form right, long version) {
+			this.left = left;
+			this.right = right;
+			this.version = version;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.model;
+
+import java.util.ArrayList;
+
+/**
+ * Compact text encoding of the form result list.
+ * <p>Format: <code>RC1;</code> followed by the length prefixed 
+ * field name and label of each column, e.g. <code>RC1;2:id2:Id4:name4:Name</code>.
+ * Null strings are encoded as <code>-</code>.</p>
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ class ResultColumnCodec {
+	
+	private static final String VERSION_1 = "RC1;";
+	
+	private static final char NULL = '-';
+	
+	private static final char SEPARATOR = ':';
+	
+	/**
+	 * Encodes the result list
+	 * @param columns Result list
+	 * @return Encoded string or null if list is null
+	 */
+	public static String encode(ArrayList<ResultColumn> columns) {
+		if (columns == null)
+			return null;
+		StringBuilder sb = new StringBuilder(VERSION_1.length() + columns.size() * 32);
+		sb.append(VERSION_1);
+		for (ResultColumn c : columns) {
+			append(sb, c.fieldName);
+			append(sb, c.label);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Decodes the result list
+	 * @param value Encoded string
+	 * @return Result list or null if value is null
+	 */
+	public static ArrayList<ResultColumn> decode(String value) {
+		if (value == null)
+			return null;
+		if (!value.startsWith(VERSION_1))
+			throw new IllegalArgumentException("Unsupported result list encoding.");
+		
+		ArrayList<ResultColumn> columns = new ArrayList<ResultColumn>();
+		int[] pos = new int[] { VERSION_1.length() };
+		while (pos[0] < value.length()) {
+			String field = read(value, pos);
+			String label = read(value, pos);
+			columns.add(new ResultColumn(field, label));
+		}
+		return columns;
+	}
+	
+	private static void append(StringBuilder sb, String s) {
+		if (s == null) {
+			sb.append(NULL);
+		} else {
+			sb.append(s.length()).append(SEPARATOR).append(s);
+		}
+	}
+	
+	private static String read(String value, int[] pos) {
+		int i = pos[0];
+		if (i >= value.length())
+			throw new IllegalArgumentException("Unexpected end of the result list.");
+		if (value.charAt(i) == NULL) {
+			pos[0] = i + 1;
+			return null;
+		}
+		int sep = value.indexOf(SEPARATOR, i);
+		if (sep < 0)
+			throw new IllegalArgumentException("Invalid result list encoding at " + i);
+		int len = Integer.parseInt(value.substring(i, sep));
+		int start = sep + 1;
+		pos[0] = start + len;
+		return value.substring(start, start + len);
+	}
+}
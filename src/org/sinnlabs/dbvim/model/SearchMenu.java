@@ -14,8 +14,36 @@ import com.j256.ormlite.table.DatabaseTable;
 @DatabaseTable(tableName = "SearchMenus")
 public class SearchMenu {
 	
+	/**
+	 * Items are loaded each time the menu is opened
+	 */
 	public static final int REFRESH_ONOPEN = 1;
 	
+	/**
+	 * Items are cached in the user session
+	 */
+	public static final int REFRESH_SESSION = 2;
+	
+	/**
+	 * Items are shared by all users and reloaded after the cache timeout
+	 */
+	public static final int REFRESH_APPLICATION = 3;
+	
+	/**
+	 * Items are shared by all users until the cache is flushed
+	 */
+	public static final int REFRESH_MANUAL = 4;
+	
+	/**
+	 * Default cache timeout in seconds
+	 */
+	public static final int DEFAULT_CACHE_TIMEOUT = 300;
+	
+	/**
+	 * Default maximum number of the typeahead items
+	 */
+	public static final int DEFAULT_ITEMS_LIMIT = 50;
+	
 	public static final String FORM_FIELD_NAME = "form_id";
 	
 	public static final String NAME_FIELD_NAME = "name";
@@ -38,8 +66,28 @@ public class SearchMenu {
 	@DatabaseField
 	protected int refreshPolicy;
 	
+	/**
+	 * Cache timeout in seconds for the application refresh policy
+	 */
+	@DatabaseField
+	protected int cacheTimeout;
+	
+	/**
+	 * Items are filtered by the label prefix typed in the field
+	 */
+	@DatabaseField
+	protected boolean typeahead;
+	
+	/**
+	 * Maximum number of the typeahead items
+	 */
+	@DatabaseField
+	protected int itemsLimit;
+	
 	public SearchMenu() {
 		refreshPolicy = REFRESH_ONOPEN;
+		cacheTimeout = DEFAULT_CACHE_TIMEOUT;
+		itemsLimit = DEFAULT_ITEMS_LIMIT;
 	}
 	
 	public String getName() {
@@ -89,4 +137,28 @@ public class SearchMenu {
 	public void setRefreshPolicy(int refreshPolicy) {
 		this.refreshPolicy = refreshPolicy;
 	}
+
+	public int getCacheTimeout() {
+		return cacheTimeout;
+	}
+
+	public void setCacheTimeout(int cacheTimeout) {
+		this.cacheTimeout = cacheTimeout;
+	}
+
+	public boolean isTypeahead() {
+		return typeahead;
+	}
+
+	public void setTypeahead(boolean typeahead) {
+		this.typeahead = typeahead;
+	}
+
+	public int getItemsLimit() {
+		return itemsLimit;
+	}
+
+	public void setItemsLimit(int itemsLimit) {
+		this.itemsLimit = itemsLimit;
+	}
 }
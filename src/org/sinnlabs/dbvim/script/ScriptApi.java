@@ -7,7 +7,6 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.sinnlabs.dbvim.config.ConfigLoader;
 import org.sinnlabs.dbvim.db.Database;
 import org.sinnlabs.dbvim.db.DatabaseFactory;
 import org.sinnlabs.dbvim.db.Entry;
@@ -16,8 +15,9 @@ import org.sinnlabs.dbvim.evaluator.AbstractVariableSet;
 import org.sinnlabs.dbvim.evaluator.DatabaseConditionBuilder;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
 import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.form.FormRegistry;
 import org.sinnlabs.dbvim.model.Form;
-import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 import org.sinnlabs.dbvim.zk.SearchComposer;
 
 /**
@@ -68,7 +68,7 @@ public class ScriptApi {
 			Entry e = new Entry();
 			// fill the Entry object
 			for ( java.util.Map.Entry<String, Object> i : r.getValues().entrySet()) {
-				IField<?> field = resolver.getFields().get(i.getKey());
+				IFieldInfo<?> field = resolver.getFields().get(i.getKey());
 				
 				if (field == null)
 					throw new IllegalArgumentException("Unknown field: " + i.getKey() + 
@@ -106,7 +106,7 @@ public class ScriptApi {
 			FormFieldResolver resolver = FormFieldResolverFactory.getResolver(f);
 			Database db = DatabaseFactory.createInstance(f, resolver);
 			
-			List<IField<?>> allFields = new ArrayList<IField<?>>();
+			List<IFieldInfo<?>> allFields = new ArrayList<IFieldInfo<?>>();
 			allFields.addAll(resolver.getFields().values());
 			
 			List<Entry> entries = db.query(allFields, qualification, 0, vars);
@@ -202,7 +202,7 @@ public class ScriptApi {
 			Entry e = new Entry();
 			// fill the Entry object
 			for ( java.util.Map.Entry<String, Object> i : r.getValues().entrySet()) {
-				IField<?> field = resolver.getFields().get(i.getKey());
+				IFieldInfo<?> field = resolver.getFields().get(i.getKey());
 				
 				if (field == null)
 					throw new IllegalArgumentException("Unknown field: " + i.getKey() + 
@@ -246,6 +246,6 @@ public class ScriptApi {
 	}
 	
 	private Form getForm(String fName) throws SQLException {
-		return ConfigLoader.getInstance().getForms().queryForId(fName);
+		return FormRegistry.getForm(fName);
 	}
 }
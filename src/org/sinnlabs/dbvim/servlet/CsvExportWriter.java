@@ -0,0 +1,81 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.servlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.sinnlabs.dbvim.db.Value;
+
+/**
+ * Writes the entries as RFC 4180 CSV in UTF-8
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ class CsvExportWriter extends ExportWriter {
+	
+	private static final char SEPARATOR = ',';
+	
+	private static final String LINE_END = "\r\n";
+
+	private Writer out;
+	
+	public CsvExportWriter(OutputStream out) throws IOException {
+		this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		// byte order mark, so spreadsheet applications detect the encoding
+		this.out.write('\uFEFF');
+	}
+	
+	@Override
+	public void writeHeader(List<String> labels) throws IOException {
+		for (int i=0; i<labels.size(); i++) {
+			if (i > 0)
+				out.write(SEPARATOR);
+			writeCell(labels.get(i));
+		}
+		out.write(LINE_END);
+	}
+
+	@Override
+	protected void doWriteRow(List<Value<?>> values) throws IOException {
+		for (int i=0; i<values.size(); i++) {
+			if (i > 0)
+				out.write(SEPARATOR);
+			writeCell(toText(values.get(i).getValue()));
+		}
+		out.write(LINE_END);
+	}
+	
+	private void writeCell(String s) throws IOException {
+		if (s == null)
+			return;
+		boolean quote = false;
+		for (int i=0; i<s.length() && !quote; i++) {
+			char c = s.charAt(i);
+			quote = c == SEPARATOR || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quote) {
+			out.write(s);
+			return;
+		}
+		out.write('"');
+		out.write(s.replace("\"", "\"\""));
+		out.write('"');
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.flush();
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.servlet;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.sinnlabs.dbvim.db.Value;
+import org.sinnlabs.dbvim.model.Form;
+
+/**
+ * Builds the strong entity tag from the response data.
+ * The tag depends on the form definition version and the returned fields,
+ * so it changes if the form is changed.
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ class ETag {
+	
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	/**
+	 * Number of the digest bytes used for the tag
+	 */
+	private static final int LENGTH = 16;
+	
+	private MessageDigest digest;
+	
+	private String tag;
+	
+	/**
+	 * @param kind Kind of the source data, tags of the different kinds never match
+	 * @param form Form
+	 * @param fields Returned field ids
+	 */
+	public ETag(String kind, Form form, String[] fields) {
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+		update(kind);
+		update(form.getName());
+		update(form.getVersion());
+		for (String f : fields) {
+			update(f);
+		}
+	}
+	
+	public void update(List<Value<?>> values) {
+		for (Value<?> v : values) {
+			update(v.getValue());
+		}
+	}
+	
+	public void update(Object value) {
+		if (value == null) {
+			digest.update((byte) 0);
+		} else if (value instanceof byte[]) {
+			digest.update((byte[]) value);
+		} else {
+			digest.update(value.getClass().getName().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) ':');
+			digest.update(value.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		// value separator
+		digest.update((byte) 0x1f);
+	}
+	
+	@Override
+	public String toString() {
+		if (tag == null) {
+			byte[] hash = digest.digest();
+			StringBuilder res = new StringBuilder(LENGTH * 2 + 2);
+			res.append('"');
+			for (int i=0; i<LENGTH; i++) {
+				res.append(HEX[(hash[i] >> 4) & 0xf]).append(HEX[hash[i] & 0xf]);
+			}
+			res.append('"');
+			tag = res.toString();
+		}
+		return tag;
+	}
+	
+	/**
+	 * Checks the If-None-Match header
+	 * @param header Header value, can be null
+	 * @param etag Current entity tag
+	 * @return true if the client has the current representation
+	 */
+	public static boolean matches(String header, String etag) {
+		if (header == null)
+			return false;
+		for (String t : header.split(",")) {
+			t = t.trim();
+			// If-None-Match uses the weak comparison
+			if (t.startsWith("W/"))
+				t = t.substring(2);
+			if (t.equals("*") || t.equals(etag))
+				return true;
+		}
+		return false;
+	}
+}
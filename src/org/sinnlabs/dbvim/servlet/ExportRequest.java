@@ -0,0 +1,104 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.servlet;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.http.HttpSession;
+
+import org.sinnlabs.dbvim.db.Value;
+
+/**
+ * Search to be exported by the {@link ExportServlet}.
+ * The search form registers the request in the user session
+ * and passes only the request token to the servlet.
+ * @author peter.liverovsky
+ *
+ */
+public class ExportRequest {
+	
+	/**
+	 * Session attribute with the registered requests
+	 */
+	private static final String SESSION_ATTRIBUTE = "org.sinnlabs.dbvim.exportRequests";
+	
+	/**
+	 * Maximum number of the requests kept in the session
+	 */
+	private static final int MAX_REQUESTS = 10;
+
+	private String formName;
+	
+	private List<Value<?>> condition;
+	
+	private String query;
+	
+	/**
+	 * @param formName Form name
+	 * @param condition Search values, can be null
+	 * @param query Additional search query, can be null
+	 */
+	public ExportRequest(String formName, List<Value<?>> condition, String query) {
+		this.formName = formName;
+		this.condition = condition;
+		this.query = query;
+	}
+	
+	public String getFormName() { return formName; }
+	
+	public List<Value<?>> getCondition() { return condition; }
+	
+	public String getQuery() { return query; }
+	
+	/**
+	 * Stores the request in the session
+	 * @param session User session
+	 * @param request Export request
+	 * @return Request token
+	 */
+	public static String register(HttpSession session, ExportRequest request) {
+		String token = UUID.randomUUID().toString();
+		synchronized (ExportRequest.class) {
+			Map<String, ExportRequest> requests = getRequests(session);
+			requests.put(token, request);
+			session.setAttribute(SESSION_ATTRIBUTE, requests);
+		}
+		return token;
+	}
+	
+	/**
+	 * Returns the registered request
+	 * @param session User session
+	 * @param token Request token
+	 * @return Export request or null if the request does not exists
+	 */
+	public static ExportRequest get(HttpSession session, String token) {
+		if (session == null || token == null)
+			return null;
+		synchronized (ExportRequest.class) {
+			return getRequests(session).get(token);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Map<String, ExportRequest> getRequests(HttpSession session) {
+		Map<String, ExportRequest> requests = 
+				(Map<String, ExportRequest>) session.getAttribute(SESSION_ATTRIBUTE);
+		if (requests == null) {
+			requests = new LinkedHashMap<String, ExportRequest>() {
+
+				private static final long serialVersionUID = 2405911412389931764L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, ExportRequest> eldest) {
+					return size() > MAX_REQUESTS;
+				}
+			};
+		}
+		return requests;
+	}
+}
@@ -0,0 +1,220 @@
+package org.sinnlabs.dbvim.servlet;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.sinnlabs.dbvim.db.Database;
+import org.sinnlabs.dbvim.db.DatabaseFactory;
+import org.sinnlabs.dbvim.db.Entry;
+import org.sinnlabs.dbvim.db.Value;
+import org.sinnlabs.dbvim.form.FormFieldResolver;
+import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.form.FormRegistry;
+import org.sinnlabs.dbvim.model.Form;
+import org.sinnlabs.dbvim.model.ResultColumn;
+
+/**
+ * Exports the form search results as CSV or XLSX.
+ * URL is /export/formname?format=csv|xlsx and one of:
+ * search - token of the {@link ExportRequest} registered in the user session,
+ * query - additional search query, accepted only from the authenticated user.
+ * Without the search all form entries are exported.
+ * Rows are streamed from the database cursor to the response.
+ */
+@WebServlet("/export/*")
+public class ExportServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Maximum number of the exports running at the same time for one user
+	 */
+	public static final int MAX_EXPORTS_PER_USER = 2;
+	
+	/**
+	 * Maximum number of the exports running at the same time.
+	 * Each export holds the pooled connection while downloading, so the limit
+	 * is well below the pool limit and the connections are left for the forms.
+	 */
+	public static final int MAX_EXPORTS = 8;
+	
+	/**
+	 * Response is flushed after every FLUSH_ROWS rows
+	 */
+	private static final int FLUSH_ROWS = 500;
+	
+	/**
+	 * Number of the running exports by the user name
+	 */
+	private static final ConcurrentHashMap<String, AtomicInteger> running = 
+			new ConcurrentHashMap<String, AtomicInteger>();
+	
+	/**
+	 * Running exports of all users
+	 */
+	private static final Semaphore exports = new Semaphore(MAX_EXPORTS);
+	
+    /**
+     * @see HttpServlet#HttpServlet()
+     */
+    public ExportServlet() {
+        super();
+    }
+
+	/**
+	 * @see HttpServlet#doGet(HttpServletRequest request, HttpServletResponse response)
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String formName = request.getPathInfo();
+		if (formName != null && formName.startsWith("/")) {
+			formName = formName.substring(1);
+		}
+		if (StringUtils.isBlank(formName)) {
+			response.sendError(404, "Form is not specified.");
+			return;
+		}
+		
+		String format = StringUtils.defaultIfBlank(request.getParameter("format"), "csv");
+		if (!format.equals("csv") && !format.equals("xlsx")) {
+			response.sendError(400, "Unsupported export format: " + format);
+			return;
+		}
+		
+		Form form;
+		try {
+			form = FormRegistry.getForm(formName);
+		} catch (SQLException e) {
+			throw new ServletException("SQL Error while getting requested form.", e);
+		}
+		if (form == null) {
+			System.err.println("ExportServlet: Requested form does not exists: " + formName);
+			response.sendError(404, "Requested form does not exists.");
+			return;
+		}
+		
+		// search to be exported
+		String user = request.getRemoteUser();
+		List<Value<?>> condition = null;
+		String query = null;
+		String token = request.getParameter("search");
+		if (token != null) {
+			ExportRequest search = ExportRequest.get(request.getSession(false), token);
+			if (search == null || !search.getFormName().equals(form.getName())) {
+				response.sendError(404, "Search does not exists or expired.");
+				return;
+			}
+			condition = search.getCondition();
+			query = search.getQuery();
+		} else if (user != null) {
+			// the raw query is accepted only from the authenticated user
+			query = request.getParameter("query");
+		} else {
+			response.sendError(401, "Authentication required.");
+			return;
+		}
+		
+		// the search token is bound to the session, so the session exists here
+		if (user == null)
+			user = request.getSession(false).getId();
+		if (!acquire(user)) {
+			response.sendError(429, "Too many exports are running.");
+			return;
+		}
+		try {
+			export(form, condition, query, format, response);
+		} finally {
+			release(user);
+		}
+	}
+	
+	private void export(Form form, List<Value<?>> condition, String query, 
+			String format, HttpServletResponse response) throws ServletException, IOException {
+		Database db;
+		try {
+			FormFieldResolver resolver = FormFieldResolverFactory.getResolver(form);
+			db = DatabaseFactory.createInstance(form, resolver);
+		} catch (Exception e) {
+			throw new ServletException("Unable to open the form database.", e);
+		}
+		
+		// no content length is set, so the response is sent with the chunked encoding
+		String fileName = URLEncoder.encode(form.getName(), "UTF-8") + "." + format;
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+		final ExportWriter writer;
+		if (format.equals("xlsx")) {
+			response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+			writer = new XlsxExportWriter(response.getOutputStream(), form.getName());
+		} else {
+			response.setContentType("text/csv; charset=UTF-8");
+			writer = new CsvExportWriter(response.getOutputStream());
+		}
+		
+		List<String> labels = new ArrayList<String>();
+		if (form.getResultList() != null) {
+			for (ResultColumn c : form.getResultList()) {
+				labels.add(c.label);
+			}
+		}
+		
+		try {
+			writer.writeHeader(labels);
+			db.queryEach(null, condition, query, null, new Database.EntryHandler() {
+				
+				@Override
+				public void handle(Entry e) throws IOException {
+					writer.writeRow(e.getValues());
+					if (writer.getRows() % FLUSH_ROWS == 0)
+						writer.flush();
+				}
+			});
+			writer.close();
+		} catch (IOException e) {
+			// the client closed the connection
+			System.err.println("ExportServlet: Export of the form " + form.getName() 
+					+ " is interrupted: " + e.getMessage());
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (!response.isCommitted()) {
+				response.reset();
+				response.sendError(500, "Unable to export entries: " + e.getMessage());
+			}
+		}
+	}
+	
+	private static boolean acquire(String user) {
+		AtomicInteger count = running.get(user);
+		if (count == null) {
+			AtomicInteger prev = running.putIfAbsent(user, count = new AtomicInteger());
+			if (prev != null)
+				count = prev;
+		}
+		if (count.incrementAndGet() > MAX_EXPORTS_PER_USER) {
+			count.decrementAndGet();
+			return false;
+		}
+		if (!exports.tryAcquire()) {
+			count.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+	
+	private static void release(String user) {
+		exports.release();
+		AtomicInteger count = running.get(user);
+		if (count != null)
+			count.decrementAndGet();
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.servlet;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.sinnlabs.dbvim.db.Value;
+
+/**
+ * Writes the exported entries to the output stream row by row
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ abstract class ExportWriter {
+	
+	private int rows = 0;
+	
+	/**
+	 * Writes the column labels
+	 * @param labels Column labels
+	 * @throws IOException
+	 */
+	public abstract void writeHeader(List<String> labels) throws IOException;
+	
+	/**
+	 * Writes the entry values
+	 * @param values Entry values
+	 * @throws IOException
+	 */
+	public void writeRow(List<Value<?>> values) throws IOException {
+		rows++;
+		doWriteRow(values);
+	}
+	
+	protected abstract void doWriteRow(List<Value<?>> values) throws IOException;
+	
+	/**
+	 * Sends the written data to the client
+	 * @throws IOException
+	 */
+	public abstract void flush() throws IOException;
+	
+	/**
+	 * Finishes the document
+	 * @throws IOException
+	 */
+	public abstract void close() throws IOException;
+	
+	/**
+	 * Returns number of the written rows
+	 */
+	public int getRows() { return rows; }
+	
+	/**
+	 * Converts the value to the text
+	 * @param v Value
+	 * @return Value text, empty string for null
+	 */
+	protected static String toText(Object v) {
+		if (v == null)
+			return "";
+		if (v instanceof BigDecimal)
+			return ((BigDecimal) v).toPlainString();
+		return v.toString();
+	}
+}
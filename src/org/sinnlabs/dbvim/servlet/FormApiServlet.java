@@ -0,0 +1,750 @@
+package org.sinnlabs.dbvim.servlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.sinnlabs.dbvim.db.Database;
+import org.sinnlabs.dbvim.db.DatabaseFactory;
+import org.sinnlabs.dbvim.db.Entry;
+import org.sinnlabs.dbvim.db.EntryOperation;
+import org.sinnlabs.dbvim.db.SortField;
+import org.sinnlabs.dbvim.db.Value;
+import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
+import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
+import org.sinnlabs.dbvim.form.FormFieldResolver;
+import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.form.FormRegistry;
+import org.sinnlabs.dbvim.model.Form;
+import org.sinnlabs.dbvim.model.ResultColumn;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
+import org.zkoss.json.JSONArray;
+import org.zkoss.json.JSONObject;
+import org.zkoss.json.parser.JSONParser;
+
+/**
+ * Stateless JSON API over the forms, no ZK desktop is created.
+ * GET /api/forms/formname/entries returns the form entries. Parameters:
+ * fields - comma separated field ids to be returned, the form result list by default;
+ * q - search qualification;
+ * fieldid=value - search by the field value, used if q is not specified;
+ * sort - comma separated field ids, prefix "-" means descending order;
+ * offset, limit - paging, limit is {@value #DEFAULT_LIMIT} by default.
+ * GET /api/forms/formname/entries/id1[/id2...] returns one entry of the table form.
+ * Responses have the ETag, If-None-Match with the current tag returns 304.
+ * If the form defines the row version column, the tag is built from the row versions
+ * and the full rows are read only if they are changed, otherwise from the row values.
+ * <p>
+ * Entries of the table forms can be changed by the administrator,
+ * the values are converted by the form fields:
+ * POST /api/forms/formname/entries {"values":{"fieldid":value,...}} - creates the entry;
+ * PATCH /api/forms/formname/entries/id1[/id2...] {"values":{...}} - updates the entry;
+ * DELETE /api/forms/formname/entries/id1[/id2...] - deletes the entry;
+ * POST /api/forms/formname/batch {"operations":[{"op":"insert|update|delete",
+ * "id":[...],"values":{...}},...]} - applies the operations in one transaction
+ * and returns {"results":[affected rows,...]}.
+ * POST and PATCH require Content-Type application/json (415 otherwise),
+ * DELETE requires the {@value #REQUESTED_WITH_HEADER} header (403 otherwise).
+ */
+@WebServlet("/api/forms/*")
+public class FormApiServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Default number of the entries in the response
+	 */
+	public static final int DEFAULT_LIMIT = 100;
+	
+	/**
+	 * Maximum number of the entries in the response
+	 */
+	public static final int MAX_LIMIT = 1000;
+	
+	/**
+	 * Maximum number of the operations in one batch
+	 */
+	public static final int MAX_BATCH_OPERATIONS = 10000;
+	
+	/**
+	 * Response is flushed after every FLUSH_ROWS rows
+	 */
+	private static final int FLUSH_ROWS = 100;
+	
+	/**
+	 * Header required for DELETE, the cross-site requests with it need the CORS preflight
+	 */
+	public static final String REQUESTED_WITH_HEADER = "X-Requested-With";
+	
+	/**
+	 * Request parameters that are not the field values
+	 */
+	private static final Set<String> RESERVED_PARAMETERS = 
+			new HashSet<String>(Arrays.asList("fields", "q", "sort", "offset", "limit"));
+	
+    /**
+     * @see HttpServlet#HttpServlet()
+     */
+    public FormApiServlet() {
+        super();
+    }
+
+	/**
+	 * @see HttpServlet#doGet(HttpServletRequest request, HttpServletResponse response)
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String[] path = getPath(request);
+		if (path.length > 2 && path[1].equals("entries")) {
+			doGetEntry(request, response, path);
+			return;
+		}
+		if (path.length != 2 || !path[1].equals("entries")) {
+			response.sendError(404, "Unknown resource.");
+			return;
+		}
+		
+		Form form = getForm(path[0], response);
+		if (form == null)
+			return;
+		FormFieldResolver resolver;
+		Database db;
+		try {
+			resolver = FormFieldResolverFactory.getResolver(form);
+			db = DatabaseFactory.getInstance(form, resolver);
+		} catch (Exception e) {
+			throw new ServletException("Unable to open the form database.", e);
+		}
+		
+		List<IFieldInfo<?>> fields;
+		List<SortField> sort;
+		List<Value<?>> condition;
+		int offset;
+		int limit;
+		try {
+			fields = getFields(request.getParameter("fields"), form, resolver);
+			sort = getSort(request.getParameter("sort"), resolver);
+			condition = getCondition(request, resolver);
+			offset = getInt(request, "offset", 0);
+			limit = Math.min(getInt(request, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+		} catch (IllegalArgumentException e) {
+			response.sendError(400, e.getMessage());
+			return;
+		}
+		String query = request.getParameter("q");
+		if (!StringUtils.isBlank(query) && !condition.isEmpty()) {
+			response.sendError(400, "Search by the qualification and by the field values can not be combined.");
+			return;
+		}
+		if (limit <= 0 || offset < 0) {
+			response.sendError(400, "Wrong paging parameters.");
+			return;
+		}
+		
+		final String[] ids = getIds(fields);
+		final ETag etag = new ETag(db.hasRowVersion() ? "version" : "values", form, ids);
+		// other page of the same search is the other representation
+		etag.update(offset);
+		etag.update(limit);
+		try {
+			if (db.hasRowVersion()) {
+				// the rows are read after the versions, so the tag can be older 
+				// than the returned rows but never newer and no change is missed
+				db.queryVersions(condition, query, null, sort, offset, limit, 
+						new Database.EntryHandler() {
+					
+					@Override
+					public void handle(Entry e) throws IOException {
+						etag.update(e.getID());
+						etag.update(e.getValues());
+					}
+				});
+				if (isNotModified(request, response, etag))
+					return;
+				
+				final JsonWriter json = beginEntries(response, form, offset, limit);
+				int count = db.queryEach(fields, condition, query, null, sort, offset, limit, 
+						new Database.EntryHandler() {
+					
+					private int rows = 0;
+					
+					@Override
+					public void handle(Entry e) throws IOException {
+						writeEntry(json, e, ids);
+						if (++rows % FLUSH_ROWS == 0)
+							json.flush();
+					}
+				});
+				endEntries(json, count);
+			} else {
+				// the tag is known only after all rows are read, the page is buffered
+				final List<Entry> entries = new ArrayList<Entry>();
+				db.queryEach(fields, condition, query, null, sort, offset, limit, 
+						new Database.EntryHandler() {
+					
+					@Override
+					public void handle(Entry e) throws IOException {
+						entries.add(e);
+						etag.update(e.getID());
+						etag.update(e.getValues());
+					}
+				});
+				if (isNotModified(request, response, etag))
+					return;
+				
+				JsonWriter json = beginEntries(response, form, offset, limit);
+				for (int i=0; i<entries.size(); i++) {
+					writeEntry(json, entries.get(i), ids);
+					if ((i + 1) % FLUSH_ROWS == 0)
+						json.flush();
+				}
+				endEntries(json, entries.size());
+			}
+		} catch (ParseException e) {
+			sendError(response, 400, "Wrong qualification: " + e.getMessage());
+		} catch (DatabaseOperationException e) {
+			sendError(response, 500, "Unable to read entries: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Writes the page header and opens the entries array
+	 */
+	private static JsonWriter beginEntries(HttpServletResponse response, Form form, 
+			int offset, int limit) throws IOException {
+		response.setContentType("application/json; charset=UTF-8");
+		JsonWriter json = new JsonWriter(new BufferedWriter(
+				new OutputStreamWriter(response.getOutputStream(), "UTF-8")));
+		json.beginObject();
+		json.name("form").value(form.getName());
+		json.name("offset").value(offset);
+		json.name("limit").value(limit);
+		json.name("entries").beginArray();
+		return json;
+	}
+	
+	private static void endEntries(JsonWriter json, int count) throws IOException {
+		json.endArray();
+		json.name("count").value(count);
+		json.endObject();
+		json.flush();
+	}
+	
+	/**
+	 * Returns one entry of the table form by the id from the path.
+	 * If the form has the row version column, only the version is read
+	 * to check the If-None-Match header.
+	 */
+	private void doGetEntry(HttpServletRequest request, HttpServletResponse response, 
+			String[] path) throws ServletException, IOException {
+		Form form = getForm(path[0], response);
+		if (form == null)
+			return;
+		if (form.isJoin()) {
+			response.sendError(404, "Entries of the join form can not be read by the id.");
+			return;
+		}
+		FormFieldResolver resolver;
+		Database db;
+		try {
+			resolver = FormFieldResolverFactory.getResolver(form);
+			db = DatabaseFactory.getInstance(form, resolver);
+		} catch (Exception e) {
+			throw new ServletException("Unable to open the form database.", e);
+		}
+		
+		List<IFieldInfo<?>> fields;
+		Entry key = new Entry();
+		try {
+			fields = getFields(request.getParameter("fields"), form, resolver);
+			key.setID(createID(Arrays.asList(path).subList(2, path.length), db));
+		} catch (IllegalArgumentException e) {
+			response.sendError(400, e.getMessage());
+			return;
+		}
+		String[] ids = getIds(fields);
+		ETag etag = new ETag(db.hasRowVersion() ? "version" : "values", form, ids);
+		
+		Entry entry;
+		try {
+			if (db.hasRowVersion()) {
+				Value<?> version = db.readVersion(key);
+				if (version == null) {
+					response.sendError(404, "Entry does not exists.");
+					return;
+				}
+				etag.update(key.getID());
+				etag.update(version.getValue());
+				if (isNotModified(request, response, etag))
+					return;
+			}
+			entry = db.readEntry(key);
+		} catch (DatabaseOperationException e) {
+			sendError(response, 500, "Unable to read entry: " + e.getMessage());
+			return;
+		}
+		if (entry == null) {
+			response.sendError(404, "Entry does not exists.");
+			return;
+		}
+		
+		// select the requested fields from the row
+		Map<String, Value<?>> columns = new HashMap<String, Value<?>>();
+		for (Value<?> v : entry.getValues()) {
+			columns.put(v.getDBField().getName(), v);
+		}
+		Entry result = new Entry();
+		result.setID(entry.getID());
+		for (IFieldInfo<?> f : fields) {
+			Value<?> v = columns.get(f.getDBField().getName());
+			result.getValues().add(v != null ? v : new Value<Object>(null, f.getDBField()));
+		}
+		if (!db.hasRowVersion()) {
+			etag.update(result.getID());
+			etag.update(result.getValues());
+			if (isNotModified(request, response, etag))
+				return;
+		}
+		
+		response.setContentType("application/json; charset=UTF-8");
+		JsonWriter json = new JsonWriter(new BufferedWriter(
+				new OutputStreamWriter(response.getOutputStream(), "UTF-8")));
+		writeEntry(json, result, ids);
+		json.flush();
+	}
+	
+	/**
+	 * Sets the ETag header and checks the If-None-Match header
+	 * @return true if 304 is sent
+	 */
+	private static boolean isNotModified(HttpServletRequest request, HttpServletResponse response, 
+			ETag etag) {
+		response.setHeader("ETag", etag.toString());
+		// the client should always check the entity
+		response.setHeader("Cache-Control", "no-cache");
+		if (ETag.matches(request.getHeader("If-None-Match"), etag.toString())) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return true;
+		}
+		return false;
+	}
+	
+	private static String[] getIds(List<IFieldInfo<?>> fields) {
+		String[] ids = new String[fields.size()];
+		for (int i=0; i<ids.length; i++) {
+			ids[i] = fields.get(i).getId();
+		}
+		return ids;
+	}
+	
+	@Override
+	protected void service(HttpServletRequest request, HttpServletResponse response) 
+			throws ServletException, IOException {
+		String method = request.getMethod();
+		// the session cookie is sent with the cross-site requests too, so the changes
+		// are accepted only for the requests that can not be sent by the plain html form
+		if ((method.equals("POST") || method.equals("PATCH")) && !isJson(request)) {
+			response.sendError(415, "Content-Type must be application/json.");
+			return;
+		}
+		if (method.equals("DELETE") && request.getHeader(REQUESTED_WITH_HEADER) == null) {
+			response.sendError(403, "The " + REQUESTED_WITH_HEADER + " header is required.");
+			return;
+		}
+		// HttpServlet does not dispatch PATCH
+		if (method.equals("PATCH"))
+			doPatch(request, response);
+		else
+			super.service(request, response);
+	}
+	
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse response)
+	 */
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String[] path = getPath(request);
+		boolean batch = path.length == 2 && path[1].equals("batch");
+		if (!batch && (path.length != 2 || !path[1].equals("entries"))) {
+			response.sendError(404, "Unknown resource.");
+			return;
+		}
+		WriteContext ctx = open(path[0], response);
+		if (ctx == null)
+			return;
+		
+		List<EntryOperation> operations = new ArrayList<EntryOperation>();
+		try {
+			JSONObject body = readBody(request);
+			if (batch) {
+				Object ops = body.get("operations");
+				if (!(ops instanceof JSONArray))
+					throw new IllegalArgumentException("Operations are not specified.");
+				if (((JSONArray) ops).size() > MAX_BATCH_OPERATIONS) {
+					response.sendError(413, "Batch can not contain more than " 
+							+ MAX_BATCH_OPERATIONS + " operations.");
+					return;
+				}
+				for (Object op : (JSONArray) ops) {
+					if (!(op instanceof JSONObject))
+						throw new IllegalArgumentException("Wrong operation: " + op);
+					operations.add(toOperation((JSONObject) op, ctx));
+				}
+			} else {
+				ctx.db.insertEntry(toEntry(null, body, ctx));
+				response.setStatus(201);
+				return;
+			}
+		} catch (IllegalArgumentException e) {
+			response.sendError(400, e.getMessage());
+			return;
+		} catch (DatabaseOperationException e) {
+			sendError(response, 500, e.getMessage());
+			return;
+		}
+		
+		int[] counts;
+		try {
+			counts = ctx.db.execute(operations);
+		} catch (DatabaseOperationException e) {
+			sendError(response, 500, e.getMessage());
+			return;
+		}
+		response.setContentType("application/json; charset=UTF-8");
+		JsonWriter json = new JsonWriter(new BufferedWriter(
+				new OutputStreamWriter(response.getOutputStream(), "UTF-8")));
+		json.beginObject();
+		json.name("results").beginArray();
+		for (int c : counts) {
+			json.value(c);
+		}
+		json.endArray();
+		json.endObject();
+		json.flush();
+	}
+	
+	/**
+	 * Updates the entry
+	 */
+	protected void doPatch(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String[] path = getPath(request);
+		if (path.length < 3 || !path[1].equals("entries")) {
+			response.sendError(404, "Unknown resource.");
+			return;
+		}
+		WriteContext ctx = open(path[0], response);
+		if (ctx == null)
+			return;
+		try {
+			Entry e = readEntry(path, ctx);
+			if (e == null) {
+				response.sendError(404, "Entry does not exists.");
+				return;
+			}
+			Entry changes = toEntry(null, readBody(request), ctx);
+			ctx.db.updateEntry(e, changes.getValues());
+			response.setStatus(204);
+		} catch (IllegalArgumentException e) {
+			response.sendError(400, e.getMessage());
+		} catch (DatabaseOperationException e) {
+			sendError(response, 500, e.getMessage());
+		}
+	}
+	
+	/**
+	 * @see HttpServlet#doDelete(HttpServletRequest request, HttpServletResponse response)
+	 */
+	protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String[] path = getPath(request);
+		if (path.length < 3 || !path[1].equals("entries")) {
+			response.sendError(404, "Unknown resource.");
+			return;
+		}
+		WriteContext ctx = open(path[0], response);
+		if (ctx == null)
+			return;
+		try {
+			Entry e = readEntry(path, ctx);
+			if (e == null) {
+				response.sendError(404, "Entry does not exists.");
+				return;
+			}
+			ctx.db.deleteEntry(e);
+			response.setStatus(204);
+		} catch (IllegalArgumentException e) {
+			response.sendError(400, e.getMessage());
+		} catch (DatabaseOperationException e) {
+			sendError(response, 500, e.getMessage());
+		}
+	}
+	
+	/**
+	 * Form database opened for the changes
+	 */
+	private static class WriteContext {
+		
+		private Database db;
+		
+		private FormFieldResolver resolver;
+	}
+	
+	/**
+	 * Opens the form database, only table forms can be changed
+	 * @return Context or null if the error is sent
+	 */
+	private static WriteContext open(String formName, HttpServletResponse response) 
+			throws ServletException, IOException {
+		Form form = getForm(formName, response);
+		if (form == null)
+			return null;
+		if (form.isJoin()) {
+			response.sendError(405, "Entries of the join form can not be changed.");
+			return null;
+		}
+		WriteContext ctx = new WriteContext();
+		try {
+			ctx.resolver = FormFieldResolverFactory.getResolver(form);
+			ctx.db = DatabaseFactory.getInstance(form, ctx.resolver);
+		} catch (Exception e) {
+			throw new ServletException("Unable to open the form database.", e);
+		}
+		return ctx;
+	}
+	
+	/**
+	 * Reads the entry by the id from the path
+	 * @return Entry with all values or null if it does not exist
+	 */
+	private static Entry readEntry(String[] path, WriteContext ctx) throws DatabaseOperationException {
+		Entry e = new Entry();
+		e.setID(createID(Arrays.asList(path).subList(2, path.length), ctx.db));
+		return ctx.db.readEntry(e);
+	}
+	
+	private static List<Value<?>> createID(List<?> values, Database db) {
+		try {
+			return db.createID(values);
+		} catch (DatabaseOperationException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Checks if the request body is JSON
+	 */
+	private static boolean isJson(HttpServletRequest request) {
+		String type = request.getContentType();
+		if (type == null)
+			return false;
+		int i = type.indexOf(';');
+		if (i >= 0)
+			type = type.substring(0, i);
+		return type.trim().equalsIgnoreCase("application/json");
+	}
+	
+	private static JSONObject readBody(HttpServletRequest request) throws IOException {
+		Object body;
+		try {
+			body = new JSONParser().parse(request.getReader());
+		} catch (org.zkoss.json.parser.ParseException e) {
+			throw new IllegalArgumentException("Wrong JSON: " + e);
+		}
+		if (!(body instanceof JSONObject))
+			throw new IllegalArgumentException("JSON object is expected.");
+		return (JSONObject) body;
+	}
+	
+	private static EntryOperation toOperation(JSONObject op, WriteContext ctx) {
+		String type = String.valueOf(op.get("op"));
+		if (type.equals("insert"))
+			return new EntryOperation(EntryOperation.Type.INSERT, null, 
+					toEntry(null, op, ctx).getValues());
+		
+		if (!(op.get("id") instanceof JSONArray))
+			throw new IllegalArgumentException("Entry id is not specified.");
+		List<Value<?>> id = createID((JSONArray) op.get("id"), ctx.db);
+		if (type.equals("delete"))
+			return new EntryOperation(EntryOperation.Type.DELETE, id, null);
+		if (type.equals("update")) {
+			Entry e = toEntry(id, op, ctx);
+			if (e.getValues().isEmpty())
+				throw new IllegalArgumentException("Values are not specified.");
+			return new EntryOperation(EntryOperation.Type.UPDATE, id, e.getValues());
+		}
+		throw new IllegalArgumentException("Unknown operation: " + type);
+	}
+	
+	/**
+	 * Converts {"values":{"fieldid":value,...}} to the entry values
+	 */
+	private static Entry toEntry(List<Value<?>> id, JSONObject json, WriteContext ctx) {
+		Entry e = new Entry();
+		if (id != null)
+			e.setID(id);
+		Object values = json.get("values");
+		if (!(values instanceof JSONObject))
+			throw new IllegalArgumentException("Values are not specified.");
+		for (Object o : ((JSONObject) values).entrySet()) {
+			Map.Entry<?, ?> v = (Map.Entry<?, ?>) o;
+			String name = String.valueOf(v.getKey());
+			IFieldInfo<?> f = getField(name, ctx.resolver);
+			if (f.isDisplayOnly())
+				throw new IllegalArgumentException("Field is read only: " + name);
+			try {
+				e.getValues().add(v.getValue() == null ? new Value<Object>(null, f.getDBField()) 
+						: f.fromString(valueToString(v.getValue())));
+			} catch (Exception ex) {
+				throw new IllegalArgumentException("Wrong value of the field " + name + ": " + ex.getMessage());
+			}
+		}
+		return e;
+	}
+	
+	/**
+	 * Converts the JSON value to the string accepted by {@link IFieldInfo#fromString}.
+	 * The parser returns the fractional numbers as Double, they are written
+	 * without the exponent and the zero fraction, so 12.0 is accepted by the integer field.
+	 */
+	private static String valueToString(Object value) {
+		if (value instanceof Double || value instanceof Float)
+			return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+		return String.valueOf(value);
+	}
+	
+	/**
+	 * Writes the entry as {"id":[...],"values":{"fieldid":value,...}}
+	 */
+	/*package*/ static void writeEntry(JsonWriter json, Entry e, String[] ids) throws IOException {
+		json.beginObject();
+		json.name("id").beginArray();
+		for (Value<?> v : e.getID()) {
+			json.value(v.getValue());
+		}
+		json.endArray();
+		json.name("values").beginObject();
+		for (int i=0; i<ids.length && i<e.getValues().size(); i++) {
+			json.name(ids[i]).value(e.getValues().get(i).getValue());
+		}
+		json.endObject();
+		json.endObject();
+	}
+	
+	/**
+	 * Returns the path segments after /api/forms/
+	 */
+	/*package*/ static String[] getPath(HttpServletRequest request) {
+		String path = StringUtils.strip(request.getPathInfo(), "/");
+		if (StringUtils.isEmpty(path))
+			return new String[0];
+		return path.split("/");
+	}
+	
+	/**
+	 * Returns the form or sends 404 if the form does not exist
+	 */
+	/*package*/ static Form getForm(String name, HttpServletResponse response) 
+			throws ServletException, IOException {
+		Form form;
+		try {
+			form = FormRegistry.getForm(name);
+		} catch (SQLException e) {
+			throw new ServletException("SQL Error while getting requested form.", e);
+		}
+		if (form == null)
+			response.sendError(404, "Requested form does not exists.");
+		return form;
+	}
+	
+	/**
+	 * Returns the form field by id
+	 * @throws IllegalArgumentException if the field does not exist
+	 */
+	/*package*/ static IFieldInfo<?> getField(String id, FormFieldResolver resolver) {
+		IFieldInfo<?> f = resolver.getFields().get(id);
+		if (f == null || f.getDBField() == null)
+			throw new IllegalArgumentException("Unknown field: " + id);
+		return f;
+	}
+	
+	private static List<IFieldInfo<?>> getFields(String param, Form form, FormFieldResolver resolver) {
+		List<IFieldInfo<?>> fields = new ArrayList<IFieldInfo<?>>();
+		if (StringUtils.isBlank(param)) {
+			for (ResultColumn c : form.getResultList()) {
+				fields.add(getField(c.fieldName, resolver));
+			}
+			return fields;
+		}
+		for (String id : StringUtils.split(param, ',')) {
+			fields.add(getField(id.trim(), resolver));
+		}
+		return fields;
+	}
+	
+	private static List<SortField> getSort(String param, FormFieldResolver resolver) {
+		List<SortField> sort = new ArrayList<SortField>();
+		if (StringUtils.isBlank(param))
+			return sort;
+		for (String id : StringUtils.split(param, ',')) {
+			id = id.trim();
+			boolean descending = id.startsWith("-");
+			if (descending)
+				id = id.substring(1);
+			sort.add(new SortField(getField(id, resolver), descending));
+		}
+		return sort;
+	}
+	
+	private static List<Value<?>> getCondition(HttpServletRequest request, FormFieldResolver resolver) {
+		List<Value<?>> condition = new ArrayList<Value<?>>();
+		Enumeration<String> names = request.getParameterNames();
+		while (names.hasMoreElements()) {
+			String name = names.nextElement();
+			if (RESERVED_PARAMETERS.contains(name))
+				continue;
+			IFieldInfo<?> f = getField(name, resolver);
+			try {
+				condition.add(f.fromString(request.getParameter(name)));
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Wrong value of the field " + name + ": " + e.getMessage());
+			}
+		}
+		return condition;
+	}
+	
+	private static int getInt(HttpServletRequest request, String name, int def) {
+		String value = request.getParameter(name);
+		if (StringUtils.isBlank(value))
+			return def;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Wrong value of the parameter " + name + ".");
+		}
+	}
+	
+	/**
+	 * Sends the error if the response is not committed yet
+	 */
+	/*package*/ static void sendError(HttpServletResponse response, int code, String message) 
+			throws IOException {
+		System.err.println("FormApiServlet: " + message);
+		if (!response.isCommitted()) {
+			response.reset();
+			response.sendError(code, message);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.servlet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+
+/**
+ * Streams JSON to the writer without building the document in memory
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ class JsonWriter {
+	
+	private Writer out;
+	
+	/**
+	 * For each open object or array: true if the first element is not written yet
+	 */
+	private ArrayDeque<Boolean> first = new ArrayDeque<Boolean>();
+	
+	/**
+	 * The name is written, the next value should not be prefixed with the comma
+	 */
+	private boolean named = false;
+	
+	public JsonWriter(Writer out) {
+		this.out = out;
+	}
+	
+	public JsonWriter beginObject() throws IOException {
+		separator();
+		out.write('{');
+		first.push(true);
+		return this;
+	}
+	
+	public JsonWriter endObject() throws IOException {
+		first.pop();
+		out.write('}');
+		return this;
+	}
+	
+	public JsonWriter beginArray() throws IOException {
+		separator();
+		out.write('[');
+		first.push(true);
+		return this;
+	}
+	
+	public JsonWriter endArray() throws IOException {
+		first.pop();
+		out.write(']');
+		return this;
+	}
+	
+	/**
+	 * Writes the object member name, should be followed by the value
+	 */
+	public JsonWriter name(String name) throws IOException {
+		separator();
+		string(name);
+		out.write(':');
+		named = true;
+		return this;
+	}
+	
+	/**
+	 * Writes the value. Numbers and booleans are written as is,
+	 * dates in ISO 8601 format, other objects as strings.
+	 */
+	public JsonWriter value(Object value) throws IOException {
+		separator();
+		if (value == null) {
+			out.write("null");
+		} else if (value instanceof BigDecimal) {
+			out.write(((BigDecimal) value).toPlainString());
+		} else if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			out.write(Double.isNaN(d) || Double.isInfinite(d) ? "null" : value.toString());
+		} else if (value instanceof Number || value instanceof Boolean) {
+			out.write(value.toString());
+		} else if (value instanceof java.sql.Date || value instanceof java.sql.Time) {
+			string(value.toString());
+		} else if (value instanceof Timestamp) {
+			string(value.toString().replace(' ', 'T'));
+		} else if (value instanceof Date) {
+			string(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format((Date) value));
+		} else {
+			string(value.toString());
+		}
+		return this;
+	}
+	
+	public void flush() throws IOException {
+		out.flush();
+	}
+	
+	private void separator() throws IOException {
+		if (named) {
+			named = false;
+			return;
+		}
+		if (first.isEmpty())
+			return;
+		if (first.peek()) {
+			first.pop();
+			first.push(false);
+		} else {
+			out.write(',');
+		}
+	}
+	
+	private void string(String s) throws IOException {
+		out.write('"');
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"': out.write("\\\""); break;
+			case '\\': out.write("\\\\"); break;
+			case '\n': out.write("\\n"); break;
+			case '\r': out.write("\\r"); break;
+			case '\t': out.write("\\t"); break;
+			default:
+				if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+					out.write(String.format("\\u%04x", (int) c));
+				} else {
+					out.write(c);
+				}
+			}
+		}
+		out.write('"');
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.servlet;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.zkoss.lang.Library;
+
+/**
+ * Application wide cache of the static resource payloads.
+ * The cache is bounded by the total size of the data,
+ * least recently used resources are evicted.
+ * Should be invalidated when the resource is changed.
+ * @author peter.liverovsky
+ *
+ */
+public class ResourceCache {
+	
+	/**
+	 * Library property for the maximum size of the cached data in bytes
+	 */
+	public static final String CACHE_SIZE_PROPERTY = "org.sinnlabs.dbvim.resource.cacheSize";
+	
+	/**
+	 * Default maximum size of the cached data, 16 MB
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 16L * 1024 * 1024;
+	
+	/**
+	 * Cached resource
+	 */
+	public static class Resource {
+		
+		private final String contentType;
+		
+		private final ByteBuffer data;
+		
+		private Resource(String contentType, byte[] data) {
+			this.contentType = contentType;
+			this.data = ByteBuffer.wrap(data).asReadOnlyBuffer();
+		}
+		
+		public String getContentType() { return contentType; }
+		
+		/**
+		 * Returns the read only view of the data, the position is independent for each call
+		 */
+		public ByteBuffer getData() { return data.duplicate(); }
+		
+		public int getSize() { return data.capacity(); }
+	}
+	
+	private static final LinkedHashMap<String, Resource> cache = 
+			new LinkedHashMap<String, Resource>(64, 0.75f, true);
+	
+	private static long maxSize = -1;
+	
+	private static long size = 0;
+	
+	/**
+	 * Changed on each invalidation, 
+	 * the resources read before the invalidation are not cached
+	 */
+	private static long generation = 0;
+	
+	/**
+	 * Returns the cached resource
+	 * @param name Resource name
+	 * @return Resource or null if it is not cached
+	 */
+	public static synchronized Resource get(String name) {
+		return cache.get(name);
+	}
+	
+	/**
+	 * Returns the current generation, should be read before the resource is loaded
+	 */
+	public static synchronized long getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * Puts the resource to the cache
+	 * @param name Resource name
+	 * @param contentType Content type
+	 * @param data Resource data, should not be changed after the call
+	 * @param generation Generation read before the resource has been loaded
+	 * @return Cached resource
+	 */
+	public static synchronized Resource put(String name, String contentType, byte[] data, 
+			long generation) {
+		Resource res = new Resource(contentType, data);
+		long max = getMaxSize();
+		// large resources would evict all others
+		if (generation != ResourceCache.generation || res.getSize() > max / 4)
+			return res;
+		
+		Resource old = cache.put(name, res);
+		if (old != null)
+			size -= old.getSize();
+		size += res.getSize();
+		
+		Iterator<Resource> it = cache.values().iterator();
+		while (size > max && it.hasNext()) {
+			size -= it.next().getSize();
+			it.remove();
+		}
+		return res;
+	}
+	
+	/**
+	 * Removes the resource from the cache
+	 * @param name Resource name
+	 */
+	public static synchronized void invalidate(String name) {
+		generation++;
+		Resource old = cache.remove(name);
+		if (old != null)
+			size -= old.getSize();
+	}
+	
+	/**
+	 * Removes all resources from the cache
+	 */
+	public static synchronized void clear() {
+		generation++;
+		cache.clear();
+		size = 0;
+	}
+	
+	private static long getMaxSize() {
+		if (maxSize < 0) {
+			maxSize = DEFAULT_CACHE_SIZE;
+			String prop = Library.getProperty(CACHE_SIZE_PROPERTY);
+			if (StringUtils.isNotBlank(prop)) {
+				try {
+					maxSize = Long.parseLong(prop.trim());
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid " + CACHE_SIZE_PROPERTY + " value: " + prop);
+				}
+			}
+		}
+		return maxSize;
+	}
+}
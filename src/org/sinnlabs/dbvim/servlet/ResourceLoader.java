@@ -1,6 +1,7 @@
 package org.sinnlabs.dbvim.servlet;
 
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.sql.SQLException;
 
 import javax.servlet.ServletException;
@@ -14,7 +15,9 @@ import org.sinnlabs.dbvim.config.ConfigLoader;
 import org.sinnlabs.dbvim.model.StaticResource;
 
 /**
- * Servlet implementation class ResourceLoader
+ * Servlet implementation class ResourceLoader.
+ * Resources are served from the {@link ResourceCache}, 
+ * the configuration database is queried only on the cache miss.
  */
 @WebServlet("/resource/*")
 public class ResourceLoader extends HttpServlet {
@@ -35,19 +38,28 @@ public class ResourceLoader extends HttpServlet {
 		if (path.startsWith("/")) {
 			path = path.substring(1);
 		}
-		try {
-			StaticResource resource = ConfigLoader.getInstance().getStaticResources().queryForId(path);
+		ResourceCache.Resource cached = ResourceCache.get(path);
+		if (cached == null) {
+			long generation = ResourceCache.getGeneration();
+			StaticResource resource;
+			try {
+				resource = ConfigLoader.getInstance().getStaticResources().queryForId(path);
+			} catch (SQLException e) {
+				throw new ServletException("SQL Error while getting requested resource.", e);
+			}
 			if (resource == null) {
 				System.err.println("ResourceLoader: Requested resource does not exists: " + path);
 				response.sendError(404, "Requested resource does not exists.");
-			} else {
-				if (!StringUtils.isEmpty(resource.getContentType()))
-					response.setContentType(resource.getContentType());
-				response.getOutputStream().write(resource.getData());
+				return;
 			}
-		} catch (SQLException e) {
-			throw new ServletException("SQL Error while getting requested resource.", e);
+			byte[] data = resource.getData() != null ? resource.getData() : new byte[0];
+			cached = ResourceCache.put(path, resource.getContentType(), data, generation);
 		}
+		
+		if (!StringUtils.isEmpty(cached.getContentType()))
+			response.setContentType(cached.getContentType());
+		response.setContentLength(cached.getSize());
+		Channels.newChannel(response.getOutputStream()).write(cached.getData());
 	}
 
 }
@@ -0,0 +1,186 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.servlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.sinnlabs.dbvim.db.Value;
+
+/**
+ * Writes the entries as the Office Open XML workbook with the single sheet.
+ * The sheet is written directly to the zip stream, so the rows are not kept in memory.
+ * Texts are written as inline strings, no shared strings table is used.
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ class XlsxExportWriter extends ExportWriter {
+	
+	private static final String XML_HEADER = 
+			"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	
+	private static final String CONTENT_TYPES = XML_HEADER
+			+ "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+			+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+			+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+			+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+			+ "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+			+ "</Types>";
+	
+	private static final String RELS = XML_HEADER
+			+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+			+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+			+ "</Relationships>";
+	
+	private static final String WORKBOOK_RELS = XML_HEADER
+			+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+			+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+			+ "</Relationships>";
+	
+	private ZipOutputStream zip;
+	
+	private Writer out;
+	
+	/**
+	 * Number of the written sheet rows including the header
+	 */
+	private int rowNum = 0;
+	
+	/**
+	 * @param out Output stream
+	 * @param sheetName Sheet name
+	 * @throws IOException
+	 */
+	public XlsxExportWriter(OutputStream out, String sheetName) throws IOException {
+		zip = new ZipOutputStream(out);
+		this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+		
+		writeEntry("[Content_Types].xml", CONTENT_TYPES);
+		writeEntry("_rels/.rels", RELS);
+		writeEntry("xl/workbook.xml", XML_HEADER
+				+ "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+				+ "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+				+ "<sheets><sheet name=\"" + escape(getSheetName(sheetName)) 
+				+ "\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+		writeEntry("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+		
+		// the sheet is written until the writer is closed
+		zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+		this.out.write(XML_HEADER);
+		this.out.write("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+	}
+	
+	@Override
+	public void writeHeader(List<String> labels) throws IOException {
+		startRow();
+		for (int i=0; i<labels.size(); i++) {
+			writeText(i, labels.get(i));
+		}
+		out.write("</row>");
+	}
+
+	@Override
+	protected void doWriteRow(List<Value<?>> values) throws IOException {
+		startRow();
+		for (int i=0; i<values.size(); i++) {
+			Object v = values.get(i).getValue();
+			if (v == null)
+				continue;
+			if (isNumber(v)) {
+				out.write("<c r=\"" + getCellName(i) + "\"><v>" + toText(v) + "</v></c>");
+			} else {
+				writeText(i, toText(v));
+			}
+		}
+		out.write("</row>");
+	}
+	
+	private void startRow() throws IOException {
+		rowNum++;
+		out.write("<row r=\"" + rowNum + "\">");
+	}
+	
+	private void writeText(int column, String text) throws IOException {
+		out.write("<c r=\"" + getCellName(column) + "\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+		out.write(escape(text));
+		out.write("</t></is></c>");
+	}
+	
+	private String getCellName(int column) {
+		StringBuilder name = new StringBuilder();
+		for (int c = column + 1; c > 0; c = (c - 1) / 26) {
+			name.insert(0, (char) ('A' + (c - 1) % 26));
+		}
+		return name.append(rowNum).toString();
+	}
+	
+	private static boolean isNumber(Object v) {
+		if (v instanceof Double)
+			return !((Double) v).isNaN() && !((Double) v).isInfinite();
+		if (v instanceof Float)
+			return !((Float) v).isNaN() && !((Float) v).isInfinite();
+		return v instanceof Integer || v instanceof Long || v instanceof Short 
+				|| v instanceof Byte || v instanceof BigDecimal;
+	}
+	
+	private void writeEntry(String name, String content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		out.write(content);
+		out.flush();
+		zip.closeEntry();
+	}
+	
+	/**
+	 * Sheet names are limited to 31 characters and can not contain []:*?/\
+	 */
+	private static String getSheetName(String name) {
+		if (name == null || name.isEmpty())
+			return "Sheet1";
+		name = name.replaceAll("[\\[\\]:*?/\\\\]", "_");
+		return name.length() > 31 ? name.substring(0, 31) : name;
+	}
+	
+	/**
+	 * Escapes the xml text, characters not allowed in xml are skipped
+	 */
+	private static String escape(String s) {
+		StringBuilder res = new StringBuilder(s.length());
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&': res.append("&amp;"); break;
+			case '<': res.append("&lt;"); break;
+			case '>': res.append("&gt;"); break;
+			case '"': res.append("&quot;"); break;
+			default:
+				if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r')
+					res.append(c);
+			}
+		}
+		return res.toString();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+		zip.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.write("</sheetData></worksheet>");
+		out.flush();
+		zip.closeEntry();
+		zip.finish();
+		zip.flush();
+	}
+}
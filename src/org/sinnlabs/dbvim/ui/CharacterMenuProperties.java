@@ -11,6 +11,7 @@ import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.sinnlabs.dbvim.config.ConfigLoader;
+import org.sinnlabs.dbvim.menu.MenuRegistry;
 import org.sinnlabs.dbvim.menu.MenuResolverFactory;
 import org.sinnlabs.dbvim.model.CharacterMenu;
 import org.sinnlabs.dbvim.model.CharacterMenuItem;
@@ -177,6 +178,7 @@ public class CharacterMenuProperties extends Window {
 			}
 			ConfigLoader.getInstance().getCharacterMenu().update(menu);
 		}
+		MenuRegistry.invalidate(menu.getName());
 		
 		nSelectedAction = DD_OK;
 		Event closeEvent = new Event(Events.ON_CLOSE, this);
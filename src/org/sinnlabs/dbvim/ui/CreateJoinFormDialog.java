@@ -200,7 +200,7 @@ public class CreateJoinFormDialog extends Window {
 			@Override
 			public void onEvent(MouseEvent arg0) throws Exception {
 				if (lstFirstFields.getSelectedItem() != null) {
-					IField<?> f = lstFirstFields.getSelectedItem().getValue();
+					IFieldInfo<?> f = lstFirstFields.getSelectedItem().getValue();
 					txtCondition.setText(txtCondition.getText() + "'" + f.getId() + "'");
 				}
 			}
@@ -212,7 +212,7 @@ public class CreateJoinFormDialog extends Window {
 			@Override
 			public void onEvent(MouseEvent arg0) throws Exception {
 				if (lstSecondFields.getSelectedItem() != null) {
-					IField<?> f = lstSecondFields.getSelectedItem().getValue();
+					IFieldInfo<?> f = lstSecondFields.getSelectedItem().getValue();
 					txtCondition.setText(txtCondition.getText() + "`" + f.getId() + "`");
 				}
 			}
@@ -346,9 +346,9 @@ public class CreateJoinFormDialog extends Window {
 		tabSecond.setLabel(rightForm.getName() + " fields");
 	}
 	
-	private void fillFieldList(Listbox list, Collection<IField<?>> fields) {
+	private void fillFieldList(Listbox list, Collection<IFieldInfo<?>> fields) {
 		list.getItems().clear();
-		for(IField<?> f: fields) {
+		for(IFieldInfo<?> f: fields) {
 			Listitem item = new Listitem();
 			Listcell id = new Listcell();
 			Listcell title = new Listcell();
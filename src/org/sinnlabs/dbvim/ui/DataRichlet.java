@@ -5,23 +5,21 @@ package org.sinnlabs.dbvim.ui;
 
 import java.sql.SQLException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.sinnlabs.dbvim.config.ConfigLoader;
+import org.sinnlabs.dbvim.form.FormRegistry;
 import org.sinnlabs.dbvim.model.Form;
 import org.sinnlabs.dbvim.zk.model.IFormComposer;
+import org.sinnlabs.dbvim.zk.model.PageDefinitionCache;
 import org.zkoss.zk.ui.Component;
 import org.zkoss.zk.ui.Executions;
 import org.zkoss.zk.ui.GenericRichlet;
 import org.zkoss.zk.ui.Page;
 import org.zkoss.zul.Idspace;
 
-import com.j256.ormlite.stmt.Where;
-
 /**
  * Class that build user interface for forms URL is /formname action - search or
  * submit
@@ -81,7 +79,7 @@ public class DataRichlet extends GenericRichlet {
 		Map<String, Object> args = new HashMap<String, Object>();
 		args.put("form", form);
 		args.put("params", params);
-		Executions.createComponents("/components/search_page.zul", root, args);
+		PageDefinitionCache.createComponents("/components/search_page.zul", root, args);
 	}
 
 	private void setError(int err) {
@@ -93,19 +91,16 @@ public class DataRichlet extends GenericRichlet {
 	private Form getForm(String formName) {
 		// search current form
 		try {
-			Where<Form, String> w = ConfigLoader.getInstance().getForms()
-					.queryBuilder().where().eq(Form.NAME_FIELD_NAME, formName);
-			List<Form> l = ConfigLoader.getInstance().getForms()
-					.query(w.prepare());
-			if (l.isEmpty()) {
+			Form f = FormRegistry.getForm(formName);
+			if (f == null) {
 				System.err.println("Form does not exist: " + formName);
 				return null;
 			}
 
-			return l.get(0);
+			return f;
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
 		return null;
 	}
-}
\ No newline at end of file
+}
@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
+import org.apache.commons.lang3.StringUtils;
 import org.sinnlabs.dbvim.db.Value;
 import org.sinnlabs.dbvim.db.model.DBField;
 import org.sinnlabs.dbvim.evaluator.DatabaseConditionBuilder;
@@ -25,6 +26,7 @@ import org.zkoss.zk.ui.select.Selectors;
 import org.zkoss.zk.ui.select.annotation.Wire;
 import org.zkoss.zul.Button;
 import org.zkoss.zul.Checkbox;
+import org.zkoss.zul.Hlayout;
 import org.zkoss.zul.Listbox;
 import org.zkoss.zul.Listcell;
 import org.zkoss.zul.Listitem;
@@ -48,6 +50,12 @@ public class FormPropertiesDialog extends Window {
 	@Wire
 	Textbox txtFormName;
 	
+	@Wire
+	Hlayout rowVersion;
+	
+	@Wire
+	Textbox txtRowVersionColumn;
+	
 	@Wire
 	Listbox lstAvailableFields;
 	
@@ -90,7 +98,7 @@ public class FormPropertiesDialog extends Window {
 	
 	Form form;
 	
-	HashMap<String, IField<?>> fields;
+	HashMap<String, IFieldInfo<?>> fields;
 
 	public FormPropertiesDialog(Form form) throws Exception {
 		super();
@@ -108,6 +116,7 @@ public class FormPropertiesDialog extends Window {
 		setClosable(false);
 		setTitle("Form name");
 		txtFormName.setValue(form.getTitle());
+		txtRowVersionColumn.setValue(form.getRowVersionColumn());
 		
 		addEventListeners();
 		
@@ -129,7 +138,7 @@ public class FormPropertiesDialog extends Window {
 		lstResultFields.getItems().clear();
 		
 		boolean contains = false;
-		for(IField<?> f : fields.values()) {
+		for(IFieldInfo<?> f : fields.values()) {
 			// it is not possible to use display only fields for the form result list
 			if (f.isDisplayOnly())
 				continue;
@@ -154,6 +163,8 @@ public class FormPropertiesDialog extends Window {
 		}
 		
 		if (form.isJoin()) {
+			// join forms do not have own table
+			rowVersion.setVisible(false);
 			tabJoin.setVisible(true);
 			FormFieldResolver leftResolver = FormFieldResolverFactory.getResolver(form.getLeftForm());
 			fillFieldList(lstFirstFields, leftResolver.getFields().values());
@@ -168,9 +179,9 @@ public class FormPropertiesDialog extends Window {
 		}
 	}
 	
-	private void fillFieldList(Listbox list, Collection<IField<?>> fields) {
+	private void fillFieldList(Listbox list, Collection<IFieldInfo<?>> fields) {
 		list.getItems().clear();
-		for(IField<?> f: fields) {
+		for(IFieldInfo<?> f: fields) {
 			Listitem item = new Listitem();
 			Listcell id = new Listcell();
 			Listcell title = new Listcell();
@@ -251,7 +262,7 @@ public class FormPropertiesDialog extends Window {
 			@Override
 			public void onEvent(MouseEvent arg0) throws Exception {
 				if (lstFirstFields.getSelectedItem() != null) {
-					IField<?> f = lstFirstFields.getSelectedItem().getValue();
+					IFieldInfo<?> f = lstFirstFields.getSelectedItem().getValue();
 					txtCondition.setText(txtCondition.getText() + "'" + f.getId() + "'");
 				}
 			}
@@ -263,7 +274,7 @@ public class FormPropertiesDialog extends Window {
 			@Override
 			public void onEvent(MouseEvent arg0) throws Exception {
 				if (lstSecondFields.getSelectedItem() != null) {
-					IField<?> f = lstSecondFields.getSelectedItem().getValue();
+					IFieldInfo<?> f = lstSecondFields.getSelectedItem().getValue();
 					txtCondition.setText(txtCondition.getText() + "`" + f.getId() + "`");
 				}
 			}
@@ -330,6 +341,8 @@ public class FormPropertiesDialog extends Window {
 		}
 		form.setResultList(resLst);
 		form.setTitle(txtFormName.getValue());
+		if (!form.isJoin())
+			form.setRowVersionColumn(StringUtils.trimToNull(txtRowVersionColumn.getValue()));
 		
 		if (form.isJoin()) {
 			//TODO Check join condition;
@@ -9,10 +9,11 @@ import org.sinnlabs.dbvim.db.Value;
 import org.sinnlabs.dbvim.db.model.DBField;
 
 /**
+ * Form field component
  * @author peter.liverovsky
  *
  */
-public interface IField<T> {
+public interface IField<T> extends IFieldInfo<T> {
 	
 	public static final int MODE_SEARCH=0;
 	
@@ -25,17 +26,6 @@ public interface IField<T> {
 	 */
 	public void setDBField(DBField field);
 	
-	/**
-	 * Returns DBField object
-	 */
-	public DBField getDBField();
-	
-	/**
-	 * Used for set mapping when component loaded from ZUML
-	 * @return
-	 */
-	public String getMapping();
-	
 	/**
 	 * Used for set mapping when component loaded from ZUML
 	 * @param map
@@ -48,12 +38,6 @@ public interface IField<T> {
 	 */
 	public void setForm(String form);
 	
-	/**
-	 * Used to set mapping to Join forms
-	 * @return
-	 */
-	public String getForm();
-
 	/**
 	 * Set the field value
 	 * @param v
@@ -100,41 +84,22 @@ public interface IField<T> {
 	public void setFieldMode(int mode);
 	
 	/**
-	 * Returns field ID
-	 * @return
-	 */
-	public String getId();
-	
-	/**
-	 * Converts string to value
-	 * @param string String to be converted. If string is null then null value returned.
-	 * @return
-	 */
-	public Value<T> fromString(String string);
-	
-	/**
-	 * Try to convert Object to value
-	 * @param val Object to be converted
-	 * @return
-	 */
-	public Value<T> fromObject(Object val);
-	
-	/**
-	 * Returns field label
+	 * Sets the display only flag
+	 * @param val - true if field is DisplayOnly, otherwise false
 	 */
-	public String getLabel();
+	public void setDisplayOnly(boolean val);
 	
 	/**
-	 * Indicates that field is Display Only. (not mapped to any db field)
-	 * @return
+	 * Indicates that the field value was changed after it was loaded from the entry
+	 * @return true if the value was changed by the user or by the script, otherwise false
 	 */
-	public boolean isDisplayOnly();
+	public boolean isDirty();
 	
 	/**
-	 * Sets the display only flag
-	 * @param val - true if field is DisplayOnly, otherwise false
+	 * Sets the dirty flag
+	 * @param val - false to mark the value as saved or loaded
 	 */
-	public void setDisplayOnly(boolean val);
+	public void setDirty(boolean val);
 	
 	/**
 	 * Calls when all components attributes are loaded
@@ -0,0 +1,65 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.ui;
+
+import org.sinnlabs.dbvim.db.Value;
+import org.sinnlabs.dbvim.db.model.DBField;
+
+/**
+ * Read only properties of the form field.
+ * Implemented by the field components and by the fields resolved 
+ * from the form view without the UI.
+ * @author peter.liverovsky
+ *
+ */
+public interface IFieldInfo<T> {
+	
+	/**
+	 * Returns DBField object
+	 */
+	public DBField getDBField();
+	
+	/**
+	 * Used for set mapping when component loaded from ZUML
+	 * @return
+	 */
+	public String getMapping();
+	
+	/**
+	 * Used to set mapping to Join forms
+	 * @return
+	 */
+	public String getForm();
+	
+	/**
+	 * Returns field ID
+	 * @return
+	 */
+	public String getId();
+	
+	/**
+	 * Converts string to value
+	 * @param string String to be converted. If string is null then null value returned.
+	 * @return
+	 */
+	public Value<T> fromString(String string);
+	
+	/**
+	 * Try to convert Object to value
+	 * @param val Object to be converted
+	 * @return
+	 */
+	public Value<T> fromObject(Object val);
+	
+	/**
+	 * Returns field label
+	 */
+	public String getLabel();
+	
+	/**
+	 * Indicates that field is Display Only. (not mapped to any db field)
+	 * @return
+	 */
+	public boolean isDisplayOnly();
+}
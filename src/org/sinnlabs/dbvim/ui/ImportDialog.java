@@ -0,0 +1,427 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.ui;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.sinnlabs.dbvim.db.BulkImport;
+import org.sinnlabs.dbvim.db.CsvReader;
+import org.sinnlabs.dbvim.db.DataExecutor;
+import org.sinnlabs.dbvim.db.Database;
+import org.sinnlabs.dbvim.db.DatabaseFactory;
+import org.sinnlabs.dbvim.form.FormFieldResolver;
+import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.model.Form;
+import org.zkoss.util.media.Media;
+import org.zkoss.zk.ui.Desktop;
+import org.zkoss.zk.ui.DesktopUnavailableException;
+import org.zkoss.zk.ui.Executions;
+import org.zkoss.zk.ui.event.Event;
+import org.zkoss.zk.ui.event.EventListener;
+import org.zkoss.zk.ui.event.Events;
+import org.zkoss.zk.ui.event.MouseEvent;
+import org.zkoss.zk.ui.event.UploadEvent;
+import org.zkoss.zk.ui.select.Selectors;
+import org.zkoss.zk.ui.select.annotation.Wire;
+import org.zkoss.zul.Button;
+import org.zkoss.zul.Checkbox;
+import org.zkoss.zul.Filedownload;
+import org.zkoss.zul.Label;
+import org.zkoss.zul.Listbox;
+import org.zkoss.zul.Listcell;
+import org.zkoss.zul.Listitem;
+import org.zkoss.zul.Messagebox;
+import org.zkoss.zul.Row;
+import org.zkoss.zul.Rows;
+import org.zkoss.zul.Window;
+
+/**
+ * Imports the CSV file into the form.
+ * The first line of the file should contain the column names,
+ * columns are mapped to the form fields by the field id or label.
+ * The import runs in the background, the progress is pushed to the client.
+ * @author peter.liverovsky
+ *
+ */
+public class ImportDialog extends Window {
+
+	private static final long serialVersionUID = 6829146420195723054L;
+
+	private Form form;
+	
+	private Database db;
+	
+	/**
+	 * Form fields sorted by id
+	 */
+	private List<IFieldInfo<?>> fields;
+	
+	private Media media;
+	
+	private char separator;
+	
+	/**
+	 * Field selector for each CSV column
+	 */
+	private List<Listbox> mapping = new ArrayList<Listbox>();
+	
+	private BulkImport bulkImport;
+	
+	@Wire
+	Button btnUpload;
+	
+	@Wire
+	Label lblFile;
+	
+	@Wire
+	Rows rowsMapping;
+	
+	@Wire
+	Checkbox chkUpsert;
+	
+	@Wire
+	Label lblProgress;
+	
+	@Wire
+	Listbox lstErrors;
+	
+	@Wire
+	Button btnImport;
+	
+	@Wire
+	Button btnReport;
+	
+	@Wire
+	Button btnCancel;
+	
+	@Wire
+	Button btnClose;
+	
+	/**
+	 * @param form Form to import the entries into
+	 * @throws Exception
+	 */
+	public ImportDialog(Form form) throws Exception {
+		super();
+		this.form = form;
+		FormFieldResolver resolver = FormFieldResolverFactory.getResolver(form);
+		db = DatabaseFactory.createInstance(form, resolver);
+		fields = new ArrayList<IFieldInfo<?>>();
+		for (IFieldInfo<?> f : resolver.getFields().values()) {
+			if (!f.isDisplayOnly())
+				fields.add(f);
+		}
+		Collections.sort(fields, new Comparator<IFieldInfo<?>>() {
+
+			@Override
+			public int compare(IFieldInfo<?> o1, IFieldInfo<?> o2) {
+				return o1.getId().compareTo(o2.getId());
+			}
+			
+		});
+		
+		/* create the ui */
+		Executions.createComponents("/components/importdialog.zul", this, null);
+		Selectors.wireComponents(this, this, false);
+		setBorder("normal");
+		setClosable(true);
+		setSizable(true);
+		setTitle("Import into " + form.getName());
+		setWidth("600px");
+		setHeight("500px");
+		
+		addEventListeners();
+	}
+	
+	private void addEventListeners() {
+		btnUpload.addEventListener(Events.ON_UPLOAD, new EventListener<UploadEvent>() {
+
+			@Override
+			public void onEvent(UploadEvent e) throws Exception {
+				btnUpload_onUpload(e.getMedia());
+			}
+			
+		});
+		
+		btnImport.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
+
+			@Override
+			public void onEvent(MouseEvent e) throws Exception {
+				btnImport_onClick();
+			}
+			
+		});
+		
+		btnCancel.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
+
+			@Override
+			public void onEvent(MouseEvent e) throws Exception {
+				if (bulkImport != null)
+					bulkImport.cancel();
+				btnCancel.setDisabled(true);
+				lblProgress.setValue("Cancelling...");
+			}
+			
+		});
+		
+		btnReport.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
+
+			@Override
+			public void onEvent(MouseEvent e) throws Exception {
+				Filedownload.save(getErrorReport(), "text/csv", 
+						form.getName() + "_import_errors.csv");
+			}
+			
+		});
+		
+		btnClose.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
+
+			@Override
+			public void onEvent(MouseEvent e) throws Exception {
+				onClose();
+			}
+			
+		});
+	}
+	
+	@Override
+	public void onClose() {
+		// the running import is stopped after the current chunk
+		if (bulkImport != null)
+			bulkImport.cancel();
+		super.onClose();
+	}
+	
+	private void btnUpload_onUpload(Media media) throws IOException {
+		List<String> header;
+		BufferedReader in = new BufferedReader(openReader(media));
+		try {
+			String line = in.readLine();
+			if (line == null) {
+				Messagebox.show("The file is empty.", "Import", Messagebox.OK, Messagebox.EXCLAMATION);
+				return;
+			}
+			separator = CsvReader.detectSeparator(line);
+		} finally {
+			in.close();
+		}
+		CsvReader reader = new CsvReader(openReader(media), separator);
+		try {
+			header = reader.readRecord();
+		} finally {
+			reader.close();
+		}
+		
+		this.media = media;
+		lblFile.setValue(media.getName());
+		rowsMapping.getChildren().clear();
+		mapping.clear();
+		for (String column : header) {
+			Row row = new Row();
+			row.appendChild(new Label(column));
+			Listbox lst = createFieldList(column.trim());
+			row.appendChild(lst);
+			rowsMapping.appendChild(row);
+			mapping.add(lst);
+		}
+		btnImport.setDisabled(false);
+	}
+	
+	/**
+	 * Creates the field selector, the field is selected by the column name
+	 */
+	private Listbox createFieldList(String column) {
+		Listbox lst = new Listbox();
+		lst.setMold("select");
+		lst.setHflex("1");
+		Listitem skip = new Listitem();
+		skip.appendChild(new Listcell("(skip)"));
+		lst.getItems().add(skip);
+		lst.setSelectedItem(skip);
+		for (IFieldInfo<?> f : fields) {
+			Listitem item = new Listitem();
+			item.appendChild(new Listcell(f.getId() + 
+					(f.getLabel() != null ? " (" + f.getLabel() + ")" : "")));
+			item.setValue(f);
+			lst.getItems().add(item);
+			if (f.getId().equalsIgnoreCase(column) || 
+					(f.getLabel() != null && f.getLabel().trim().equalsIgnoreCase(column)))
+				lst.setSelectedItem(item);
+		}
+		return lst;
+	}
+	
+	private void btnImport_onClick() throws IOException {
+		List<IFieldInfo<?>> columns = new ArrayList<IFieldInfo<?>>();
+		boolean mapped = false;
+		for (Listbox lst : mapping) {
+			IFieldInfo<?> f = lst.getSelectedItem() != null ? 
+					(IFieldInfo<?>) lst.getSelectedItem().getValue() : null;
+			columns.add(f);
+			if (f != null)
+				mapped = true;
+		}
+		if (!mapped) {
+			Messagebox.show("Map at least one column to the form field.", "Import", 
+					Messagebox.OK, Messagebox.EXCLAMATION);
+			return;
+		}
+		
+		try {
+			bulkImport = new BulkImport(db, columns, chkUpsert.isChecked(), 
+					BulkImport.DEFAULT_CHUNK_SIZE);
+		} catch (IllegalArgumentException e) {
+			Messagebox.show(e.getMessage(), "Import", Messagebox.OK, Messagebox.EXCLAMATION);
+			return;
+		}
+		
+		btnImport.setDisabled(true);
+		btnUpload.setDisabled(true);
+		btnCancel.setDisabled(false);
+		btnReport.setVisible(false);
+		lstErrors.getItems().clear();
+		lstErrors.setVisible(false);
+		lblProgress.setValue("Importing...");
+		
+		final CsvReader reader = new CsvReader(openReader(media), separator);
+		// skip the header
+		reader.readRecord();
+		start(reader);
+	}
+	
+	private void start(final CsvReader reader) {
+		final Desktop desktop = getDesktop();
+		desktop.enableServerPush(true);
+		final BulkImport task = bulkImport;
+		
+		final EventListener<Event> progressListener = new EventListener<Event>() {
+
+			@Override
+			public void onEvent(Event e) throws Exception {
+				int[] p = (int[]) e.getData();
+				lblProgress.setValue(p[0] + " rows read, " + p[1] + " imported, " + p[2] + " failed");
+			}
+			
+		};
+		
+		final EventListener<Event> finishListener = new EventListener<Event>() {
+
+			@Override
+			public void onEvent(Event e) throws Exception {
+				desktop.enableServerPush(false);
+				onFinish(task, (Exception) e.getData());
+			}
+			
+		};
+		
+		try {
+			submit(desktop, task, reader, progressListener, finishListener);
+		} catch (RejectedExecutionException e) {
+			desktop.enableServerPush(false);
+			try {
+				reader.close();
+			} catch (IOException e1) {
+				e1.printStackTrace();
+			}
+			btnCancel.setDisabled(true);
+			btnUpload.setDisabled(false);
+			btnImport.setDisabled(false);
+			lblProgress.setValue("");
+			Messagebox.show("Other imports or updates are running. Try again later.", "Import", 
+					Messagebox.OK, Messagebox.EXCLAMATION);
+		}
+	}
+	
+	private void submit(final Desktop desktop, final BulkImport task, final CsvReader reader, 
+			final EventListener<Event> progressListener, final EventListener<Event> finishListener) {
+		DataExecutor.submitBulk(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				Exception error = null;
+				try {
+					task.execute(reader, new BulkImport.ProgressListener() {
+						
+						@Override
+						public void onProgress(int rows, int imported, int errors) {
+							try {
+								Executions.schedule(desktop, progressListener, 
+										new Event("onProgress", null, new int[] {rows, imported, errors}));
+							} catch (DesktopUnavailableException e) {
+								// the user left the page
+								task.cancel();
+							}
+						}
+					});
+				} catch (Exception e) {
+					e.printStackTrace();
+					error = e;
+				} finally {
+					reader.close();
+				}
+				try {
+					Executions.schedule(desktop, finishListener, 
+							new Event("onFinish", null, error));
+				} catch (DesktopUnavailableException e) {
+					System.err.println("WARN: Import finished after the desktop was closed.");
+				}
+				return null;
+			}
+			
+		});
+	}
+	
+	private void onFinish(BulkImport task, Exception error) {
+		btnCancel.setDisabled(true);
+		btnUpload.setDisabled(false);
+		btnImport.setDisabled(false);
+		
+		String status = task.getRows() + " rows read, " + task.getImported() + 
+				" imported, " + task.getErrorCount() + " failed";
+		if (task.isCancelled())
+			status += " (cancelled)";
+		lblProgress.setValue(status);
+		
+		for (BulkImport.RowError err : task.getErrors()) {
+			Listitem item = new Listitem();
+			item.appendChild(new Listcell(String.valueOf(err.getLine())));
+			item.appendChild(new Listcell(err.getMessage()));
+			lstErrors.getItems().add(item);
+		}
+		lstErrors.setVisible(!task.getErrors().isEmpty());
+		btnReport.setVisible(!task.getErrors().isEmpty());
+		
+		if (error != null)
+			Messagebox.show("Unable to import the file: " + error.getMessage(), "Error", 
+					Messagebox.OK, Messagebox.ERROR);
+	}
+	
+	/**
+	 * Builds CSV report of the rows that were not imported
+	 */
+	private String getErrorReport() {
+		StringBuilder res = new StringBuilder("Line,Error\r\n");
+		for (BulkImport.RowError err : bulkImport.getErrors()) {
+			res.append(err.getLine()).append(",\"")
+				.append(err.getMessage().replace("\"", "\"\"")).append("\"\r\n");
+		}
+		return res.toString();
+	}
+	
+	private static Reader openReader(Media media) {
+		if (media.isBinary())
+			return new InputStreamReader(media.getStreamData(), StandardCharsets.UTF_8);
+		return media.getReaderData();
+	}
+}
@@ -10,6 +10,8 @@ import java.sql.SQLException;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.sinnlabs.dbvim.config.ConfigLoader;
+import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.form.FormRegistry;
 import org.sinnlabs.dbvim.model.DBConnection;
 import org.sinnlabs.dbvim.model.Form;
 import org.sinnlabs.dbvim.ui.modeltree.FormTreeNode;
@@ -61,6 +63,9 @@ public class ModelTree extends Idspace {
 	
 	@Wire
 	protected Toolbarbutton btnEditFormXML;
+	
+	@Wire
+	protected Toolbarbutton btnImport;
 
 	public ModelTree() throws SQLException {
 
@@ -118,7 +123,8 @@ public class ModelTree extends Idspace {
 					public void onEvent(Event arg0) throws Exception {
 						if (dialog.getSelectedAction() == ExpandWindow.DD_OK) {
 							frm.setView(beautyHTML(dialog.getText()));
-							ConfigLoader.getInstance().getForms().update(frm);
+							FormRegistry.save(frm);
+							FormFieldResolverFactory.refreshItem(frm);
 						}
 					}
 					
@@ -129,6 +135,29 @@ public class ModelTree extends Idspace {
 		}
 	}
 	
+	/**
+	 * Import CSV file into the selected form
+	 * @throws Exception
+	 */
+	private void btnImport_onClick() throws Exception {
+		final Treeitem selected = trModelTree.getSelectedItem();
+		if (selected != null) {
+			Object value = selected.getValue();
+			// Check selected item type
+			if (value instanceof FormTreeNode) {
+				Form frm = (Form) ((FormTreeNode)value).getForm();
+				if (frm.isJoin()) {
+					Messagebox.show("Import into the join form is not supported.", "Import", 
+							Messagebox.OK, Messagebox.EXCLAMATION);
+					return;
+				}
+				ImportDialog dialog = new ImportDialog(frm);
+				this.appendChild(dialog);
+				dialog.doModal();
+			}
+		}
+	}
+	
 	private String beautyHTML(String html) throws UnsupportedEncodingException {
 		Tidy tidy = new Tidy();
 		tidy.setInputEncoding("UTF-8");
@@ -198,6 +227,15 @@ public class ModelTree extends Idspace {
 			
 		});
 		
+		btnImport.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
+
+			@Override
+			public void onEvent(MouseEvent arg0) throws Exception {
+				btnImport_onClick();
+			}
+			
+		});
+		
 		/* Delete selected tree item */
 		btnDelete.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
 
@@ -221,8 +259,7 @@ public class ModelTree extends Idspace {
 								}
 								if (value instanceof FormTreeNode) {
 									Form frm = (Form) ((FormTreeNode)value).getForm();
-									ConfigLoader.getInstance().getForms()
-										.delete(frm);
+									FormRegistry.delete(frm);
 									RefreshTree();
 								}
 							}
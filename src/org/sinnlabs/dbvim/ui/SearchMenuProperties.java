@@ -17,6 +17,10 @@ import org.zkoss.zk.ui.select.Selectors;
 import org.zkoss.zk.ui.select.annotation.Listen;
 import org.zkoss.zk.ui.select.annotation.Wire;
 import org.zkoss.zul.Button;
+import org.zkoss.zul.Checkbox;
+import org.zkoss.zul.Intbox;
+import org.zkoss.zul.Listbox;
+import org.zkoss.zul.Listitem;
 import org.zkoss.zul.Messagebox;
 import org.zkoss.zul.Textbox;
 import org.zkoss.zul.Window;
@@ -63,6 +67,18 @@ public class SearchMenuProperties extends Window {
 	@Wire
 	protected Textbox txtQualification;
 	
+	@Wire
+	protected Listbox lstRefreshPolicy;
+	
+	@Wire
+	protected Intbox txtCacheTimeout;
+	
+	@Wire
+	protected Checkbox chkTypeahead;
+	
+	@Wire
+	protected Intbox txtItemsLimit;
+	
 	@Wire
 	protected Button btnOK;
 	
@@ -86,9 +102,9 @@ public class SearchMenuProperties extends Window {
 		Selectors.wireComponents(this, this, false);
 		Selectors.wireEventListeners(this, this);
 		setBorder("normal");
-		setMinheight(250);
+		setMinheight(370);
 		setMinwidth(300);
-		setHeight("250px");
+		setHeight("370px");
 		setWidth("300px");
 		setClosable(true);
 		setSizable(true);
@@ -111,6 +127,13 @@ public class SearchMenuProperties extends Window {
 		} else {
 			
 		}
+		for (Listitem i : lstRefreshPolicy.getItems()) {
+			if (Integer.parseInt((String) i.getValue()) == menu.getRefreshPolicy())
+				lstRefreshPolicy.setSelectedItem(i);
+		}
+		txtCacheTimeout.setValue(menu.getCacheTimeout());
+		chkTypeahead.setChecked(menu.isTypeahead());
+		txtItemsLimit.setValue(menu.getItemsLimit());
 	}
 	
 	public int getSelectedAction() {
@@ -166,6 +189,14 @@ public class SearchMenuProperties extends Window {
 		menu.setValueField(txtValueField.getText());
 		menu.setName(txtName.getText());
 		menu.setQualification(txtQualification.getText());
+		if (lstRefreshPolicy.getSelectedItem() != null)
+			menu.setRefreshPolicy(Integer.parseInt(
+					(String) lstRefreshPolicy.getSelectedItem().getValue()));
+		if (txtCacheTimeout.getValue() != null)
+			menu.setCacheTimeout(txtCacheTimeout.getValue());
+		menu.setTypeahead(chkTypeahead.isChecked());
+		if (txtItemsLimit.getValue() != null)
+			menu.setItemsLimit(txtItemsLimit.getValue());
 		
 		nSelectedAction = DD_OK;
 		// Close dialog window
@@ -5,6 +5,7 @@ package org.sinnlabs.dbvim.ui;
 
 import java.sql.SQLException;
 
+import org.sinnlabs.dbvim.form.FieldDescriptor;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
 import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
 import org.sinnlabs.dbvim.model.Form;
@@ -142,8 +143,8 @@ public class SelectJoinFieldDialog extends Window {
 	 * @param fieldType
 	 */
 	private void addFields(FormFieldResolver resolver, String fieldType, String formName) {
-		for(IField<?> field : resolver.getFields().values()) {
-			if (field.getClass().getName().equals(fieldType) && !field.isDisplayOnly()) {
+		for(FieldDescriptor field : resolver.getDescriptor().getFields()) {
+			if (field.getType().equals(fieldType) && !field.isDisplayOnly()) {
 				Listitem item = new Listitem();
 				Listcell id = new Listcell();
 				Listcell form = new Listcell();
@@ -274,7 +274,7 @@ public class TableFieldProperties extends Window {
 		
 		List<TableColumnField> columns = tableField.getTableColumns();
 		
-		for (IField<?> f : resolver.getFields().values()) {
+		for (IFieldInfo<?> f : resolver.getFields().values()) {
 			// skip all display only fields
 			// because they do not store the values
 			if (f.isDisplayOnly())
@@ -306,7 +306,7 @@ public class TableFieldProperties extends Window {
 	 * @param field Field to be checked
 	 * @return
 	 */
-	private boolean isColumnAdded(List<TableColumnField> columns, IField<?> field) {
+	private boolean isColumnAdded(List<TableColumnField> columns, IFieldInfo<?> field) {
 		for (TableColumnField c : columns) {
 			if (c.getField().equals(field.getId()))
 				return true;
@@ -0,0 +1,186 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.ui;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.sinnlabs.dbvim.db.ChunkedUpdate;
+import org.sinnlabs.dbvim.db.DataExecutor;
+import org.zkoss.zk.ui.Desktop;
+import org.zkoss.zk.ui.DesktopUnavailableException;
+import org.zkoss.zk.ui.Executions;
+import org.zkoss.zk.ui.event.Event;
+import org.zkoss.zk.ui.event.EventListener;
+import org.zkoss.zk.ui.event.Events;
+import org.zkoss.zk.ui.event.MouseEvent;
+import org.zkoss.zk.ui.select.Selectors;
+import org.zkoss.zk.ui.select.annotation.Wire;
+import org.zkoss.zul.Button;
+import org.zkoss.zul.Label;
+import org.zkoss.zul.Progressmeter;
+import org.zkoss.zul.Window;
+
+/**
+ * Runs the {@link ChunkedUpdate} in the background and shows the progress.
+ * The progress is pushed to the client with the server push.
+ * The onClose event is sent when the update is finished.
+ * @author peter.liverovsky
+ *
+ */
+public class UpdateProgressDialog extends Window {
+
+	private static final long serialVersionUID = -3410468290763531782L;
+
+	private ChunkedUpdate update;
+	
+	/**
+	 * Expected number of the entries, 0 if not known
+	 */
+	private int total;
+	
+	private int updated = 0;
+	
+	private Exception error;
+	
+	@Wire
+	Label lblProgress;
+	
+	@Wire
+	Progressmeter progress;
+	
+	@Wire
+	Button btnCancel;
+	
+	/**
+	 * @param update Update to be executed
+	 * @param total Expected number of the entries, 0 if not known
+	 */
+	public UpdateProgressDialog(ChunkedUpdate update, int total) {
+		super();
+		this.update = update;
+		this.total = total;
+		
+		/* create the ui */
+		Executions.createComponents("/components/updateprogressdialog.zul", this, null);
+		Selectors.wireComponents(this, this, false);
+		setBorder("normal");
+		setClosable(false);
+		setTitle("Update entries");
+		setWidth("400px");
+		
+		btnCancel.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
+
+			@Override
+			public void onEvent(MouseEvent arg0) throws Exception {
+				UpdateProgressDialog.this.update.cancel();
+				btnCancel.setDisabled(true);
+				lblProgress.setValue("Cancelling...");
+			}
+			
+		});
+	}
+	
+	/**
+	 * Starts the update. The dialog should be attached to the page.
+	 * @return false if the update is not started because other bulk operations are running
+	 */
+	public boolean start() {
+		final Desktop desktop = getDesktop();
+		desktop.enableServerPush(true);
+		
+		final EventListener<Event> progressListener = new EventListener<Event>() {
+
+			@Override
+			public void onEvent(Event e) throws Exception {
+				setProgress((Integer) e.getData());
+			}
+			
+		};
+		
+		final EventListener<Event> finishListener = new EventListener<Event>() {
+
+			@Override
+			public void onEvent(Event e) throws Exception {
+				desktop.enableServerPush(false);
+				if (e.getData() instanceof Exception)
+					error = (Exception) e.getData();
+				else
+					updated = (Integer) e.getData();
+				Events.sendEvent(new Event(Events.ON_CLOSE, UpdateProgressDialog.this));
+			}
+			
+		};
+		
+		try {
+			submit(desktop, progressListener, finishListener);
+		} catch (RejectedExecutionException e) {
+			desktop.enableServerPush(false);
+			return false;
+		}
+		return true;
+	}
+	
+	private void submit(final Desktop desktop, final EventListener<Event> progressListener, 
+			final EventListener<Event> finishListener) {
+		DataExecutor.submitBulk(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				Object result;
+				try {
+					result = update.execute(new ChunkedUpdate.ProgressListener() {
+						
+						@Override
+						public void onProgress(int count) {
+							try {
+								Executions.schedule(desktop, progressListener, 
+										new Event("onProgress", null, count));
+							} catch (DesktopUnavailableException e) {
+								// the user left the page
+								update.cancel();
+							}
+						}
+					});
+				} catch (Exception e) {
+					e.printStackTrace();
+					result = e;
+				}
+				try {
+					Executions.schedule(desktop, finishListener, 
+							new Event("onFinish", null, result));
+				} catch (DesktopUnavailableException e) {
+					System.err.println("WARN: Update finished after the desktop was closed.");
+				}
+				return null;
+			}
+			
+		});
+	}
+	
+	private void setProgress(int count) {
+		updated = count;
+		if (total > 0) {
+			progress.setValue((int) Math.min(100, (long) count * 100 / total));
+			lblProgress.setValue(count + " of " + total + " entries updated");
+		} else {
+			lblProgress.setValue(count + " entries updated");
+		}
+	}
+	
+	/**
+	 * Returns number of the updated entries
+	 */
+	public int getUpdated() { return updated; }
+	
+	/**
+	 * Returns the update error or null if the update succeeded
+	 */
+	public Exception getError() { return error; }
+	
+	/**
+	 * Indicates that the update was cancelled by the user
+	 */
+	public boolean isCancelled() { return update.isCancelled(); }
+}
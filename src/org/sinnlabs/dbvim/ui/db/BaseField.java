@@ -3,7 +3,12 @@
  */
 package org.sinnlabs.dbvim.ui.db;
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.sinnlabs.dbvim.db.Value;
@@ -17,7 +22,8 @@ import org.sinnlabs.dbvim.ui.IField;
 import org.sinnlabs.dbvim.ui.events.MenuSelectEvent;
 import org.sinnlabs.dbvim.ui.events.VimEvents;
 import org.sinnlabs.dbvim.zk.model.IFormComposer;
-import org.zkoss.zk.ui.Executions;
+import org.sinnlabs.dbvim.zk.model.PageDefinitionCache;
+import org.zkoss.zk.ui.Component;
 import org.zkoss.zk.ui.event.CreateEvent;
 import org.zkoss.zk.ui.event.DropEvent;
 import org.zkoss.zk.ui.event.Event;
@@ -26,6 +32,7 @@ import org.zkoss.zk.ui.event.Events;
 import org.zkoss.zk.ui.event.InputEvent;
 import org.zkoss.zk.ui.event.KeyEvent;
 import org.zkoss.zk.ui.event.MouseEvent;
+import org.zkoss.zk.ui.metainfo.EventHandler;
 import org.zkoss.zk.ui.select.Selectors;
 import org.zkoss.zk.ui.select.annotation.Wire;
 import org.zkoss.zul.Button;
@@ -47,6 +54,27 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 	 */
 	private static final long serialVersionUID = -8390813627874916864L;
 	
+	/**
+	 * Event sent by the client when the user stops typing in a typeahead field
+	 */
+	public static final String ON_TYPEAHEAD = "onTypeahead";
+	
+	/**
+	 * Delay in milliseconds after the last key stroke before the typeahead items are requested
+	 */
+	public static final int TYPEAHEAD_DELAY = 300;
+	
+	/**
+	 * Value component events forwarded to the field if the field has listeners for them
+	 */
+	private static final Set<String> FORWARDED_EVENTS = new HashSet<String>(Arrays.asList(
+			Events.ON_CHANGE, Events.ON_FOCUS, Events.ON_BLUR, 
+			Events.ON_OK, Events.ON_CTRL_KEY, Events.ON_DROP));
+	
+	private static final MenuItemListener MENU_ITEM_LISTENER = new MenuItemListener();
+	
+	private static final DirtyTracker DIRTY_TRACKER = new DirtyTracker();
+	
 	protected DBField dbField;
 	
 	protected String map;
@@ -75,12 +103,20 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 	
 	protected MenuResolver menuResolver = null;
 	
+	/**
+	 * Items shown by the popup. The resolvers return the same list instance
+	 * while the cached items are not changed.
+	 */
+	private transient List<MenuItem> popupItems;
+	
 	private boolean readOnly;
 	
 	private boolean displayOnly = false;
 	
 	private boolean clientUpdate = false;
 	
+	private boolean dirty = false;
+	
 
 	protected BaseField(String zulUrl, DBField field) {
 		super();
@@ -98,82 +134,28 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 		});
 
 		/* Create the ui */
-		Executions.createComponents(zulUrl, this, null);
+		PageDefinitionCache.createComponents(zulUrl, this, null);
 		Selectors.wireComponents(this, this, false);
 		// lock the component to avoid to create new child elements.
 		isChildable = false;
 		readOnly = value.isReadonly();
-		final BaseField<T, E> t = this;
-		
-		/* init event listeners */
-		value.addEventListener(Events.ON_CHANGE, new EventListener<InputEvent>() {
-
-			@Override
-			public void onEvent(InputEvent e) throws Exception {
-				InputEvent ie = new InputEvent(e.getName(), t, e.getValue(), e.getPreviousValue());
-				Events.postEvent(ie);
-			}
-			
-		});
-		
-		value.addEventListener(Events.ON_FOCUS, new EventListener<Event>() {
-
-			@Override
-			public void onEvent(Event e) throws Exception {
-				Event ne = new Event(e.getName(), t, e.getData());
-				Events.postEvent(ne);
-			}
-			
-		});
-		
-		value.addEventListener(Events.ON_BLUR, new EventListener<Event>() {
-
-			@Override
-			public void onEvent(Event e) throws Exception {
-				Event ne = new Event(e.getName(), t, e.getData());
-				Events.postEvent(ne);
-			}
-			
-		});
 		
-		value.addEventListener(Events.ON_OK, new EventListener<KeyEvent>() {
-
-			@Override
-			public void onEvent(KeyEvent e) throws Exception {
-				KeyEvent ne = new KeyEvent(e.getName(), t, e.getKeyCode(), 
-						e.isCtrlKey(), e.isShiftKey(), e.isAltKey(), e.getReference());
-				Events.postEvent(ne);
-			}
-			
-		});
+		/* track the user changes */
+		value.addEventListener(Events.ON_CHANGE, DIRTY_TRACKER);
 		
-		value.addEventListener(Events.ON_CTRL_KEY, new EventListener<KeyEvent>() {
-
-			@Override
-			public void onEvent(KeyEvent e) throws Exception {
-				KeyEvent ne = new KeyEvent(e.getName(), t, e.getKeyCode(), 
-						e.isCtrlKey(), e.isShiftKey(), e.isAltKey(), e.getReference());
-				Events.postEvent(ne);
-			}
-			
-		});
-		
-		value.addEventListener(Events.ON_DROP, new EventListener<DropEvent>() {
-
-			@Override
-			public void onEvent(DropEvent e) throws Exception {
-				DropEvent ne = new DropEvent(e.getName(), t, e.getDragged(), 
-						e.getX(), e.getY(), e.getPageX(), e.getPageY(), e.getKeys());
-				Events.postEvent(ne);
-			}
-			
-		});
+		/* forward the events that already have listeners */
+		for (String evtnm : FORWARDED_EVENTS) {
+			initForwarder(evtnm);
+		}
 		
 		if (btnMenu != null) {
 			btnMenu.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
 
 				@Override
 				public void onEvent(MouseEvent arg0) throws Exception {
+					// refresh the items, the resolver decides 
+					// if the items should be reloaded or taken from the cache
+					initMenu(getMenuPrefix());
 					if (popup != null)
 						popup.open(btnMenu);
 				}
@@ -183,47 +165,31 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 	}
 	
 	/**
-	 * Initialize menu items
+	 * Initialize menu items.
+	 * The popup is built when it is opened and is kept while the items are not changed.
+	 * @param prefix Label prefix for the typeahead menu
 	 * @throws Exception
 	 */
-	private void initMenu() throws Exception {
+	private void initMenu(String prefix) throws Exception {
 		if (menuResolver != null) {
+			boolean typeahead = menuResolver.isTypeahead();
+			List<MenuItem> items = typeahead ? 
+					menuResolver.getItems(prefix) : menuResolver.getItems();
+			if (!typeahead && popup != null && popup.getParent() == this && items == popupItems)
+				return;
+			
+			if (popup != null)
+				popup.detach();
 			popup = new Menupopup();
 			popup.setStyle("overflow: auto; max-height: 100vh;");
-			
-			for(MenuItem i : menuResolver.getItems()) {
+			popupItems = typeahead ? null : items;
+			for(MenuItem i : items) {
 				// Add items to the popup menu
 				FieldMenuItem item = new FieldMenuItem(i);
 				item.setLabel(i.getLabel().toString());
 				
 				/** Add item event listener **/
-				item.addEventListener(Events.ON_CLICK, new EventListener<MouseEvent>() {
-
-					@Override
-					public void onEvent(MouseEvent evnt) throws Exception {
-						if (evnt.getTarget() != null) {
-							FieldMenuItem item = (FieldMenuItem) evnt.getTarget();
-							// if user defined the event listener onMenuSelect
-							// then we do not take default action
-							// User must implement logic manually
-							if (Events.isListened(BaseField.this, VimEvents.ON_MENUSELECTED, false)) {
-								Event e = new MenuSelectEvent(
-										VimEvents.ON_MENUSELECTED, BaseField.this, item.getItem());
-								Events.postEvent(e);
-							} else {
-								// if event listener is not defined
-								// then we just set the field value
-								
-								// if value is a String
-								if (item.getItem().getValue() instanceof String)
-									BaseField.this.fromString((String) item.getItem().getValue());
-								else
-									BaseField.this.setDBValue(fromObject(item.getItem().getValue()));
-							}
-						}
-					}
-					
-				});
+				item.addEventListener(Events.ON_CLICK, MENU_ITEM_LISTENER);
 				popup.appendChild(item);
 			}
 			// add popup to the field
@@ -233,6 +199,194 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 		}
 	}
 	
+	/**
+	 * Applies the selected menu item to the field
+	 * @param item Selected menu item
+	 */
+	private void onMenuItemSelected(MenuItem item) {
+		// if user defined the event listener onMenuSelect
+		// then we do not take default action
+		// User must implement logic manually
+		if (Events.isListened(this, VimEvents.ON_MENUSELECTED, false)) {
+			Event e = new MenuSelectEvent(VimEvents.ON_MENUSELECTED, this, item);
+			Events.postEvent(e);
+		} else {
+			// if event listener is not defined
+			// then we just set the field value
+			
+			// if value is a String
+			if (item.getValue() instanceof String)
+				fromString((String) item.getValue());
+			else
+				setDBValue(fromObject(item.getValue()));
+		}
+	}
+	
+	/**
+	 * Registers the forwarder on the value component
+	 * if the field has listeners for the event
+	 * @param evtnm Event name
+	 */
+	private void initForwarder(String evtnm) {
+		if (value == null || !FORWARDED_EVENTS.contains(evtnm))
+			return;
+		if (Events.isListened(this, evtnm, false))
+			value.addEventListener(evtnm, EventForwarder.INSTANCE);
+		else
+			value.removeEventListener(evtnm, EventForwarder.INSTANCE);
+	}
+	
+	@Override
+	public boolean addEventListener(int priority, String evtnm,
+			EventListener<? extends Event> listener) {
+		boolean res = super.addEventListener(priority, evtnm, listener);
+		initForwarder(evtnm);
+		return res;
+	}
+	
+	@Override
+	public boolean removeEventListener(String evtnm,
+			EventListener<? extends Event> listener) {
+		boolean res = super.removeEventListener(evtnm, listener);
+		initForwarder(evtnm);
+		return res;
+	}
+	
+	@Override
+	public void addEventHandler(String name, EventHandler evthd) {
+		super.addEventHandler(name, evthd);
+		initForwarder(name);
+	}
+	
+	/**
+	 * Returns the field that owns the component
+	 */
+	private static BaseField<?, ?> getOwner(Component comp) {
+		while (comp != null && !(comp instanceof BaseField))
+			comp = comp.getParent();
+		return (BaseField<?, ?>) comp;
+	}
+	
+	/**
+	 * Forwards the value component events to the owning field.
+	 * The listener is stateless and shared by all the fields.
+	 */
+	private static class EventForwarder implements EventListener<Event>, Serializable {
+
+		private static final long serialVersionUID = 4093116862151035457L;
+		
+		static final EventForwarder INSTANCE = new EventForwarder();
+
+		@Override
+		public void onEvent(Event e) throws Exception {
+			BaseField<?, ?> field = getOwner(e.getTarget());
+			if (field == null)
+				return;
+			
+			Event ne;
+			if (e instanceof InputEvent) {
+				InputEvent ie = (InputEvent) e;
+				ne = new InputEvent(e.getName(), field, ie.getValue(), ie.getPreviousValue());
+			} else if (e instanceof KeyEvent) {
+				KeyEvent ke = (KeyEvent) e;
+				ne = new KeyEvent(e.getName(), field, ke.getKeyCode(), 
+						ke.isCtrlKey(), ke.isShiftKey(), ke.isAltKey(), ke.getReference());
+			} else if (e instanceof DropEvent) {
+				DropEvent de = (DropEvent) e;
+				ne = new DropEvent(e.getName(), field, de.getDragged(), 
+						de.getX(), de.getY(), de.getPageX(), de.getPageY(), de.getKeys());
+			} else {
+				ne = new Event(e.getName(), field, e.getData());
+			}
+			// we are already in the event processing thread
+			Events.sendEvent(ne);
+		}
+		
+		private Object readResolve() {
+			return INSTANCE;
+		}
+	}
+	
+	/**
+	 * Marks the owning field as dirty on the value change.
+	 * The listener is stateless and shared by all the fields.
+	 */
+	private static class DirtyTracker implements EventListener<Event>, Serializable {
+
+		private static final long serialVersionUID = -5507917934190254466L;
+
+		@Override
+		public void onEvent(Event e) throws Exception {
+			BaseField<?, ?> field = getOwner(e.getTarget());
+			if (field != null)
+				field.setDirty(true);
+		}
+		
+		private Object readResolve() {
+			return DIRTY_TRACKER;
+		}
+	}
+	
+	/**
+	 * Menu item click listener shared by all the fields
+	 */
+	private static class MenuItemListener implements EventListener<MouseEvent>, Serializable {
+
+		private static final long serialVersionUID = -1830582617264871432L;
+
+		@Override
+		public void onEvent(MouseEvent evnt) throws Exception {
+			if (evnt.getTarget() instanceof FieldMenuItem) {
+				BaseField<?, ?> field = getOwner(evnt.getTarget());
+				if (field != null)
+					field.onMenuItemSelected(((FieldMenuItem) evnt.getTarget()).getItem());
+			}
+		}
+		
+		private Object readResolve() {
+			return MENU_ITEM_LISTENER;
+		}
+	}
+	
+	/**
+	 * Returns the text typed in the field for the typeahead menu
+	 */
+	private String getMenuPrefix() {
+		if (menuResolver == null || !menuResolver.isTypeahead())
+			return null;
+		return value.getText();
+	}
+	
+	/**
+	 * Requests the typeahead items after the user stops typing
+	 */
+	private void initTypeahead() {
+		value.setWidgetListener(Events.ON_CHANGING, 
+				"var w = this, v = event.data.value;"
+				+ "clearTimeout(w._typeahead);"
+				+ "w._typeahead = setTimeout(function () {"
+				+ "zAu.send(new zk.Event(w, '" + ON_TYPEAHEAD + "', {value: v}, {toServer: true}));"
+				+ "}, " + TYPEAHEAD_DELAY + ");");
+		value.addEventListener(ON_TYPEAHEAD, new EventListener<Event>() {
+
+			@Override
+			public void onEvent(Event e) throws Exception {
+				String prefix = null;
+				if (e.getData() instanceof Map)
+					prefix = (String) ((Map<?, ?>) e.getData()).get("value");
+				if (StringUtils.isEmpty(prefix)) {
+					if (popup != null)
+						popup.close();
+					return;
+				}
+				initMenu(prefix);
+				if (popup != null && popup.getChildren().size() > 0)
+					popup.open(value, "after_start");
+			}
+			
+		});
+	}
+	
 	/* (non-Javadoc)
 	 * @see com.asd.dbuibuilder.db.model.IDBField#getName()
 	 */
@@ -339,6 +493,7 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 	@Override
 	public void setDBValue(Value<T> v) {
 		value.setRawValue(v.getValue());
+		dirty = true;
 	}
 
 	/* (non-Javadoc)
@@ -353,6 +508,7 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 	@Override
 	public void setValue(T val) {
 		value.setRawValue(val);
+		dirty = true;
 	}
 	
 	@Override
@@ -460,6 +616,16 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 		return dbField;
 	}
 	
+	@Override
+	public boolean isDirty() {
+		return dirty;
+	}
+	
+	@Override
+	public void setDirty(boolean val) {
+		dirty = val;
+	}
+	
 	@Override
 	public boolean isDisplayOnly() {
 		return displayOnly;
@@ -511,10 +677,11 @@ public abstract class BaseField<T, E extends InputElement> extends Idspace imple
 					if (btnMenu != null) {
 						btnMenu.setVisible(true);
 					}
-					initMenu();
 					if (menuResolver == null) {
 						throw new IllegalStateException("Field menu does not exists: " + menu);
 					}
+					if (menuResolver.isTypeahead())
+						initTypeahead();
 				}
 			}
 		}
@@ -22,7 +22,7 @@ public class CharacterField extends BaseField<String, Textbox> {
 	
 	
 	public CharacterField(DBField dbfield) {
-		super("/components/characterfield.zul", dbfield);
+		super(FieldType.CHARACTER.getTemplate(), dbfield);
 		
 	}
 	
@@ -90,7 +90,7 @@ public class CharacterField extends BaseField<String, Textbox> {
 	 */
 	@Override
 	public Value<String> fromString(String string) {
-		return new Value<String>(string, dbField);
+		return FieldType.CHARACTER.fromString(string, dbField);
 	}
 
 	/* (non-Javadoc)
@@ -98,6 +98,6 @@ public class CharacterField extends BaseField<String, Textbox> {
 	 */
 	@Override
 	public Value<String> fromObject(Object val) {
-		return new Value<String>((String) val, dbField);
+		return FieldType.CHARACTER.fromObject(val, dbField);
 	}
 }
\ No newline at end of file
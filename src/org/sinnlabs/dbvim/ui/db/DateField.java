@@ -26,7 +26,7 @@ public class DateField extends BaseField<Date, Datebox> {
 	}
 
 	public DateField(DBField field) {
-		super("/components/datetime.zul", field);
+		super(FieldType.DATE.getTemplate(), field);
 		value.setFormat("medium");
 	}
 	
@@ -45,8 +45,7 @@ public class DateField extends BaseField<Date, Datebox> {
 	 */
 	@Override
 	public Value<Date> fromString(String string) {
-		Date t = Date.valueOf(string);
-		return new Value<Date>(t, dbField);
+		return FieldType.DATE.fromString(string, dbField);
 	}
 
 	/* (non-Javadoc)
@@ -54,6 +53,6 @@ public class DateField extends BaseField<Date, Datebox> {
 	 */
 	@Override
 	public Value<Date> fromObject(Object val) {
-		return new Value<Date>((Date) val, dbField);
+		return FieldType.DATE.fromObject(val, dbField);
 	}
 }
@@ -26,7 +26,7 @@ public class DatetimeField extends BaseField<Timestamp, Datebox> {
 	}
 
 	public DatetimeField(DBField field) {
-		super("/components/datetime.zul", field);
+		super(FieldType.DATETIME.getTemplate(), field);
 	}
 	
 	@Override
@@ -44,10 +44,7 @@ public class DatetimeField extends BaseField<Timestamp, Datebox> {
 	 */
 	@Override
 	public Value<Timestamp> fromString(String string) {
-		if (string == null) {
-			return new Value<Timestamp>(null, dbField);
-		}
-		return new Value<Timestamp>(Timestamp.valueOf(string), dbField);
+		return FieldType.DATETIME.fromString(string, dbField);
 	}
 
 	/* (non-Javadoc)
@@ -55,6 +52,6 @@ public class DatetimeField extends BaseField<Timestamp, Datebox> {
 	 */
 	@Override
 	public Value<Timestamp> fromObject(Object val) {
-		return new Value<Timestamp>((Timestamp) val, dbField);
+		return FieldType.DATETIME.fromObject(val, dbField);
 	}
 }
@@ -21,12 +21,12 @@ public class DecimalField extends BaseField<BigDecimal, Decimalbox> {
 	private static final long serialVersionUID = -1974306758258463281L;
 
 	public DecimalField(DBField field) {
-		super("/components/decimalfield.zul", field);
+		super(FieldType.DECIMAL.getTemplate(), field);
 	}
 	
 	
 	public DecimalField() {
-		super("/components/decimalfield.zul", null);
+		super(FieldType.DECIMAL.getTemplate(), null);
 	}
 
 
@@ -35,9 +35,7 @@ public class DecimalField extends BaseField<BigDecimal, Decimalbox> {
 	 */
 	@Override
 	public Value<BigDecimal> fromString(String string) {
-		if (string == null)
-			return new Value<BigDecimal>(null, dbField);
-		return new Value<BigDecimal>(new BigDecimal(string), dbField);
+		return FieldType.DECIMAL.fromString(string, dbField);
 	}
 
 
@@ -46,7 +44,7 @@ public class DecimalField extends BaseField<BigDecimal, Decimalbox> {
 	 */
 	@Override
 	public Value<BigDecimal> fromObject(Object val) {
-		return new Value<BigDecimal>((BigDecimal) val, dbField);
+		return FieldType.DECIMAL.fromObject(val, dbField);
 	}
 	
 
@@ -23,7 +23,7 @@ public class DoubleField extends BaseField<Double, Doublebox> {
 	}
 	
 	public DoubleField(DBField field) {
-		super("/components/doublefield.zul", field);
+		super(FieldType.DOUBLE.getTemplate(), field);
 	}
 
 	/* (non-Javadoc)
@@ -31,9 +31,7 @@ public class DoubleField extends BaseField<Double, Doublebox> {
 	 */
 	@Override
 	public Value<Double> fromString(String string) {
-		if (string == null)
-			return new Value<Double>(null, dbField);
-		return new Value<Double>(Double.valueOf(string), dbField);
+		return FieldType.DOUBLE.fromString(string, dbField);
 	}
 
 	/* (non-Javadoc)
@@ -41,6 +39,6 @@ public class DoubleField extends BaseField<Double, Doublebox> {
 	 */
 	@Override
 	public Value<Double> fromObject(Object val) {
-		return new Value<Double>((Double) val, dbField);
+		return FieldType.DOUBLE.fromObject(val, dbField);
 	}
 }
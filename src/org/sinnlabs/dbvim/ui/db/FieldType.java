@@ -0,0 +1,248 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.ui.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.sinnlabs.dbvim.db.Value;
+import org.sinnlabs.dbvim.db.model.DBField;
+import org.zkoss.idom.Document;
+import org.zkoss.idom.Element;
+import org.zkoss.idom.Item;
+import org.zkoss.idom.input.SAXBuilder;
+import org.zkoss.zk.ui.WebApp;
+import org.zkoss.zk.ui.WebApps;
+
+/**
+ * Value type of the field component.
+ * Converts the values for the field components and for the fields
+ * resolved without the UI, so both convert the values the same way.
+ * @author peter.liverovsky
+ *
+ */
+public abstract class FieldType<T> {
+
+	public static final FieldType<String> CHARACTER = new FieldType<String>(
+			CharacterField.class, String.class, "/components/characterfield.zul") {
+
+		@Override
+		protected String parse(String string) {
+			return string;
+		}
+	};
+
+	public static final FieldType<Integer> INTEGER = new FieldType<Integer>(
+			IntegerField.class, Integer.class, "/components/integerfield.zul") {
+
+		@Override
+		protected Integer parse(String string) {
+			if (StringUtils.isBlank(string))
+				return null;
+			return Integer.valueOf(string);
+		}
+	};
+
+	public static final FieldType<Long> LONG = new FieldType<Long>(
+			LongField.class, Long.class, "/components/longfield.zul") {
+
+		@Override
+		protected Long parse(String string) {
+			return Long.valueOf(string);
+		}
+	};
+
+	public static final FieldType<BigDecimal> DECIMAL = new FieldType<BigDecimal>(
+			DecimalField.class, BigDecimal.class, "/components/decimalfield.zul") {
+
+		@Override
+		protected BigDecimal parse(String string) {
+			return new BigDecimal(string);
+		}
+	};
+
+	public static final FieldType<Double> DOUBLE = new FieldType<Double>(
+			DoubleField.class, Double.class, "/components/doublefield.zul") {
+
+		@Override
+		protected Double parse(String string) {
+			return Double.valueOf(string);
+		}
+	};
+
+	public static final FieldType<Date> DATE = new FieldType<Date>(
+			DateField.class, Date.class, "/components/datetime.zul") {
+
+		@Override
+		protected Date parse(String string) {
+			return Date.valueOf(string);
+		}
+	};
+
+	public static final FieldType<Timestamp> DATETIME = new FieldType<Timestamp>(
+			DatetimeField.class, Timestamp.class, "/components/datetime.zul") {
+
+		@Override
+		protected Timestamp parse(String string) {
+			return Timestamp.valueOf(string);
+		}
+	};
+
+	public static final FieldType<Time> TIME = new FieldType<Time>(
+			TimeField.class, Time.class, "/components/timefield.zul") {
+
+		@Override
+		protected Time parse(String string) {
+			return Time.valueOf(string);
+		}
+	};
+
+	/**
+	 * Used for the unknown field components, the values are kept as strings
+	 */
+	public static final FieldType<Object> OTHER = new FieldType<Object>(
+			null, Object.class, null) {
+
+		@Override
+		protected Object parse(String string) {
+			return string;
+		}
+	};
+
+	/**
+	 * Types by the field component class name
+	 */
+	private static final Map<String, FieldType<?>> types = new HashMap<String, FieldType<?>>();
+
+	static {
+		for (FieldType<?> t : new FieldType<?>[] { CHARACTER, INTEGER, LONG,
+				DECIMAL, DOUBLE, DATE, DATETIME, TIME }) {
+			types.put(t.fieldClass.getName(), t);
+		}
+	}
+
+	private final Class<?> fieldClass;
+
+	private final Class<T> valueClass;
+
+	private final String template;
+
+	private volatile String defaultLabel;
+
+	private FieldType(Class<?> fieldClass, Class<T> valueClass, String template) {
+		this.fieldClass = fieldClass;
+		this.valueClass = valueClass;
+		this.template = template;
+	}
+
+	/**
+	 * Returns the type of the field component
+	 * @param className Field component class name
+	 * @return FieldType, {@link #OTHER} if the component is unknown
+	 */
+	public static FieldType<?> forField(String className) {
+		FieldType<?> t = types.get(className);
+		return t != null ? t : OTHER;
+	}
+
+	/**
+	 * Returns the field component template URI
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Converts string to value
+	 * @param string String to be converted. If string is null then null value returned.
+	 * @param field DBField of the value
+	 */
+	public Value<T> fromString(String string, DBField field) {
+		if (string == null)
+			return new Value<T>(null, field);
+		return new Value<T>(parse(string), field);
+	}
+
+	/**
+	 * Converts Object to value
+	 * @param val Object of the value class
+	 * @param field DBField of the value
+	 */
+	public Value<T> fromObject(Object val, DBField field) {
+		return new Value<T>(valueClass.cast(val), field);
+	}
+
+	/**
+	 * Parses not null string
+	 */
+	protected abstract T parse(String string);
+
+	/**
+	 * Returns the label shown by the field component if the label is not set.
+	 * The label is read from the component template.
+	 */
+	public String getDefaultLabel() {
+		String label = defaultLabel;
+		if (label == null) {
+			label = readLabel(template);
+			if (label == null) {
+				// the template is not available, do not cache the guess
+				return fieldClass != null ? fieldClass.getSimpleName() : "";
+			}
+			defaultLabel = label;
+		}
+		return label;
+	}
+
+	private static String readLabel(String template) {
+		WebApp app = WebApps.getCurrent();
+		if (template == null || app == null)
+			return null;
+		InputStream in = app.getResourceAsStream(template);
+		if (in == null)
+			return null;
+		try {
+			Document doc = new SAXBuilder(false, false, true).build(in);
+			Element label = findLabel(doc.getRootElement());
+			if (label == null)
+				return "";
+			String value = label.getAttribute("value");
+			return value != null ? value : "";
+		} catch (Exception e) {
+			System.err.println("WARN: Unable to read the field template " + template
+					+ ": " + e.getMessage());
+			return null;
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Recursively finds the label element of the template
+	 */
+	private static Element findLabel(Element e) {
+		if (e.getName().equals("label") && "label".equals(e.getAttribute("id")))
+			return e;
+		for (Item i : e.getChildren()) {
+			if (i instanceof Element) {
+				/** RECURSION **/
+				Element label = findLabel((Element) i);
+				if (label != null)
+					return label;
+			}
+		}
+		return null;
+	}
+}
@@ -3,7 +3,6 @@
  */
 package org.sinnlabs.dbvim.ui.db;
 
-import org.apache.commons.lang3.StringUtils;
 import org.sinnlabs.dbvim.db.Value;
 import org.sinnlabs.dbvim.db.model.DBField;
 import org.zkoss.zul.Intbox;
@@ -20,7 +19,7 @@ public class IntegerField extends BaseField<Integer, Intbox> {
 	private static final long serialVersionUID = -5904828500284669425L;
 
 	public IntegerField(DBField dbfield) {
-		super("/components/integerfield.zul", dbfield);
+		super(FieldType.INTEGER.getTemplate(), dbfield);
 	}
 	
 	public IntegerField() {
@@ -32,9 +31,7 @@ public class IntegerField extends BaseField<Integer, Intbox> {
 	 */
 	@Override
 	public Value<Integer> fromString(String string) {
-		if (StringUtils.isBlank(string))
-			return new Value<Integer>(null, dbField);
-		return new Value<Integer>(Integer.valueOf(string), dbField);
+		return FieldType.INTEGER.fromString(string, dbField);
 	}
 
 	/* (non-Javadoc)
@@ -42,6 +39,6 @@ public class IntegerField extends BaseField<Integer, Intbox> {
 	 */
 	@Override
 	public Value<Integer> fromObject(Object val) {
-		return new Value<Integer>((Integer) val, dbField);
+		return FieldType.INTEGER.fromObject(val, dbField);
 	}
 }
@@ -19,7 +19,7 @@ public class LongField extends BaseField<Long, Longbox> {
 	private static final long serialVersionUID = -7510213526283370164L;
 
 	public LongField(DBField field) {
-		super("/components/longfield.zul", field);
+		super(FieldType.LONG.getTemplate(), field);
 	}
 	
 	public LongField() {
@@ -31,10 +31,7 @@ public class LongField extends BaseField<Long, Longbox> {
 	 */
 	@Override
 	public Value<Long> fromString(String string) {
-		if (string == null) {
-			return new Value<Long>(null, dbField);
-		}
-		return new Value<Long>(Long.valueOf(string), dbField);
+		return FieldType.LONG.fromString(string, dbField);
 	}
 
 	/* (non-Javadoc)
@@ -42,6 +39,6 @@ public class LongField extends BaseField<Long, Longbox> {
 	 */
 	@Override
 	public Value<Long> fromObject(Object val) {
-		return new Value<Long>((Long) val, dbField);
+		return FieldType.LONG.fromObject(val, dbField);
 	}
 }
\ No newline at end of file
@@ -8,43 +8,54 @@ import static org.zkoss.lang.Generics.cast;
 import java.util.AbstractSequentialList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import org.sinnlabs.dbvim.config.ConfigLoader;
+import org.sinnlabs.dbvim.db.DataExecutor;
 import org.sinnlabs.dbvim.db.Database;
 import org.sinnlabs.dbvim.db.DatabaseFactory;
 import org.sinnlabs.dbvim.db.Entry;
 import org.sinnlabs.dbvim.db.Value;
-import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
 import org.sinnlabs.dbvim.evaluator.AbstractVariableSet;
 import org.sinnlabs.dbvim.evaluator.DatabaseConditionBuilder;
-import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
+import org.sinnlabs.dbvim.evaluator.VariablesKey;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
 import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.form.FormRegistry;
 import org.sinnlabs.dbvim.model.Form;
 import org.sinnlabs.dbvim.script.Record;
-import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
 import org.sinnlabs.dbvim.ui.annotations.EventType;
 import org.sinnlabs.dbvim.ui.annotations.WireEvent;
 import org.sinnlabs.dbvim.zk.model.IFormComposer;
+import org.sinnlabs.dbvim.zk.model.PageDefinitionCache;
 import org.zkoss.zk.ui.AbstractComponent;
 import org.zkoss.zk.ui.Component;
 import org.zkoss.zk.ui.Executions;
 import org.zkoss.zk.ui.UiException;
 import org.zkoss.zk.ui.event.CreateEvent;
+import org.zkoss.zk.ui.event.Event;
 import org.zkoss.zk.ui.event.EventListener;
 import org.zkoss.zk.ui.event.Events;
 import org.zkoss.zk.ui.select.Selectors;
 import org.zkoss.zk.ui.select.annotation.Listen;
 import org.zkoss.zk.ui.select.annotation.Wire;
+import org.zkoss.zul.Groupbox;
 import org.zkoss.zul.Idspace;
+import org.zkoss.zul.Label;
 import org.zkoss.zul.Listbox;
 import org.zkoss.zul.Listcell;
 import org.zkoss.zul.Listheader;
+import org.zkoss.zul.ListModel;
 import org.zkoss.zul.Listitem;
+import org.zkoss.zul.ListitemRenderer;
+import org.zkoss.zul.Tabpanel;
 
 import com.mysql.jdbc.StringUtils;
 
@@ -60,6 +71,27 @@ public class TableField extends Idspace {
 	 */
 	private static final long serialVersionUID = -2657721752963776218L;
 	
+	/**
+	 * Event posted to the field when the data query is submitted.
+	 * The query result is applied to the list in the event handler.
+	 */
+	private static final String ON_DATA_LOADED = "onDataLoaded";
+	
+	/**
+	 * Default maximum number of rows to be loaded
+	 */
+	public static final int DEFAULT_MAX_ROWS = 1000;
+	
+	/**
+	 * Default number of rows on the page
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 20;
+	
+	/**
+	 * Number of query results remembered by the field
+	 */
+	private static final int MEMO_SIZE = 8;
+	
 	protected String formName;
 	
 	protected String qualification;
@@ -70,7 +102,7 @@ public class TableField extends Idspace {
 	
 	protected IFormComposer composer;
 	
-	protected List<IField<?>> selectFields;
+	protected List<IFieldInfo<?>> selectFields;
 	
 	protected Database db;
 	
@@ -80,9 +112,58 @@ public class TableField extends Idspace {
 	
 	private int _hdcnt = 1;
 	
+	/**
+	 * Maximum number of rows to be loaded, 0 - means no limit
+	 */
+	private int maxRows = DEFAULT_MAX_ROWS;
+	
+	/**
+	 * Number of rows on the page, 0 - means no paging
+	 */
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	
+	/**
+	 * Query that is running on the data executor
+	 */
+	private transient Future<TableFieldModel> pending;
+	
+	/**
+	 * Indicates that the data should be loaded when the field becomes visible
+	 */
+	private boolean deferred = false;
+	
+	/**
+	 * Tabs and group boxes watched for the field to become visible
+	 */
+	private transient List<Component> watched;
+	
+	/**
+	 * Variables used by the qualification
+	 */
+	private transient List<String> variableNames;
+	
+	/**
+	 * Query results by qualification variable values
+	 */
+	private transient Map<VariablesKey, Memo> memo;
+	
+	/**
+	 * Memo key and data version of the pending query
+	 */
+	private transient VariablesKey pendingKey;
+	private transient long pendingVersion;
+	
+	/**
+	 * Memo key of the data shown by the list
+	 */
+	private transient VariablesKey loadedKey;
+	
 	@Wire
 	private Listbox lstData;
 	
+	@Wire
+	private Label lblFoot;
+	
 	/* gatters and setters */
 	public String getFormName() { return formName; }
 	public void setFormName(String form) throws Exception { 
@@ -91,6 +172,13 @@ public class TableField extends Idspace {
 	}
 	public String getQualification() { return qualification; }
 	public void setQualification(String q) { qualification = q; }
+	public int getMaxRows() { return maxRows; }
+	public void setMaxRows(int rows) { maxRows = rows < 0 ? 0 : rows; }
+	public int getPageSize() { return pageSize; }
+	public void setPageSize(int size) {
+		pageSize = size < 0 ? 0 : size;
+		updatePaging();
+	}
 	
 	
 	public List<TableColumnField> getTableColumns() { return _items; } 
@@ -108,7 +196,18 @@ public class TableField extends Idspace {
 
 		});
 		
-		selectFields = new ArrayList<IField<?>>();
+		// apply query results on the UI thread
+		addEventListener(ON_DATA_LOADED, new EventListener<Event>() {
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public void onEvent(Event e) throws Exception {
+				applyData((Future<TableFieldModel>) e.getData());
+			}
+			
+		});
+		
+		selectFields = new ArrayList<IFieldInfo<?>>();
 		
 		/* get the composer */
 		if (Executions.getCurrent().getArg() != null) {
@@ -121,7 +220,7 @@ public class TableField extends Idspace {
 		
 		/* Create the ui */
 		isChildable = true;
-		Executions.createComponents("/components/tablefield.zul", this, null);
+		PageDefinitionCache.createComponents("/components/tablefield.zul", this, null);
 		Selectors.wireVariables(this, this, null);
 		Selectors.wireComponents(this, this, false);
 		Selectors.wireEventListeners(this, this);
@@ -130,13 +229,19 @@ public class TableField extends Idspace {
 		isChildable = false;
 		
 		init();
+		lstData.setItemRenderer(new EntryRenderer());
+		updatePaging();
 	}
 	
 	
 
 	@WireEvent(EventType.CHANGE_FORM_MODE)
 	public void setFieldMode(int mode) {
-		lstData.getItems().clear();
+		cancelPending();
+		deferred = false;
+		loadedKey = null;
+		lstData.setModel((ListModel<?>) null);
+		lblFoot.setValue("");
 	}
 	
 	@WireEvent(EventType.FORM_LOADED)
@@ -149,7 +254,7 @@ public class TableField extends Idspace {
 			db = DatabaseFactory.createInstance(form, resolver);
 		}
 		for (TableColumnField column : _items) {
-			IField<?> f = resolver.getFields().get(column.getField());
+			IFieldInfo<?> f = resolver.getFields().get(column.getField());
 			if (f == null) {
 				throw new IllegalArgumentException("Cannot find field id: " + column.getField() + 
 						" on form: " + form);
@@ -158,46 +263,259 @@ public class TableField extends Idspace {
 		}
 		if (qualification == null)
 			qualification= "";
+		variableNames = new DatabaseConditionBuilder().getVariableNames(qualification);
 	}
 	
 	@WireEvent(EventType.ENTRY_LOADED)
-	public void onEntryLoaded(Entry e) throws ParseException, DatabaseOperationException {
-		loadData();
+	public void onEntryLoaded(Entry e) {
+		loadData(false);
 	}
 	
 	@Listen("onClick = #btnRefresh")
-	public void refreshTable() throws ParseException, DatabaseOperationException {
-		loadData();
+	public void refreshTable() {
+		loadData(true);
 	}
 	
-	private void loadData() throws ParseException, DatabaseOperationException {
-		lstData.getItems().clear();
-		AbstractVariableSet<Value<?>> variables = 
-				DatabaseConditionBuilder.buildVariablesFromFields(composer.getFields());
+	/**
+	 * Submits the table query to the data executor.
+	 * The result is applied by the {@link #ON_DATA_LOADED} event handler,
+	 * so all table fields of the form run their queries in parallel.
+	 * If the field is not visible the loading is deferred 
+	 * until the tab or group box holding the field is opened.
+	 * The result is reused while the qualification variables and 
+	 * the table data are not changed.
+	 * @param force true to skip the remembered results
+	 */
+	private void loadData(boolean force) {
+		cancelPending();
+		loadedKey = null;
+		lstData.setModel((ListModel<?>) null);
 		
-		List<Entry> entries = db.query(selectFields, qualification, 0, variables);
+		if (!isDisplayed()) {
+			deferred = true;
+			lblFoot.setValue("");
+			return;
+		}
+		deferred = false;
 		
-		for (Entry entry : entries) {
-			Listitem item = new Listitem();
-			for (Value<?> v : entry.getValues()) {
-				if (v.getValue() != null)
-					item.appendChild(new Listcell(v.getValue().toString()));
-				else
-					item.appendChild(new Listcell(""));
+		// the form fields are read on the UI thread, 
+		// the query gets only the copied values of the qualification variables
+		final AbstractVariableSet<Value<?>> variables = buildVariables();
+		
+		VariablesKey key = new VariablesKey(getVariableNames(), variables);
+		long version = db.getDataVersion();
+		if (!force && useMemo(key, version))
+			return;
+		
+		lblFoot.setValue("Loading...");
+		pendingKey = key;
+		pendingVersion = version;
+		final TableFieldModel model = new TableFieldModel(db, 
+				new ArrayList<IFieldInfo<?>>(selectFields), qualification, variables, maxRows, pageSize);
+		
+		pending = DataExecutor.submit(new Callable<TableFieldModel>() {
+
+			@Override
+			public TableFieldModel call() throws Exception {
+				model.load();
+				return model;
 			}
-			item.setValue(entry);
-			lstData.getItems().add(item);
+			
+		});
+		Events.postEvent(ON_DATA_LOADED, this, pending);
+	}
+	
+	/**
+	 * Waits for the query result and sets the list model
+	 * @param result Query future
+	 * @throws Exception
+	 */
+	private void applyData(Future<TableFieldModel> result) throws Exception {
+		// the query was cancelled or replaced by the newer one
+		if (result != pending)
+			return;
+		pending = null;
+		
+		TableFieldModel model;
+		try {
+			model = result.get();
+		} catch (ExecutionException e) {
+			lblFoot.setValue("");
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
 		}
+		
+		getMemo().put(pendingKey, new Memo(pendingVersion, model, maxRows, pageSize));
+		setData(pendingKey, model);
 	}
 	
 	/**
-	 * Returns table records
+	 * Shows the remembered result if it is not outdated
+	 * @return true if the result is shown
+	 */
+	private boolean useMemo(VariablesKey key, long version) {
+		Memo m = getMemo().get(key);
+		if (m != null && m.version == version 
+				&& m.maxRows == maxRows && m.pageSize == pageSize) {
+			setData(key, m.model);
+			return true;
+		}
+		return false;
+	}
+	
+	private void setData(VariablesKey key, TableFieldModel model) {
+		loadedKey = key;
+		lstData.setModel(model);
+		if (model.getSize() < model.getTotal())
+			lblFoot.setValue("First " + model.getSize() + " of " + model.getTotal() + " entries");
+		else
+			lblFoot.setValue(model.getTotal() + " entries");
+	}
+	
+	/**
+	 * Loads the deferred data if the field became visible
+	 */
+	private void onReveal() {
+		if (deferred && isDisplayed())
+			loadData(false);
+	}
+	
+	/**
+	 * Checks if the field is displayed.
+	 * Hidden components, not selected tab panels and closed group boxes are checked.
+	 * Components that can be opened later are watched by the field. 
+	 * @return true if the field is displayed, otherwise false
+	 */
+	private boolean isDisplayed() {
+		boolean displayed = true;
+		for (Component c = this; c != null; c = c.getParent()) {
+			if (!c.isVisible())
+				return false;
+			if (c instanceof Tabpanel) {
+				Tabpanel panel = (Tabpanel) c;
+				if (!panel.isSelected()) {
+					displayed = false;
+					if (panel.getLinkedTab() != null)
+						watch(panel.getLinkedTab(), Events.ON_SELECT);
+				}
+			} else if (c instanceof Groupbox) {
+				if (!((Groupbox) c).isOpen()) {
+					displayed = false;
+					watch(c, Events.ON_OPEN);
+				}
+			}
+		}
+		return displayed;
+	}
+	
+	private void watch(Component c, String event) {
+		if (watched == null)
+			watched = new ArrayList<Component>();
+		if (watched.contains(c))
+			return;
+		watched.add(c);
+		c.addEventListener(event, new EventListener<Event>() {
+
+			@Override
+			public void onEvent(Event e) throws Exception {
+				onReveal();
+			}
+			
+		});
+	}
+	
+	private Map<VariablesKey, Memo> getMemo() {
+		if (memo == null) {
+			memo = new LinkedHashMap<VariablesKey, Memo>(MEMO_SIZE + 1, 0.75f, true) {
+
+				private static final long serialVersionUID = -4619398522733409585L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<VariablesKey, Memo> eldest) {
+					return size() > MEMO_SIZE;
+				}
+			};
+		}
+		return memo;
+	}
+	
+	private void cancelPending() {
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+	}
+	
+	private void updatePaging() {
+		if (lstData == null)
+			return;
+		if (pageSize > 0) {
+			lstData.setMold("paging");
+			lstData.setPageSize(pageSize);
+		} else {
+			lstData.setMold("default");
+		}
+	}
+	
+	private List<String> getVariableNames() {
+		return variableNames != null ? variableNames : new ArrayList<String>();
+	}
+	
+	private AbstractVariableSet<Value<?>> buildVariables() {
+		return DatabaseConditionBuilder.buildVariablesFromFields(composer.getFields(), 
+				getVariableNames());
+	}
+	
+	/**
+	 * Returns the list model for the current qualification variables.
+	 * Waits for the pending query. The deferred or outdated data 
+	 * is loaded on the calling thread.
+	 * @return Model or null if the form is not loaded
+	 * @throws Exception
+	 */
+	private TableFieldModel getCurrentModel() throws Exception {
+		if (db == null || composer == null)
+			return null;
+		AbstractVariableSet<Value<?>> variables = buildVariables();
+		VariablesKey key = new VariablesKey(getVariableNames(), variables);
+		
+		if (pending != null && key.equals(pendingKey))
+			applyData(pending);
+		if (key.equals(loadedKey))
+			return (TableFieldModel) lstData.getModel();
+		
+		cancelPending();
+		deferred = false;
+		long version = db.getDataVersion();
+		if (!useMemo(key, version)) {
+			TableFieldModel model = new TableFieldModel(db, 
+					new ArrayList<IFieldInfo<?>>(selectFields), qualification, variables, maxRows, pageSize);
+			model.load();
+			getMemo().put(key, new Memo(version, model, maxRows, pageSize));
+			setData(key, model);
+		}
+		return (TableFieldModel) lstData.getModel();
+	}
+	
+	/**
+	 * Returns all table records for the current form values.
+	 * Waits for the data that is loading and loads the data of the hidden table.
+	 * The records are not limited by the maximum number of rows.
 	 * @return
 	 */
 	public List<Record> getRecords() {
-		List<Record> records = new ArrayList<Record>(lstData.getItemCount());
-		for(Listitem i : lstData.getItems()) {
-			Entry e = i.getValue();
+		List<Entry> entries;
+		try {
+			TableFieldModel model = getCurrentModel();
+			if (model == null)
+				return new ArrayList<Record>();
+			entries = model.readAll();
+		} catch (Exception e) {
+			throw new UiException("Unable to read table entries: " + e.getMessage(), e);
+		}
+		List<Record> records = new ArrayList<Record>(entries.size());
+		for(Entry e : entries) {
 			Record r = new Record();
 			for (int k=0; k<e.getValues().size(); k++) {
 				r.getValues().put(selectFields.get(k).getId(), e.getValues().get(k).getValue());
@@ -240,7 +558,7 @@ public class TableField extends Idspace {
 		if (StringUtils.isNullOrEmpty(formName)) {
 			return;
 		}
-		Form f = ConfigLoader.getInstance().getForms().queryForId(formName);
+		Form f = FormRegistry.getForm(formName);
 		if (f == null) {
 			return;
 		}
@@ -252,9 +570,13 @@ public class TableField extends Idspace {
 		if (_items == null)
 			return;
 		lstData.getListhead().getChildren().clear();
+		int i = 0;
 		for(TableColumnField column : _items) {
 			Listheader header = new Listheader();
-			header.setSort("auto");
+			// sorted by the model query
+			header.setSortAscending(new TableFieldModel.ColumnComparator(i, true));
+			header.setSortDescending(new TableFieldModel.ColumnComparator(i, false));
+			i++;
 			header.setLabel(column.getLabel());
 			lstData.getListhead().appendChild(header);
 		}
@@ -417,6 +739,44 @@ public class TableField extends Idspace {
 		}
 	}
 	
+	/**
+	 * Remembered query result
+	 */
+	private static class Memo {
+		final long version;
+		final TableFieldModel model;
+		final int maxRows;
+		final int pageSize;
+		
+		Memo(long version, TableFieldModel model, int maxRows, int pageSize) {
+			this.version = version;
+			this.model = model;
+			this.maxRows = maxRows;
+			this.pageSize = pageSize;
+		}
+	}
+	
+	/**
+	 * Renders table entries
+	 */
+	private static class EntryRenderer implements ListitemRenderer<Entry>, java.io.Serializable {
+
+		private static final long serialVersionUID = 3120876404474526521L;
+
+		@Override
+		public void render(Listitem item, Entry entry, int index) throws Exception {
+			if (entry == null)
+				return;
+			for (Value<?> v : entry.getValues()) {
+				if (v.getValue() != null)
+					item.appendChild(new Listcell(v.getValue().toString()));
+				else
+					item.appendChild(new Listcell(""));
+			}
+			item.setValue(entry);
+		}
+	}
+	
 	protected class Children extends AbstractComponent.Children {
 		protected void removeRange(int fromIndex, int toIndex) {
 			ListIterator<Component> it = listIterator(toIndex);
@@ -0,0 +1,267 @@
+/**
+ *
+ */
+package org.sinnlabs.dbvim.ui.db;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sinnlabs.dbvim.db.Database;
+import org.sinnlabs.dbvim.db.Entry;
+import org.sinnlabs.dbvim.db.SortField;
+import org.sinnlabs.dbvim.db.Value;
+import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
+import org.sinnlabs.dbvim.evaluator.AbstractVariableSet;
+import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
+import org.sinnlabs.dbvim.ui.IFieldInfo;
+import org.zkoss.zk.ui.UiException;
+import org.zkoss.zul.AbstractListModel;
+import org.zkoss.zul.event.ListDataEvent;
+import org.zkoss.zul.ext.Sortable;
+
+/**
+ * List model for the {@link TableField}.
+ * Entries are read from the database page by page,
+ * only the pages requested by the list are loaded.
+ * The list header sorting is done by the database query.
+ * @author peter.liverovsky
+ *
+ */
+/*package*/ class TableFieldModel extends AbstractListModel<Entry> implements Sortable<Entry> {
+
+	private static final long serialVersionUID = -2406244632934569103L;
+
+	/**
+	 * Number of the pages kept in memory
+	 */
+	private static final int CACHED_PAGES = 4;
+
+	/**
+	 * Number of rows read at once if the list has no paging
+	 */
+	private static final int DEFAULT_CHUNK_SIZE = 100;
+
+	private transient Database db;
+
+	private transient List<IFieldInfo<?>> fields;
+
+	private String query;
+
+	private transient AbstractVariableSet<Value<?>> variables;
+
+	private int maxRows;
+
+	private int chunkSize;
+
+	/**
+	 * Number of entries matching the query
+	 */
+	private int total;
+
+	/**
+	 * Number of entries shown by the list
+	 */
+	private int size;
+
+	private transient Map<Integer, List<Entry>> pages;
+
+	/**
+	 * Comparator of the current sort order, null - the primary key order
+	 */
+	private ColumnComparator sortComparator;
+
+	/**
+	 * @param db Database for the table form
+	 * @param fields Fields to be selected
+	 * @param query Table qualification
+	 * @param variables Qualification variables
+	 * @param maxRows Maximum number of rows, 0 - means no limit
+	 * @param pageSize Number of rows on the list page, 0 - means no paging
+	 */
+	public TableFieldModel(Database db, List<IFieldInfo<?>> fields, String query,
+			AbstractVariableSet<Value<?>> variables, int maxRows, int pageSize) {
+		this.db = db;
+		this.fields = fields;
+		this.query = query;
+		this.variables = variables;
+		this.maxRows = maxRows;
+		chunkSize = pageSize > 0 ? pageSize : DEFAULT_CHUNK_SIZE;
+		pages = new LinkedHashMap<Integer, List<Entry>>(CACHED_PAGES + 1, 0.75f, true) {
+
+			private static final long serialVersionUID = 6417066359457213017L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<Entry>> eldest) {
+				return size() > CACHED_PAGES;
+			}
+		};
+	}
+
+	/**
+	 * Counts the entries and reads the first page.
+	 * Can be called outside of the UI thread.
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	public void load() throws ParseException, DatabaseOperationException {
+		total = db.count(query, variables);
+		size = total;
+		if (maxRows > 0 && size > maxRows)
+			size = maxRows;
+		if (size > 0)
+			pages.put(0, readPage(0));
+	}
+
+	/**
+	 * Returns number of the entries matching the table qualification
+	 * @return Total number of entries
+	 */
+	public int getTotal() { return total; }
+
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public Entry getElementAt(int index) {
+		int page = index / chunkSize;
+		List<Entry> rows = pages.get(page);
+		if (rows == null) {
+			try {
+				rows = readPage(page);
+			} catch (ParseException | DatabaseOperationException e) {
+				throw new UiException("Unable to read table entries: " + e.getMessage(), e);
+			}
+			pages.put(page, rows);
+		}
+		int i = index - page * chunkSize;
+		if (i < rows.size())
+			return rows.get(i);
+		return null;
+	}
+
+	/**
+	 * Reads all entries matching the table qualification.
+	 * The entries are not limited by the maximum number of rows.
+	 * @return List of entries
+	 * @throws ParseException
+	 * @throws DatabaseOperationException
+	 */
+	public List<Entry> readAll() throws ParseException, DatabaseOperationException {
+		// all entries are shown by the list, use the pages
+		if (size == total) {
+			List<Entry> entries = new ArrayList<Entry>(size);
+			for (int i=0; i<size; i++) {
+				entries.add(getElementAt(i));
+			}
+			return entries;
+		}
+		return read(0, 0);
+	}
+
+	@Override
+	public void sort(Comparator<Entry> cmpr, boolean ascending) {
+		if (!(cmpr instanceof ColumnComparator))
+			return;
+		sortComparator = (ColumnComparator) cmpr;
+		pages.clear();
+		fireEvent(ListDataEvent.CONTENTS_CHANGED, -1, -1);
+	}
+
+	@Override
+	public String getSortDirection(Comparator<Entry> cmpr) {
+		if (sortComparator != null && sortComparator.equals(cmpr))
+			return sortComparator.ascending ? "ascending" : "descending";
+		return "natural";
+	}
+
+	private List<Entry> readPage(int page) throws ParseException, DatabaseOperationException {
+		int offset = page * chunkSize;
+		int limit = Math.min(chunkSize, size - offset);
+		if (limit <= 0)
+			return new ArrayList<Entry>();
+		return read(offset, limit);
+	}
+
+	/**
+	 * Reads the entries in the current sort order
+	 * @param offset Number of rows to skip
+	 * @param limit Maximum number of rows, 0 - means no limit
+	 */
+	private List<Entry> read(int offset, int limit) 
+			throws ParseException, DatabaseOperationException {
+		List<SortField> sort = null;
+		if (sortComparator != null) {
+			sort = Collections.singletonList(new SortField(
+					fields.get(sortComparator.column), !sortComparator.ascending));
+		}
+		final List<Entry> entries = new ArrayList<Entry>(limit > 0 ? limit : DEFAULT_CHUNK_SIZE);
+		try {
+			db.queryEach(fields, null, query, variables, sort, offset, limit, 
+					new Database.EntryHandler() {
+
+				@Override
+				public void handle(Entry e) {
+					entries.add(e);
+				}
+			});
+		} catch (IOException e) {
+			// the handler does not throw
+			throw new DatabaseOperationException("Unable to read table entries.", e);
+		}
+		return entries;
+	}
+
+	/**
+	 * Sort order of the list header by the table column
+	 */
+	/*package*/ static class ColumnComparator implements Comparator<Entry>, java.io.Serializable {
+
+		private static final long serialVersionUID = 2715063467342418915L;
+
+		private final int column;
+
+		private final boolean ascending;
+
+		/**
+		 * @param column Column index in the selected fields
+		 * @param ascending Ascending sort order
+		 */
+		ColumnComparator(int column, boolean ascending) {
+			this.column = column;
+			this.ascending = ascending;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			Object v1 = o1.getValues().get(column).getValue();
+			Object v2 = o2.getValues().get(column).getValue();
+			int res;
+			if (v1 == null || v2 == null)
+				res = v1 == null ? (v2 == null ? 0 : -1) : 1;
+			else
+				res = ((Comparable) v1).compareTo(v2);
+			return ascending ? res : -res;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * column + (ascending ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ColumnComparator))
+				return false;
+			ColumnComparator other = (ColumnComparator) obj;
+			return column == other.column && ascending == other.ascending;
+		}
+	}
+}
@@ -23,7 +23,7 @@ public class TimeField extends BaseField<Time, Timebox> {
 	private static final long serialVersionUID = -2103045559070955451L;
 
 	public TimeField(DBField dbfield) {
-		super("/components/timefield.zul", dbfield);
+		super(FieldType.TIME.getTemplate(), dbfield);
 		
 	}
 	
@@ -52,8 +52,7 @@ public class TimeField extends BaseField<Time, Timebox> {
 	 */
 	@Override
 	public Value<Time> fromString(String string) {
-		Time t = Time.valueOf(string);
-		return new Value<Time>(t, dbField);
+		return FieldType.TIME.fromString(string, dbField);
 	}
 
 	/* (non-Javadoc)
@@ -61,6 +60,6 @@ public class TimeField extends BaseField<Time, Timebox> {
 	 */
 	@Override
 	public Value<Time> fromObject(Object val) {
-		return new Value<Time>((Time) val, dbField);
+		return FieldType.TIME.fromObject(val, dbField);
 	}
 }
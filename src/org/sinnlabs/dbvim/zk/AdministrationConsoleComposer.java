@@ -8,6 +8,8 @@ import java.util.List;
 
 import org.sinnlabs.dbvim.config.ConfigLoader;
 import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.menu.MenuItemsCache;
+import org.sinnlabs.dbvim.menu.MenuRegistry;
 import org.sinnlabs.dbvim.model.Role;
 import org.sinnlabs.dbvim.model.User;
 import org.sinnlabs.dbvim.security.LoginProvider;
@@ -15,6 +17,7 @@ import org.sinnlabs.dbvim.ui.AddRoleDialog;
 import org.sinnlabs.dbvim.ui.AddUserDialog;
 import org.sinnlabs.dbvim.ui.ChangeUserRoleDialog;
 import org.sinnlabs.dbvim.ui.RetypePasswordDialog;
+import org.sinnlabs.dbvim.zk.model.PageDefinitionCache;
 import org.zkoss.zk.ui.Component;
 import org.zkoss.zk.ui.event.Event;
 import org.zkoss.zk.ui.event.EventListener;
@@ -76,6 +79,12 @@ public class AdministrationConsoleComposer extends SelectorComposer<Component> {
 	@Wire
 	Label formsCount;
 	
+	@Wire
+	Label formsStats;
+	
+	@Wire
+	Label menusCount;
+	
 	User selectedUser;
 	Role selectedRole;
 	
@@ -100,12 +109,32 @@ public class AdministrationConsoleComposer extends SelectorComposer<Component> {
 	 */
 	private void refreshCache() {
 		int size = FormFieldResolverFactory.getCacheSize();
-		formsCount.setValue("Forms cahced: " + size);
+		formsCount.setValue("Forms cached: " + size + " of " 
+				+ FormFieldResolverFactory.getMaxCacheSize());
+		formsStats.setValue("Hits: " + FormFieldResolverFactory.getHits() 
+				+ ", misses: " + FormFieldResolverFactory.getMisses() 
+				+ ", evictions: " + FormFieldResolverFactory.getEvictions() 
+				+ ", average load time: " + FormFieldResolverFactory.getAverageLoadTime() + " ms");
+		menusCount.setValue("Menus cached: " + MenuItemsCache.getSize() 
+				+ ", definitions: " + MenuRegistry.getSize());
 	}
 	
 	@Listen("onClick = #btnFlushCache")
 	public void btnFlushCache_onClick() {
 		FormFieldResolverFactory.flushCache();
+		PageDefinitionCache.flush();
+		refreshCache();
+	}
+	
+	@Listen("onClick = #btnRefreshCache")
+	public void btnRefreshCache_onClick() {
+		refreshCache();
+	}
+	
+	@Listen("onClick = #btnFlushMenus")
+	public void btnFlushMenus_onClick() {
+		MenuItemsCache.flush();
+		MenuRegistry.flush();
 		refreshCache();
 	}
 
@@ -9,6 +9,9 @@ import java.util.ArrayList;
 
 import org.sinnlabs.dbvim.config.ConfigLoader;
 import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
+import org.sinnlabs.dbvim.form.FormRegistry;
+import org.sinnlabs.dbvim.menu.MenuItemsCache;
+import org.sinnlabs.dbvim.menu.MenuRegistry;
 import org.sinnlabs.dbvim.model.CharacterMenu;
 import org.sinnlabs.dbvim.model.Form;
 import org.sinnlabs.dbvim.model.ResultColumn;
@@ -232,6 +235,8 @@ public class BuilderComposer extends SelectorComposer<Component> implements
 			public void onEvent(Event arg0) throws Exception {
 				if (dialog.getSelectedAction() == SearchMenuProperties.DD_OK) {
 					ConfigLoader.getInstance().getSearchMenus().create(menu);
+					MenuItemsCache.invalidate(menu.getName());
+					MenuRegistry.invalidate(menu.getName());
 				}
 			}
 			
@@ -375,7 +380,7 @@ public class BuilderComposer extends SelectorComposer<Component> implements
 	private void saveForm() {
 		try {
 			updateViewDefinition();
-			ConfigLoader.getInstance().getForms().createOrUpdate(currentForm);
+			FormRegistry.save(currentForm);
 			designerCanvas.setDirty(false);
 			FormFieldResolverFactory.refreshItem(currentForm);
 		} catch (SQLException e) {
@@ -427,6 +432,8 @@ public class BuilderComposer extends SelectorComposer<Component> implements
 				public void onEvent(Event arg0) throws Exception {
 					if (dialog.getSelectedAction() == SearchMenuProperties.DD_OK) {
 						ConfigLoader.getInstance().getSearchMenus().update((SearchMenu) menu);
+						MenuItemsCache.invalidate(((SearchMenu) menu).getName());
+						MenuRegistry.invalidate(((SearchMenu) menu).getName());
 					}
 				}
 
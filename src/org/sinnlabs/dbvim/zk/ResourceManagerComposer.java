@@ -13,6 +13,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.sinnlabs.dbvim.config.ConfigLoader;
 import org.sinnlabs.dbvim.model.Form;
 import org.sinnlabs.dbvim.model.StaticResource;
+import org.sinnlabs.dbvim.servlet.ResourceCache;
 import org.zkoss.util.media.Media;
 import org.zkoss.zk.ui.event.UploadEvent;
 import org.zkoss.zk.ui.select.SelectorComposer;
@@ -91,10 +92,14 @@ public class ResourceManagerComposer extends SelectorComposer<Window> {
 	@Listen("onClick = #btnSave")
 	public void btnSave_onClick() throws SQLException {
 		if (current!=null) {
+			String oldName = current.getName();
 			current.setName(txtName.getText());
 			current.setContentType(txtContentType.getText());
 			current.setData(data);
 			ConfigLoader.getInstance().getStaticResources().createOrUpdate(current);
+			if (oldName != null)
+				ResourceCache.invalidate(oldName);
+			ResourceCache.invalidate(current.getName());
 			loadResources();
 		}
 	}
@@ -110,6 +115,7 @@ public class ResourceManagerComposer extends SelectorComposer<Window> {
 	public void btnDeleteResource_onClick() throws SQLException {
 		if (current != null && !isNew) {
 			ConfigLoader.getInstance().getStaticResources().delete(current);
+			ResourceCache.invalidate(current.getName());
 			loadResources();
 		}
 	}
@@ -3,18 +3,26 @@
  */
 package org.sinnlabs.dbvim.zk;
 
-import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpSession;
+
+import org.apache.commons.lang3.StringUtils;
+import org.sinnlabs.dbvim.db.ChunkedUpdate;
 import org.sinnlabs.dbvim.db.Database;
 import org.sinnlabs.dbvim.db.DatabaseFactory;
 import org.sinnlabs.dbvim.db.Entry;
 import org.sinnlabs.dbvim.db.Value;
 import org.sinnlabs.dbvim.db.exceptions.DatabaseOperationException;
+import org.sinnlabs.dbvim.db.model.DBField;
 import org.sinnlabs.dbvim.db.model.IDBField;
 import org.sinnlabs.dbvim.evaluator.exceptions.ParseException;
 import org.sinnlabs.dbvim.form.FormFieldResolver;
@@ -22,17 +30,22 @@ import org.sinnlabs.dbvim.form.FormFieldResolverFactory;
 import org.sinnlabs.dbvim.model.Form;
 import org.sinnlabs.dbvim.model.ResultColumn;
 import org.sinnlabs.dbvim.script.ScriptApi;
+import org.sinnlabs.dbvim.servlet.ExportRequest;
 import org.sinnlabs.dbvim.ui.IField;
+import org.sinnlabs.dbvim.ui.UpdateProgressDialog;
 import org.sinnlabs.dbvim.ui.annotations.EventType;
 import org.sinnlabs.dbvim.ui.db.ConditionFieldMenuitem;
 import org.sinnlabs.dbvim.ui.events.VimEvents;
 import org.sinnlabs.dbvim.zk.model.FormEventProcessor;
 import org.sinnlabs.dbvim.zk.model.IFormComposer;
+import org.sinnlabs.dbvim.zk.model.PageDefinitionCache;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.zkoss.lang.Library;
 import org.zkoss.zk.ui.Component;
 import org.zkoss.zk.ui.Executions;
 import org.zkoss.zk.ui.Page;
+import org.zkoss.zk.ui.Sessions;
 import org.zkoss.zk.ui.WrongValueException;
 import org.zkoss.zk.ui.event.Event;
 import org.zkoss.zk.ui.event.EventListener;
@@ -81,6 +94,11 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 	protected static final int MODE_CREATE = 3;
 	
 	protected static final int MODE_CHANGE = 4;
+	
+	/**
+	 * Library property with the number of entries updated in one transaction by the Change All
+	 */
+	public static final String UPDATE_CHUNK_SIZE_PROPERTY = "org.sinnlabs.dbvim.update.chunkSize";
 
 	@Wire("#border #searchResults")
 	North searchResults;
@@ -118,6 +136,12 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 	@Wire("#btnAdditionalSearch")
 	Toolbarbutton btnAdditionalSearch;
 	
+	@Wire
+	Toolbarbutton btnExportCsv;
+	
+	@Wire
+	Toolbarbutton btnExportXlsx;
+	
 	@Wire("#lstFooterTotal")
 	Listfooter lstFooter;
 	
@@ -192,6 +216,21 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 	 */
 	protected Menupopup fieldsPopup;
 	
+	/**
+	 * Not display only fields by the column full name
+	 */
+	private Map<String, List<IField<Object>>> fieldsByName;
+	
+	/**
+	 * Resolved entry columns, see {@link #getFieldsByColumn(DBField)}
+	 */
+	private Map<DBField, List<IField<Object>>> fieldsByColumn;
+	
+	/**
+	 * Form the field index is built for
+	 */
+	private Form indexedForm;
+	
 	List<Value<?>> lastSearch;
 	
 	private LastSearch search;
@@ -439,13 +478,18 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 			if (scanForNulls()) {
 				return;
 			}
-			// get values
+			// get changed values
 			List<Value<?>> values = new ArrayList<Value<?>>();
-			for(Component c : fieldList) {
-				if (!((IField<?>)c).isDisplayOnly())
-					values.add(((IField<?>)c).getDBValue());
+			for(int i=0; i<fields.size(); i++) {
+				IField<?> f = fields.get(i);
+				if (f.isDirty() && !f.isDisplayOnly())
+					values.add(f.getDBValue());
 			}
 			
+			// nothing changed
+			if (values.isEmpty())
+				return;
+			
 			//update entry
 			try {
 				db.updateEntry(currentEntry, values);
@@ -455,6 +499,8 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 				e.printStackTrace();
 				return;
 			}
+			applyValues(currentEntry, values);
+			clearDirtyFields();
 			
 			// mark as modified
 			if (results.getSelectedItem() != null) {
@@ -477,6 +523,32 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 		}
 	}
 	
+	@Listen("onClick = #btnExportCsv")
+	public void btnExportCsv_onClick() {
+		export("csv");
+	}
+	
+	@Listen("onClick = #btnExportXlsx")
+	public void btnExportXlsx_onClick() {
+		export("xlsx");
+	}
+	
+	/**
+	 * Opens the export of the last search results
+	 * @param format Export format (csv, xlsx)
+	 */
+	private void export(String format) {
+		ExportRequest request = new ExportRequest(form.getName(), search.values, search.additional);
+		String token = ExportRequest.register(
+				(HttpSession) Sessions.getCurrent().getNativeSession(), request);
+		try {
+			Executions.getCurrent().sendRedirect("/export/" + URLEncoder.encode(form.getName(), "UTF-8") 
+					+ "?format=" + format + "&search=" + token, "_blank");
+		} catch (UnsupportedEncodingException e) {
+			e.printStackTrace();
+		}
+	}
+	
 	private void markItemAsChanged(Listitem item) {
 		for (Component c : item.getChildren()) {
 			if (c instanceof Listcell) {
@@ -540,30 +612,69 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 	}
 	
 	/**
-	 * Updates all fields from result list with value
-	 * @throws ParseException
-	 * @throws DatabaseOperationException
+	 * Updates all entries of the last search with the user values.
+	 * Entries are updated chunk by chunk in the background, the progress is shown in the dialog.
 	 */
-	private void updateAllEntries() throws ParseException, DatabaseOperationException {
+	private void updateAllEntries() {
 		if (search == null)
 			return;
 		
 		// get the user values
 		List<Value<?>> values = getUserValues();
+		if (values.isEmpty())
+			return;
 		
-		// update the records
-		if (search.values == null && search.additional != null) {
-			db.update(values, search.additional, null);
-		} else if (search.values != null && search.additional == null) {
-			db.update(search.values, values);
-		} else if (search.values == null && search.additional == null) {
-			db.updateAll(values);
-		}
+		ChunkedUpdate update = new ChunkedUpdate(db, values, getUpdateChunkSize());
+		if (search.values != null)
+			update.setCondition(search.values);
+		else if (search.additional != null)
+			update.setQuery(search.additional, null);
 		
-		// mark all result list items as changed
-		for (Listitem i : results.getItems()) {
-			markItemAsChanged(i);
+		final UpdateProgressDialog dialog = new UpdateProgressDialog(update, results.getItemCount());
+		dialog.addEventListener(Events.ON_CLOSE, new EventListener<Event>() {
+
+			@Override
+			public void onEvent(Event arg0) throws Exception {
+				if (dialog.getError() != null) {
+					Messagebox.show("Unable to update entries: " + dialog.getError().getMessage() 
+							+ "\n" + dialog.getUpdated() + " entries were updated.", "Update error.", 
+							Messagebox.OK, Messagebox.ERROR);
+					return;
+				}
+				if (dialog.isCancelled()) {
+					Messagebox.show("Update cancelled. " + dialog.getUpdated() + " entries were updated.");
+					return;
+				}
+				// mark all result list items as changed
+				for (Listitem i : results.getItems()) {
+					markItemAsChanged(i);
+				}
+				Messagebox.show(dialog.getUpdated() + " entries updated.");
+			}
+			
+		});
+		dialog.setParent(getSelf());
+		dialog.doModal();
+		if (!dialog.start()) {
+			dialog.detach();
+			Messagebox.show("Other updates are running. Try again later.", "Update entries", 
+					Messagebox.OK, Messagebox.EXCLAMATION);
+		}
+	}
+	
+	/**
+	 * Returns number of the entries updated in one transaction by the Change All
+	 */
+	private static int getUpdateChunkSize() {
+		String prop = Library.getProperty(UPDATE_CHUNK_SIZE_PROPERTY);
+		if (StringUtils.isNotBlank(prop)) {
+			try {
+				return Integer.parseInt(prop.trim());
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid " + UPDATE_CHUNK_SIZE_PROPERTY + " value: " + prop);
+			}
 		}
+		return ChunkedUpdate.DEFAULT_CHUNK_SIZE;
 	}
 	
 	/**
@@ -664,18 +775,18 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 	 * @throws Exception
 	 */
 	private void loadForm() throws Exception {
-		// get form view definition
-		StringReader r = new StringReader(form.getView());
 		// sets executions parameters
 		HashMap<String, Object> args = new HashMap<String, Object>();
 		args.put("resolver", resolver);
 		args.put("composer", this);
 		// create the ui
-		Executions.createComponentsDirectly(r, null, detailsView, args);
+		PageDefinitionCache.createFormView(form, detailsView, args);
 		Selectors.wireVariables(detailsView, this, null);
 		
+		clearFieldIndex();
 		// Find all DB fields of the form and wire all events
 		findAllDBFields(detailsView);
+		buildFieldIndex();
 	}
 	
 	private void findAllDBFields(Component c) {
@@ -721,8 +832,8 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 	 */
 	private List<Value<?>> getUserValues() {
 		List<Value<?>> list = new ArrayList<Value<?>>();
-		for (Component c : fieldList) {
-			IField<?> f = (IField<?>) c;
+		for (int i=0; i<fields.size(); i++) {
+			IField<?> f = fields.get(i);
 			
 			// Skip all display only fields
 			if (f.isDisplayOnly())
@@ -740,27 +851,115 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 	/**
 	 * Fill form fields with currentEntry values
 	 */
-	@SuppressWarnings("unchecked")
 	private void populateFields() {
 		// If currentEntry not set
 		if (currentEntry == null)
 			return;
 		
-		// read all fields
-		for(Component c : fieldList) {
-			IDBField dbField = (IDBField) c;
-			IField<Object> field = (IField<Object>) c;
-			for(Value<?> v : currentEntry.getValues()) {
-				// find value for the field
-				if (!field.isDisplayOnly() && 
-						dbField.getFullName().equals(v.getDBField().getFullName())) {
-					// sets the value
-					field.setDBValue((Value<Object>) v);
-				}
+		// read all values
+		for(Value<?> v : currentEntry.getValues()) {
+			List<IField<Object>> list = getFieldsByColumn(v.getDBField());
+			for (int i=0; i<list.size(); i++) {
+				// sets the value
+				list.get(i).setDBValue(castValue(v));
 			}
-		} // for
+		}
+		// loaded values are not changed
+		clearDirtyFields();
 	} // populateFields
 	
+	/**
+	 * Replaces the entry values with the saved ones,
+	 * so the next save compares the values with the stored entry
+	 * @param e Entry to be updated
+	 * @param values Saved values
+	 */
+	private void applyValues(Entry e, List<Value<?>> values) {
+		HashMap<String, Value<?>> saved = new HashMap<String, Value<?>>(values.size() * 2);
+		for (Value<?> v : values) {
+			saved.put(v.getDBField().getFullName(), v);
+		}
+		replaceValues(e.getValues(), saved);
+		replaceValues(e.getID(), saved);
+	}
+	
+	private static void replaceValues(List<Value<?>> list, Map<String, Value<?>> saved) {
+		for (int i=0; i<list.size(); i++) {
+			Value<?> v = saved.get(list.get(i).getDBField().getFullName());
+			if (v != null)
+				list.set(i, new Value<Object>(v.getValue(), list.get(i).getDBField()));
+		}
+	}
+	
+	/**
+	 * Marks all form fields as not changed
+	 */
+	private void clearDirtyFields() {
+		for (int i=0; i<fields.size(); i++) {
+			fields.get(i).setDirty(false);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Value<Object> castValue(Value<?> v) {
+		return (Value<Object>) v;
+	}
+	
+	/**
+	 * Builds the field index by the column full name.
+	 * Display only fields are not indexed.
+	 */
+	@SuppressWarnings("unchecked")
+	private void buildFieldIndex() {
+		clearFieldIndex();
+		indexedForm = form;
+		fieldsByName = new HashMap<String, List<IField<Object>>>();
+		fieldsByColumn = new IdentityHashMap<DBField, List<IField<Object>>>();
+		for (IField<?> f : fields) {
+			if (f.isDisplayOnly() || f.getDBField() == null)
+				continue;
+			String name = f.getDBField().getFullName();
+			List<IField<Object>> list = fieldsByName.get(name);
+			if (list == null) {
+				list = new ArrayList<IField<Object>>(1);
+				fieldsByName.put(name, list);
+			}
+			list.add((IField<Object>) f);
+		}
+	}
+	
+	/**
+	 * Returns the form fields mapped to the column.
+	 * Entries read by the form database share the column objects, 
+	 * so the column name is resolved only once for each column.
+	 * @param column Entry column
+	 * @return List of fields, empty list if no field mapped to the column
+	 */
+	private List<IField<Object>> getFieldsByColumn(DBField column) {
+		// the columns of the other form are never read again
+		if (indexedForm != form)
+			buildFieldIndex();
+		List<IField<Object>> list = fieldsByColumn.get(column);
+		if (list == null) {
+			list = fieldsByName.get(column.getFullName());
+			if (list == null)
+				list = Collections.emptyList();
+			fieldsByColumn.put(column, list);
+		}
+		return list;
+	}
+	
+	/**
+	 * Drops the field index, so the columns of the previous form are released
+	 */
+	private void clearFieldIndex() {
+		if (fieldsByColumn != null)
+			fieldsByColumn.clear();
+		if (fieldsByName != null)
+			fieldsByName.clear();
+		indexedForm = null;
+	}
+	
 	/**
 	 * Changes form view mode (create, modify, etc)
 	 * @param mode Form view mode
@@ -776,6 +975,8 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 			btnCopy.setDisabled(true);
 			btnDelete.setDisabled(true);
 			btnAdditionalSearch.setDisabled(false);
+			btnExportCsv.setDisabled(true);
+			btnExportXlsx.setDisabled(true);
 			south.setVisible(false);
 			divSearch.setVisible(true);
 			divNewEntry.setVisible(false);
@@ -799,6 +1000,8 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 			btnCopy.setDisabled(false);
 			btnDelete.setDisabled(false);
 			btnAdditionalSearch.setDisabled(true);
+			btnExportCsv.setDisabled(false);
+			btnExportXlsx.setDisabled(false);
 			south.setVisible(false);
 			divSearch.setVisible(false);
 			divNewEntry.setVisible(false);
@@ -821,6 +1024,8 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 			btnCopy.setDisabled(true);
 			btnDelete.setDisabled(true);
 			btnAdditionalSearch.setDisabled(true);
+			btnExportCsv.setDisabled(true);
+			btnExportXlsx.setDisabled(true);
 			south.setVisible(false);
 			divSearch.setVisible(false);
 			divNewEntry.setVisible(true);
@@ -847,6 +1052,8 @@ public class SearchComposer extends SelectorComposer<Component> implements IForm
 			btnCopy.setDisabled(false);
 			btnDelete.setDisabled(false);
 			btnAdditionalSearch.setDisabled(true);
+			btnExportCsv.setDisabled(false);
+			btnExportXlsx.setDisabled(false);
 			south.setVisible(false);
 			divSearch.setVisible(false);
 			divNewEntry.setVisible(false);
@@ -3,41 +3,78 @@
  */
 package org.sinnlabs.dbvim.zk.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import org.apache.commons.collections.map.MultiValueMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sinnlabs.dbvim.ui.annotations.EventType;
 import org.sinnlabs.dbvim.ui.annotations.WireEvent;
 
 /**
- * Class that process annotations for the object
+ * Class that process annotations for the object.
+ * Event listeners are read once per class and cached.
  * @author peter.liverovsky
  *
  */
 /*package*/ class AnnotationProcessor {
-
-	private Object target;
 	
-	private MultiValueMap events;
+	private static final ConcurrentHashMap<Class<?>, Map<EventType, MethodHandle[]>> cache = 
+			new ConcurrentHashMap<Class<?>, Map<EventType, MethodHandle[]>>();
 	
-	public AnnotationProcessor(Object target) {
-		this.target = target;
-		events = new MultiValueMap();
-		
-		readAnnotations();
+	/**
+	 * Returns event listeners of the class.
+	 * Each handle has the type (Object target, Object[] args)Object.
+	 * @param cls Target class
+	 * @return Listeners by the event type, empty map if the class has no listeners
+	 */
+	public static Map<EventType, MethodHandle[]> getEvents(Class<?> cls) {
+		Map<EventType, MethodHandle[]> events = cache.get(cls);
+		if (events == null) {
+			events = readAnnotations(cls);
+			Map<EventType, MethodHandle[]> prev = cache.putIfAbsent(cls, events);
+			if (prev != null)
+				events = prev;
+		}
+		return events;
 	}
 	
-	private void readAnnotations() {
-		if (target == null)
-			return;
+	private static Map<EventType, MethodHandle[]> readAnnotations(Class<?> cls) {
+		Map<EventType, List<MethodHandle>> found = 
+				new EnumMap<EventType, List<MethodHandle>>(EventType.class);
 		
-		Method[] methods = target.getClass().getMethods();
-		
-		for (Method m : methods) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		for (Method m : cls.getMethods()) {
 			WireEvent annotation = m.getAnnotation(WireEvent.class);
-			if (annotation != null) {
-				events.put(annotation.value(), m);
+			if (annotation == null)
+				continue;
+			try {
+				// public methods of the non public classes are not accessible by default
+				m.setAccessible(true);
+				MethodHandle h = lookup.unreflect(m);
+				// (Target, arg1, ...)R -> (Object, Object[])Object
+				h = h.asType(h.type().generic())
+						.asSpreader(Object[].class, m.getParameterTypes().length);
+				List<MethodHandle> list = found.get(annotation.value());
+				if (list == null) {
+					list = new ArrayList<MethodHandle>();
+					found.put(annotation.value(), list);
+				}
+				list.add(h);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Unable to access event listener: " + m, e);
 			}
 		}
+		
+		Map<EventType, MethodHandle[]> events = 
+				new EnumMap<EventType, MethodHandle[]>(EventType.class);
+		for (Map.Entry<EventType, List<MethodHandle>> e : found.entrySet()) {
+			events.put(e.getKey(), e.getValue().toArray(new MethodHandle[e.getValue().size()]));
+		}
+		return events;
 	}
-	
-	public MultiValueMap getEvents() { return events; }
 }
@@ -3,10 +3,12 @@
  */
 package org.sinnlabs.dbvim.zk.model;
 
-import java.lang.reflect.Method;
-import java.util.Collection;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.collections.map.MultiValueMap;
 import org.sinnlabs.dbvim.ui.annotations.EventType;
 
 /**
@@ -15,43 +17,50 @@ import org.sinnlabs.dbvim.ui.annotations.EventType;
  *
  */
 public class FormEventProcessor {
+	
+	private static final Object[] NO_ARGS = new Object[0];
 
-	private MultiValueMap events;
+	/**
+	 * Listeners bound to the targets, each handle has the type (Object[])Object
+	 */
+	private EnumMap<EventType, List<MethodHandle>> events;
 	
 	public FormEventProcessor() {
-		events = new MultiValueMap();
+		events = new EnumMap<EventType, List<MethodHandle>>(EventType.class);
 	}
 	
 	public void addListeners(Object target) {
-		AnnotationProcessor annProc = new AnnotationProcessor(target);
+		if (target == null)
+			return;
 		
-		for(Object key : annProc.getEvents().keySet()) {
-			EventType type = (EventType) key;
-			for (Object m : annProc.getEvents().getCollection(type)) {
-				EventDescription event = new EventDescription();
-				event.target = target;
-				event.listener = (Method)m;
-				events.put(type, event);
+		for (Map.Entry<EventType, MethodHandle[]> e : 
+				AnnotationProcessor.getEvents(target.getClass()).entrySet()) {
+			List<MethodHandle> list = events.get(e.getKey());
+			if (list == null) {
+				list = new ArrayList<MethodHandle>();
+				events.put(e.getKey(), list);
+			}
+			for (MethodHandle h : e.getValue()) {
+				list.add(h.bindTo(target));
 			}
 		}
 	}
 	
 	public void Invoke(EventType type, Object...objects) throws Exception {
-		Collection<?> collection = events.getCollection(type);
-		if (collection == null)
+		List<MethodHandle> list = events.get(type);
+		if (list == null)
 			return;
 		
-		for (Object e : collection) {
-			EventDescription event = (EventDescription) e;
-			if (objects == null)
-				event.listener.invoke(event.target);
-			else
-				event.listener.invoke(event.target, objects);
+		Object[] args = objects == null ? NO_ARGS : objects;
+		for (int i = 0; i < list.size(); i++) {
+			try {
+				@SuppressWarnings("unused")
+				Object res = (Object) list.get(i).invokeExact(args);
+			} catch (Exception | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new Exception(t);
+			}
 		}
 	}
-	
-	private class EventDescription {
-		public Object target;
-		public Method listener;
-	}
 }
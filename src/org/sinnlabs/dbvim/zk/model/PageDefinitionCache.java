@@ -0,0 +1,98 @@
+/**
+ * 
+ */
+package org.sinnlabs.dbvim.zk.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sinnlabs.dbvim.model.Form;
+import org.zkoss.zk.ui.Component;
+import org.zkoss.zk.ui.Execution;
+import org.zkoss.zk.ui.Executions;
+import org.zkoss.zk.ui.metainfo.PageDefinition;
+
+/**
+ * Application wide cache of the parsed page definitions.
+ * Component templates are cached by URI, form views are cached
+ * by the form name and version, so the ZUML is parsed only once.
+ * @author peter.liverovsky
+ *
+ */
+public class PageDefinitionCache {
+	
+	/**
+	 * Maximum number of the cached form views
+	 */
+	private static final int MAX_VIEWS = 200;
+	
+	private static final String EXTENSION = "zul";
+	
+	private static final ConcurrentHashMap<String, PageDefinition> templates = 
+			new ConcurrentHashMap<String, PageDefinition>();
+	
+	private static final Map<String, PageDefinition> views = Collections.synchronizedMap(
+			new LinkedHashMap<String, PageDefinition>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = -3125581297713946231L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, PageDefinition> eldest) {
+					return size() > MAX_VIEWS;
+				}
+			});
+	
+	/**
+	 * Creates components from the template
+	 * @param uri Template URI
+	 * @param parent Parent component
+	 * @param args Creation arguments
+	 * @return Created root components
+	 */
+	public static Component[] createComponents(String uri, Component parent, Map<?, ?> args) {
+		Execution exec = Executions.getCurrent();
+		PageDefinition def = templates.get(uri);
+		if (def == null) {
+			def = exec.getPageDefinition(uri);
+			templates.putIfAbsent(uri, def);
+		}
+		return exec.createComponents(def, parent, args);
+	}
+	
+	/**
+	 * Creates components from the form view
+	 * @param form Form
+	 * @param parent Parent component
+	 * @param args Creation arguments
+	 * @return Created root components
+	 */
+	public static Component[] createFormView(Form form, Component parent, Map<?, ?> args) {
+		Execution exec = Executions.getCurrent();
+		String view = form.getView() != null ? form.getView() : "";
+		// the hash protects from the views changed without saving the form
+		String key = form.getName() + "@" + form.getVersion() + "@" + view.hashCode();
+		PageDefinition def = views.get(key);
+		if (def == null) {
+			def = exec.getPageDefinitionDirectly(view, EXTENSION);
+			views.put(key, def);
+		}
+		return exec.createComponents(def, parent, args);
+	}
+	
+	/**
+	 * Returns number of the cached page definitions
+	 */
+	public static int getSize() {
+		return templates.size() + views.size();
+	}
+	
+	/**
+	 * Removes all cached page definitions
+	 */
+	public static void flush() {
+		templates.clear();
+		views.clear();
+	}
+}